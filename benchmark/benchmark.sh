@@ -0,0 +1,104 @@
+#!/usr/bin/env bash
+#
+# confronto tra build JVM e nativa sulla stessa macchina: tempo alla prima risposta (/health/live), tempo alla
+# readiness (/health/ready, comprende il riscaldamento), RSS a riposo e massima sotto carico, throughput.
+# Le due build vengono avviate una dopo l'altra sullo stesso database, che deve essere già avviato.
+#
+# artefatti richiesti:
+#   ./mvnw package            -> target/quarkus-app/quarkus-run.jar
+#   ./mvnw package -Dnative   -> target/*-runner
+# il carico usa wrk se installato, altrimenti hey
+#
+# uso: benchmark/benchmark.sh [jvm|native|all]
+# variabili: BENCH_PORT (8080), BENCH_PATH (/employees), BENCH_DURATION (secondi, 30), BENCH_CONNECTIONS (20)
+
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+MODE="${1:-all}"
+PORT="${BENCH_PORT:-8080}"
+TARGET_PATH="${BENCH_PATH:-/employees}"
+DURATION="${BENCH_DURATION:-30}"
+CONNECTIONS="${BENCH_CONNECTIONS:-20}"
+BASE_URL="http://localhost:${PORT}"
+
+trap 'kill $(jobs -p) 2>/dev/null || true' EXIT
+
+now_ms() {
+    date +%s%3N
+}
+
+rss_kb() {
+    awk '/VmRSS/ {print $2}' "/proc/$1/status" 2>/dev/null || echo 0
+}
+
+# attesa della prima risposta 200, fallisce se il processo termina prima
+wait_for() {
+    local url="$1" pid="$2"
+
+    until curl -sf -o /dev/null "$url"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "application exited before answering $url" >&2
+            return 1
+        fi
+        sleep 0.01
+    done
+}
+
+# richieste al secondo sul percorso sotto test
+load() {
+    if command -v wrk >/dev/null; then
+        wrk -t2 -c"$CONNECTIONS" -d"${DURATION}s" "$BASE_URL$TARGET_PATH" | awk '/Requests\/sec/ {print $2}'
+    elif command -v hey >/dev/null; then
+        hey -z "${DURATION}s" -c "$CONNECTIONS" "$BASE_URL$TARGET_PATH" | awk '/Requests\/sec/ {print $2}'
+    else
+        echo "wrk or hey is required" >&2
+        return 1
+    fi
+}
+
+run() {
+    local name="$1"
+    shift
+
+    local start pid first ready idle sampler peak throughput
+    start=$(now_ms)
+    QUARKUS_HTTP_PORT="$PORT" "$@" > "target/benchmark-$name.log" 2>&1 &
+    pid=$!
+
+    wait_for "$BASE_URL/health/live" "$pid"
+    first=$(( $(now_ms) - start ))
+    wait_for "$BASE_URL/health/ready" "$pid"
+    ready=$(( $(now_ms) - start ))
+    idle=$(rss_kb "$pid")
+
+    # campionamento della RSS ogni 200 ms durante il carico
+    ( while kill -0 "$pid" 2>/dev/null; do rss_kb "$pid"; sleep 0.2; done ) > "target/benchmark-$name.rss" &
+    sampler=$!
+    throughput=$(load)
+    kill "$sampler" 2>/dev/null || true
+    peak=$(sort -n "target/benchmark-$name.rss" | tail -1)
+
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+
+    printf "%-8s %16s %16s %14s %14s %12s\n" "$name" "$first" "$ready" "$(( idle / 1024 ))" "$(( peak / 1024 ))" "$throughput"
+}
+
+mkdir -p target
+
+JVM_JAR="target/quarkus-app/quarkus-run.jar"
+NATIVE_RUNNER=$(ls target/*-runner 2>/dev/null | head -1 || true)
+
+printf "%-8s %16s %16s %14s %14s %12s\n" "build" "first_req_ms" "ready_ms" "rss_idle_mb" "rss_peak_mb" "req_per_s"
+
+if [[ "$MODE" == "jvm" || "$MODE" == "all" ]]; then
+    [[ -f "$JVM_JAR" ]] || { echo "missing $JVM_JAR, run ./mvnw package" >&2; exit 1; }
+    run jvm java -jar "$JVM_JAR"
+fi
+
+if [[ "$MODE" == "native" || "$MODE" == "all" ]]; then
+    [[ -n "$NATIVE_RUNNER" ]] || { echo "missing native runner, run ./mvnw package -Dnative" >&2; exit 1; }
+    run native "$NATIVE_RUNNER"
+fi
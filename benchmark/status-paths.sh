@@ -0,0 +1,108 @@
+#!/usr/bin/env bash
+#
+# confronto dei percorsi 204/404 tra due revisioni (es. prima e dopo la rimozione delle eccezioni dai contratti dei
+# repository): per ogni revisione si crea un worktree git, si fa il package e si avvia il jar, poi si misurano le
+# richieste al secondo su percorsi che rispondono 404 (id inesistenti) e 204 (risultati vuoti).
+# Le due build vengono avviate una dopo l'altra sullo stesso database, che deve essere già avviato; lo schema non
+# viene rigenerato (database-generation=none) e il riscaldamento è disattivato.
+# il carico usa wrk se installato, altrimenti hey
+#
+# uso: benchmark/status-paths.sh <revisione-prima> <revisione-dopo>
+# variabili: BENCH_PORT (8080), BENCH_DURATION (secondi, 30), BENCH_CONNECTIONS (20),
+#            BENCH_PATHS (percorsi separati da spazi, default quelli sotto)
+
+set -euo pipefail
+# i percorsi hanno ? nelle query, niente espansione dei glob
+set -f
+
+cd "$(dirname "$0")/.."
+
+[[ $# -eq 2 ]] || { echo "usage: $0 <rev-before> <rev-after>" >&2; exit 1; }
+
+PORT="${BENCH_PORT:-8080}"
+DURATION="${BENCH_DURATION:-30}"
+CONNECTIONS="${BENCH_CONNECTIONS:-20}"
+BASE_URL="http://localhost:${PORT}"
+ROOT="$(pwd)"
+WORK="$ROOT/target/status-paths"
+
+# 404: export inesistente (solo memoria), costo di un progetto inesistente (una query); 204: autocomplete e ricerca
+# full text senza risultati
+PATHS="${BENCH_PATHS:-/exports/missing /projects/project_id/999999999/cost /employees/suggest?prefix=zzqqxxjj /search?q=zzqqxxjj}"
+
+trap 'kill $(jobs -p) 2>/dev/null || true' EXIT
+
+# attesa della prima risposta 200, fallisce se il processo termina prima
+wait_for() {
+    local url="$1" pid="$2"
+
+    until curl -sf -o /dev/null "$url"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "application exited before answering $url" >&2
+            return 1
+        fi
+        sleep 0.1
+    done
+}
+
+# richieste al secondo su un percorso
+load() {
+    local url="$1"
+
+    if command -v wrk >/dev/null; then
+        wrk -t2 -c"$CONNECTIONS" -d"${DURATION}s" "$url" | awk '/Requests\/sec/ {print $2}'
+    elif command -v hey >/dev/null; then
+        hey -z "${DURATION}s" -c "$CONNECTIONS" "$url" | awk '/Requests\/sec/ {print $2}'
+    else
+        echo "wrk or hey is required" >&2
+        return 1
+    fi
+}
+
+# worktree (per commit) e package della revisione, restituisce il percorso del jar
+build() {
+    local dir="$WORK/$1"
+
+    if [[ ! -d "$dir" ]]; then
+        git worktree add --detach "$dir" "$1" >&2
+    fi
+
+    (cd "$dir" && "$ROOT/mvnw" -B -q package -DskipTests >&2)
+    echo "$dir/target/quarkus-app/quarkus-run.jar"
+}
+
+run() {
+    local rev="$1" jar="$2" pid path status throughput
+
+    QUARKUS_HTTP_PORT="$PORT" \
+    QUARKUS_HIBERNATE_ORM_DATABASE_GENERATION=none \
+    PAA_WARMUP_ENABLED=false \
+        java -jar "$jar" > "$WORK/$rev.log" 2>&1 &
+    pid=$!
+
+    wait_for "$BASE_URL/health/ready" "$pid"
+
+    for path in $PATHS; do
+        status=$(curl -s -o /dev/null -w '%{http_code}' "$BASE_URL$path")
+        throughput=$(load "$BASE_URL$path")
+        printf "%-12s %-44s %6s %12s\n" "$rev" "$path" "$status" "$throughput"
+    done
+
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+}
+
+mkdir -p "$WORK"
+
+BEFORE=$(git rev-parse --short "$1^{commit}")
+AFTER=$(git rev-parse --short "$2^{commit}")
+
+BEFORE_JAR=$(build "$BEFORE")
+AFTER_JAR=$(build "$AFTER")
+
+printf "%-12s %-44s %6s %12s\n" "revision" "path" "status" "req_per_s"
+
+run "$BEFORE" "$BEFORE_JAR"
+run "$AFTER" "$AFTER_JAR"
+
+echo "worktrees left in $WORK, remove them with: git worktree remove <dir>" >&2
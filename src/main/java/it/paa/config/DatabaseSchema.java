@@ -0,0 +1,56 @@
+package it.paa.config;
+
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+
+import java.util.List;
+
+/*
+DDL specifico di PostgreSQL che hibernate non sa generare dalle entità (colonne generate, indici GIN/GiST).
+Viene eseguito all'avvio dopo la generazione dello schema; ogni istruzione è idempotente (IF NOT EXISTS),
+quindi funziona sia con drop-and-create che con uno schema già esistente
+ */
+@ApplicationScoped
+public class DatabaseSchema {
+    private static final List<String> STATEMENTS = List.of(
+            /*
+            ricerca full text su progetti e tecnologie: tsvector generato da nome (peso A) e descrizione (peso B),
+            aggiornato da postgres ad ogni insert/update, con indice GIN
+            */
+            "ALTER TABLE projects ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (" +
+                    "setweight(to_tsvector('simple', coalesce(name, '')), 'A') || " +
+                    "setweight(to_tsvector('simple', coalesce(description, '')), 'B')) STORED",
+            "CREATE INDEX IF NOT EXISTS projects_search_vector_idx ON projects USING gin (search_vector)",
+            "ALTER TABLE technologies ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (" +
+                    "setweight(to_tsvector('simple', coalesce(name, '')), 'A') || " +
+                    "setweight(to_tsvector('simple', coalesce(description, '')), 'B')) STORED",
+            "CREATE INDEX IF NOT EXISTS technologies_search_vector_idx ON technologies USING gin (search_vector)",
+            /*
+            ricerca per similarità (trigrammi) usata dall'autocomplete quando l'indice per prefisso non trova abbastanza risultati
+            */
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            "CREATE INDEX IF NOT EXISTS employees_surname_trgm_idx ON employees USING gin (lower(surname) gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS customers_name_trgm_idx ON customers USING gin (lower(name) gin_trgm_ops)",
+            /*
+            periodo dei progetti come daterange inclusivo (end_date nulla = progetto aperto), indice GiST
+            per le query di sovrapposizione (&&) e di contenimento (@>)
+            */
+            "CREATE INDEX IF NOT EXISTS projects_period_idx ON projects USING gist (daterange(start_date, end_date, '[]'))",
+            /*
+            dipendenti di un ruolo sotto il minimo, per l'adeguamento massivo degli stipendi
+            */
+            "CREATE INDEX IF NOT EXISTS employees_role_salary_idx ON employees (role, salary)"
+    );
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Transactional
+    void onStart(@Observes StartupEvent event) {
+        STATEMENTS.forEach(statement -> entityManager.createNativeQuery(statement).executeUpdate());
+    }
+}
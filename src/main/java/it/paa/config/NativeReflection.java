@@ -0,0 +1,93 @@
+package it.paa.config;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import it.paa.model.dto.customer.CustomerPostDTO;
+import it.paa.model.dto.customer.CustomerPutDTO;
+import it.paa.model.dto.employee.EmployeeMatchDTO;
+import it.paa.model.dto.employee.EmployeePostDTO;
+import it.paa.model.dto.employee.EmployeeProjectsCustomersDTO;
+import it.paa.model.dto.employee.EmployeePutDTO;
+import it.paa.model.dto.export.ExportJobDTO;
+import it.paa.model.dto.limit.LimitStatsDTO;
+import it.paa.model.dto.project.ProjectCostDTO;
+import it.paa.model.dto.project.ProjectPostDTO;
+import it.paa.model.dto.project.ProjectPutDTO;
+import it.paa.model.dto.project.StaffingConflictDTO;
+import it.paa.model.dto.project.TeamMemberDTO;
+import it.paa.model.dto.project.TeamRecommendationDTO;
+import it.paa.model.dto.role.RolePostDTO;
+import it.paa.model.dto.role.RolePutDTO;
+import it.paa.model.dto.role.RoleUpdateDTO;
+import it.paa.model.dto.role.SalaryReportDTO;
+import it.paa.model.dto.role.SalaryStatsDTO;
+import it.paa.model.dto.search.SearchResultDTO;
+import it.paa.model.dto.suggestion.SuggestionDTO;
+import it.paa.model.dto.sync.SyncDTO;
+import it.paa.model.dto.sync.TombstoneDTO;
+import it.paa.model.dto.technology.CoOccurrenceDTO;
+import it.paa.model.dto.technology.TechnologyPostDTO;
+import it.paa.model.dto.technology.TechnologyProjectsDTO;
+import it.paa.model.dto.technology.TechnologyPutDTO;
+import it.paa.model.dto.utilisation.AllocationPeriodDTO;
+import it.paa.model.dto.utilisation.EmployeeUtilisationDTO;
+import it.paa.model.dto.warmup.WarmUpDTO;
+import it.paa.model.dto.warmup.WarmUpStepDTO;
+import it.paa.model.entity.ChangeEvent;
+import it.paa.model.entity.Customer;
+import it.paa.model.entity.Employee;
+import it.paa.model.entity.Project;
+import it.paa.model.entity.Role;
+import it.paa.model.entity.Technology;
+import it.paa.validation.ProjectDatesValidator;
+
+/*
+registrazione per la reflection nell'immagine nativa. Le risorse restituiscono Response, quindi quarkus non vede
+a build time i tipi che jackson serializza: senza registrazione nel nativo getter e costruttori dei DTO non ci sono
+e le risposte escono come json vuoto. Le entità sono già registrate da hibernate ma vengono serializzate anche da
+jackson, il validatore di @ProjectDates viene istanziato per reflection. Ogni nuovo DTO va aggiunto qui
+ */
+@RegisterForReflection(targets = {
+        //entità
+        ChangeEvent.class,
+        Customer.class,
+        Employee.class,
+        Project.class,
+        Role.class,
+        Technology.class,
+        //DTO
+        CustomerPostDTO.class,
+        CustomerPutDTO.class,
+        EmployeeMatchDTO.class,
+        EmployeePostDTO.class,
+        EmployeeProjectsCustomersDTO.class,
+        EmployeePutDTO.class,
+        ExportJobDTO.class,
+        LimitStatsDTO.class,
+        ProjectCostDTO.class,
+        ProjectPostDTO.class,
+        ProjectPutDTO.class,
+        StaffingConflictDTO.class,
+        TeamMemberDTO.class,
+        TeamRecommendationDTO.class,
+        RolePostDTO.class,
+        RolePutDTO.class,
+        RoleUpdateDTO.class,
+        SalaryReportDTO.class,
+        SalaryStatsDTO.class,
+        SearchResultDTO.class,
+        SuggestionDTO.class,
+        SyncDTO.class,
+        TombstoneDTO.class,
+        CoOccurrenceDTO.class,
+        TechnologyPostDTO.class,
+        TechnologyProjectsDTO.class,
+        TechnologyPutDTO.class,
+        AllocationPeriodDTO.class,
+        EmployeeUtilisationDTO.class,
+        WarmUpDTO.class,
+        WarmUpStepDTO.class,
+        //validatori
+        ProjectDatesValidator.class
+})
+public class NativeReflection {
+}
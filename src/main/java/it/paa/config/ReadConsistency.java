@@ -0,0 +1,49 @@
+package it.paa.config;
+
+import jakarta.enterprise.context.RequestScoped;
+
+/*
+stato della richiesta per il routing delle letture: se deve leggere dal primario (richieste di scrittura),
+il token minimo richiesto dal client per leggere le proprie scritture e l'ultimo evento dell'outbox scritto
+dalla richiesta, restituito al client come token
+ */
+@RequestScoped
+public class ReadConsistency {
+    private boolean primaryOnly;
+    private Long minChangeId;
+    private Long lastChangeId;
+    private Boolean replicaCaughtUp;
+
+    public boolean isPrimaryOnly() {
+        return primaryOnly;
+    }
+
+    public void setPrimaryOnly(boolean primaryOnly) {
+        this.primaryOnly = primaryOnly;
+    }
+
+    public Long getMinChangeId() {
+        return minChangeId;
+    }
+
+    public void setMinChangeId(Long minChangeId) {
+        this.minChangeId = minChangeId;
+    }
+
+    public Long getLastChangeId() {
+        return lastChangeId;
+    }
+
+    public void setLastChangeId(Long lastChangeId) {
+        if (this.lastChangeId == null || lastChangeId > this.lastChangeId)
+            this.lastChangeId = lastChangeId;
+    }
+
+    public Boolean getReplicaCaughtUp() {
+        return replicaCaughtUp;
+    }
+
+    public void setReplicaCaughtUp(Boolean replicaCaughtUp) {
+        this.replicaCaughtUp = replicaCaughtUp;
+    }
+}
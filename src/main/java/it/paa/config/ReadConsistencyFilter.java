@@ -0,0 +1,51 @@
+package it.paa.config;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+
+/*
+le richieste diverse da GET/HEAD leggono e scrivono sul primario. Le scritture restituiscono l'header X-Change-Token
+(id dell'evento nell'outbox); un client che vuole leggere le proprie scritture lo rimanda come X-Read-After
+ */
+@Provider
+public class ReadConsistencyFilter implements ContainerRequestFilter, ContainerResponseFilter {
+    public static final String CHANGE_TOKEN_HEADER = "X-Change-Token";
+    public static final String READ_AFTER_HEADER = "X-Read-After";
+
+    @Inject
+    ReadConsistency consistency;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        String method = requestContext.getMethod();
+
+        if (!HttpMethod.GET.equals(method) && !HttpMethod.HEAD.equals(method))
+            consistency.setPrimaryOnly(true);
+
+        String readAfter = requestContext.getHeaderString(READ_AFTER_HEADER);
+
+        if (readAfter != null) {
+            try {
+                consistency.setMinChangeId(Long.parseLong(readAfter.trim()));
+            } catch (NumberFormatException e) {
+                requestContext.abortWith(Response.status(Response.Status.BAD_REQUEST)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity(READ_AFTER_HEADER + " must be a change token")
+                        .build());
+            }
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        if (consistency.getLastChangeId() != null)
+            responseContext.getHeaders().putSingle(CHANGE_TOKEN_HEADER, String.valueOf(consistency.getLastChangeId()));
+    }
+}
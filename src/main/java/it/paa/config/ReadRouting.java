@@ -0,0 +1,96 @@
+package it.paa.config;
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.agroal.DataSource;
+import io.quarkus.arc.Arc;
+import io.quarkus.hibernate.orm.PersistenceUnit;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Status;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/*
+routing delle letture tra primario e replica in sola lettura. Si legge dal primario dentro una transazione
+(letture che precedono una scrittura), nelle richieste di scrittura, fuori da una richiesta HTTP (avvio, thread
+in background) e quando il client ha chiesto di leggere le proprie scritture con un token che la replica non ha
+ancora ricevuto; in tutti gli altri casi dalla replica
+ */
+@ApplicationScoped
+public class ReadRouting {
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Inject
+    @PersistenceUnit("replica")
+    EntityManager replicaEntityManager;
+
+    @Inject
+    @DataSource("replica")
+    AgroalDataSource replicaDataSource;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @Inject
+    ReadConsistency consistency;
+
+    public EntityManager reader() {
+        if (transactionRegistry.getTransactionStatus() != Status.STATUS_NO_TRANSACTION)
+            return entityManager;
+
+        if (!Arc.container().requestContext().isActive() || consistency.isPrimaryOnly())
+            return entityManager;
+
+        return replicaCaughtUp() ? replicaEntityManager : entityManager;
+    }
+
+    /*
+    letture lunghe in background (export): sempre dalla replica, che non deve vedere le scritture appena fatte, così
+    il primario non tiene occupata una connessione per tutta la durata. Senza autocommit il driver legge con un cursore
+    rispettando la fetch size; chi la usa chiude la transazione di sola lettura con rollback
+     */
+    public Connection bulkConnection() throws SQLException {
+        Connection connection = replicaDataSource.getConnection();
+        connection.setAutoCommit(false);
+
+        return connection;
+    }
+
+    /*
+    letture che si possono condividere tra richieste diverse (coalescenza, cache negativa): fuori da transazioni,
+    in una GET senza richiesta di read-your-writes
+     */
+    public boolean isShareable() {
+        return transactionRegistry.getTransactionStatus() == Status.STATUS_NO_TRANSACTION
+                && Arc.container().requestContext().isActive()
+                && !consistency.isPrimaryOnly()
+                && consistency.getMinChangeId() == null;
+    }
+
+    /*
+    read-your-writes: l'outbox è replicato con il resto del database, quindi la replica ha le scritture del client
+    se ha già l'evento del suo token. Si cerca proprio quella riga: gli id dell'outbox non seguono l'ordine dei commit,
+    quindi un id più alto già replicato non garantisce nulla. Il controllo si fa una volta per richiesta
+     */
+    private boolean replicaCaughtUp() {
+        Long minChangeId = consistency.getMinChangeId();
+
+        if (minChangeId == null)
+            return true;
+
+        if (consistency.getReplicaCaughtUp() == null) {
+            Long found = replicaEntityManager.createQuery("SELECT COUNT(c) FROM ChangeEvent c WHERE c.id = :id", Long.class)
+                    .setParameter("id", minChangeId)
+                    .getSingleResult();
+            consistency.setReplicaCaughtUp(found > 0);
+        }
+
+        return consistency.getReplicaCaughtUp();
+    }
+}
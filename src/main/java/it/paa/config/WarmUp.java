@@ -0,0 +1,309 @@
+package it.paa.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.StartupEvent;
+import it.paa.model.dto.warmup.WarmUpDTO;
+import it.paa.model.dto.warmup.WarmUpStepDTO;
+import it.paa.service.CustomerService;
+import it.paa.service.EmployeeService;
+import it.paa.service.ProjectService;
+import it.paa.service.RoleService;
+import it.paa.service.TechnologyService;
+import it.paa.util.FieldSelection;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/*
+riscaldamento all'avvio: prima che la readiness risponda UP le letture più frequenti (prima pagina dei get all interi
+e con fields=, get by id con ETag, analisi) vengono eseguite più volte contro il database reale e i risultati serializzati in json
+come in una richiesta. Così hibernate ha già interpretato le query HQL, jackson ha già costruito i serializer dei
+grafi delle entità, gli indici sono pieni e il JIT ha compilato i percorsi caldi prima del primo client.
+Ogni passo gira in un request context senza transazione, quindi legge dalla replica come le GET reali.
+Un riscaldamento fallito viene solo segnalato: il servizio diventa comunque pronto
+ */
+@ApplicationScoped
+public class WarmUp {
+    public enum Status {PENDING, RUNNING, COMPLETED, FAILED, DISABLED}
+
+    @ConfigProperty(name = "paa.warmup.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "paa.warmup.iterations", defaultValue = "20")
+    int iterations;
+
+    //righe lette da ogni get all: bastano a preparare piani e serializer, senza scorrere tabelle intere ad ogni giro
+    @ConfigProperty(name = "paa.warmup.page-size", defaultValue = "50")
+    int pageSize;
+
+    //oltre questo tempo ci si ferma ai giri già fatti
+    @ConfigProperty(name = "paa.warmup.max-duration", defaultValue = "PT60S")
+    Duration maxDuration;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    EmployeeService employeeService;
+
+    @Inject
+    CustomerService customerService;
+
+    @Inject
+    ProjectService projectService;
+
+    @Inject
+    RoleService roleService;
+
+    @Inject
+    TechnologyService technologyService;
+
+    private volatile Status status = Status.PENDING;
+    private volatile int iterationsDone;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime completedAt;
+    private volatile String error;
+    //scritto una volta sola a riscaldamento finito
+    private volatile WarmUpDTO result;
+
+    //un passo del riscaldamento: il valore restituito viene serializzato come nella risposta http
+    @FunctionalInterface
+    private interface Step {
+        Object run() throws Exception;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            status = Status.DISABLED;
+            return;
+        }
+
+        Thread thread = new Thread(this::run, "warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    //pronto quando il riscaldamento è finito, anche se è fallito o è disabilitato
+    public boolean isReady() {
+        return status != Status.PENDING && status != Status.RUNNING;
+    }
+
+    public WarmUpDTO report() {
+        if (result != null)
+            return result;
+
+        WarmUpDTO report = new WarmUpDTO();
+        report.setStatus(isReady() ? "UP" : "DOWN");
+        report.setWarmup(status.name());
+        report.setIterations(iterationsDone);
+        report.setStartedAt(startedAt);
+
+        return report;
+    }
+
+    private void run() {
+        status = Status.RUNNING;
+        startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+        long deadline = start + maxDuration.toNanos();
+
+        Map<String, long[]> timings = new LinkedHashMap<>();
+        long firstPass = 0;
+        long lastPass = 0;
+
+        try {
+            Map<String, Step> steps = steps();
+
+            //il primo giro si fa sempre, gli altri finché c'è tempo
+            for (int i = 0; i < iterations && (i == 0 || System.nanoTime() < deadline); i++) {
+                long pass = 0;
+
+                for (Map.Entry<String, Step> step : steps.entrySet()) {
+                    long elapsed = time(step.getValue());
+                    pass += elapsed;
+
+                    //[primo giro, ultimo giro]
+                    long[] timing = timings.computeIfAbsent(step.getKey(), name -> new long[]{elapsed, elapsed});
+                    timing[1] = elapsed;
+                }
+
+                if (i == 0)
+                    firstPass = pass;
+                lastPass = pass;
+                iterationsDone = i + 1;
+            }
+
+            status = Status.COMPLETED;
+        } catch (Exception e) {
+            Log.warnf("warm-up failed, service marked ready anyway: %s", e.getMessage());
+            error = e.getMessage();
+            status = Status.FAILED;
+        }
+
+        completedAt = LocalDateTime.now();
+        long durationMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        WarmUpDTO report = new WarmUpDTO();
+        report.setStatus("UP");
+        report.setWarmup(status.name());
+        report.setIterations(iterationsDone);
+        report.setStartedAt(startedAt);
+        report.setCompletedAt(completedAt);
+        report.setDurationMs(durationMillis);
+        report.setError(error);
+
+        if (iterationsDone > 0) {
+            List<WarmUpStepDTO> stepReports = new ArrayList<>();
+            timings.forEach((name, timing) -> stepReports.add(new WarmUpStepDTO(name, iterationsDone, millis(timing[0]), millis(timing[1]), speedup(timing[0], timing[1]))));
+
+            report.setFirstPassMs(millis(firstPass));
+            report.setLastPassMs(millis(lastPass));
+            report.setSpeedup(speedup(firstPass, lastPass));
+            report.setSteps(stepReports);
+
+            Log.infof("warm-up %s in %d ms (%d iterations): first pass %.1f ms, last pass %.1f ms",
+                    status.name().toLowerCase(Locale.ROOT), durationMillis, iterationsDone, millis(firstPass), millis(lastPass));
+        }
+
+        result = report;
+    }
+
+    /*
+    letture rappresentative per ogni entità: prima pagina del get all intera e con fields=, get by id intero e con fields=, ETag.
+    Gli id di esempio sono letti una volta sola; con una tabella vuota il get by id lavora su un id inesistente
+     */
+    private Map<String, Step> steps() {
+        Map<String, Long> sampleIds = inRequest(() -> {
+            Map<String, Long> ids = new LinkedHashMap<>();
+            for (String entity : List.of("Employee", "Customer", "Project", "Role", "Technology")) {
+                Long id = entityManager.createQuery("SELECT MIN(x.id) FROM " + entity + " x", Long.class)
+                        .getSingleResult();
+                ids.put(entity, id == null ? 0L : id);
+            }
+            return ids;
+        });
+
+        Long employeeId = sampleIds.get("Employee");
+        Long customerId = sampleIds.get("Customer");
+        Long projectId = sampleIds.get("Project");
+        Long roleId = sampleIds.get("Role");
+        Long technologyId = sampleIds.get("Technology");
+
+        FieldSelection employeeFields = FieldSelection.parse("id,name", EmployeeService.FIELDS);
+        FieldSelection customerFields = FieldSelection.parse("id,name", CustomerService.FIELDS);
+        FieldSelection projectFields = FieldSelection.parse("id,name", ProjectService.FIELDS);
+        FieldSelection roleFields = FieldSelection.parse("id,name", RoleService.FIELDS);
+        FieldSelection technologyFields = FieldSelection.parse("id,name", TechnologyService.FIELDS);
+
+        Map<String, Step> steps = new LinkedHashMap<>();
+
+        steps.put("employees", () -> employeeService.getFirst(pageSize));
+        steps.put("employees_fields", () -> employeeService.getFirst(employeeFields, pageSize));
+        steps.put("employee_by_id", () -> {
+            employeeService.findEntityTag(employeeId);
+            employeeService.findById(employeeId, employeeFields);
+            return employeeService.findById(employeeId).orElse(null);
+        });
+
+        steps.put("customers", () -> customerService.getFirst(pageSize));
+        steps.put("customers_fields", () -> customerService.getFirst(customerFields, pageSize));
+        steps.put("customer_by_id", () -> {
+            customerService.findEntityTag(customerId);
+            customerService.findById(customerId, customerFields);
+            return customerService.findById(customerId).orElse(null);
+        });
+
+        steps.put("projects", () -> projectService.getFirst(pageSize));
+        steps.put("projects_fields", () -> projectService.getFirst(projectFields, pageSize));
+        steps.put("project_by_id", () -> {
+            projectService.findEntityTag(projectId);
+            projectService.findById(projectId, projectFields);
+            return projectService.findById(projectId).orElse(null);
+        });
+
+        steps.put("roles", () -> {
+            roleService.getListEntityTag(null, null);
+            return roleService.getFirst(pageSize);
+        });
+        steps.put("roles_fields", () -> roleService.getFirst(roleFields, pageSize));
+        steps.put("role_by_id", () -> {
+            roleService.findEntityTag(roleId);
+            roleService.findById(roleId, roleFields);
+            return roleService.findById(roleId).orElse(null);
+        });
+
+        steps.put("technologies", () -> {
+            technologyService.getListEntityTag(null, null);
+            return technologyService.getFirst(pageSize);
+        });
+        steps.put("technologies_fields", () -> technologyService.getFirst(technologyFields, pageSize));
+        steps.put("technology_by_id", () -> {
+            technologyService.findEntityTag(technologyId);
+            technologyService.findById(technologyId, technologyFields);
+            return technologyService.findById(technologyId).orElse(null);
+        });
+
+        steps.put("most_requested_technologies", () -> technologyService.get5MostRequestedTechnology());
+        steps.put("salary_stats", () -> roleService.getSalaryStats());
+        steps.put("staffing_conflicts", () -> projectService.getConflicts());
+
+        return steps;
+    }
+
+    //un passo in una richiesta a sé, serializzazione compresa (le associazioni lazy si caricano lì)
+    private long time(Step step) {
+        return inRequest(() -> {
+            long start = System.nanoTime();
+
+            try {
+                Object value = step.run();
+                if (value != null)
+                    objectMapper.writeValueAsBytes(value);
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+
+            return System.nanoTime() - start;
+        });
+    }
+
+    private <T> T inRequest(Supplier<T> supplier) {
+        ManagedContext requestContext = Arc.container().requestContext();
+        requestContext.activate();
+
+        try {
+            return supplier.get();
+        } finally {
+            requestContext.terminate();
+        }
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    private static Double speedup(long first, long last) {
+        if (last == 0)
+            return null;
+
+        return Math.round(first * 100.0 / last) / 100.0;
+    }
+}
@@ -0,0 +1,62 @@
+package it.paa.event;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/*
+evento CDI lanciato dall'InvalidationBus quando un altro nodo ha salvato delle modifiche: tipo di oggetto
+(employee, customer, project, role, technology, project_employee per progetto, technology_employee per dipendente)
+-> id modificati. Con full=true le notifiche potrebbero essere andate perse (connessione di ascolto caduta)
+e va ricaricato tutto
+*/
+public class CacheInvalidationEvent {
+    private final Map<String, Set<Long>> keys;
+    private final boolean full;
+
+    private CacheInvalidationEvent(Map<String, Set<Long>> keys, boolean full) {
+        this.keys = keys;
+        this.full = full;
+    }
+
+    public static CacheInvalidationEvent of(Map<String, Set<Long>> keys) {
+        Map<String, Set<Long>> copy = new HashMap<>();
+        keys.forEach((type, ids) -> copy.put(type, Set.copyOf(ids)));
+
+        return new CacheInvalidationEvent(copy, false);
+    }
+
+    public static CacheInvalidationEvent full() {
+        return new CacheInvalidationEvent(Map.of(), true);
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public Set<Long> getIds(String type) {
+        return keys.getOrDefault(type, Set.of());
+    }
+
+    //id di più tipi insieme, es. dipendenti modificati e dipendenti con tecnologie cambiate
+    public Set<Long> getIds(String... types) {
+        Set<Long> ids = new HashSet<>();
+
+        for (String type : types)
+            ids.addAll(getIds(type));
+
+        return ids;
+    }
+
+    public boolean affects(String... types) {
+        if (full)
+            return true;
+
+        for (String type : types)
+            if (keys.containsKey(type))
+                return true;
+
+        return false;
+    }
+}
@@ -0,0 +1,208 @@
+package it.paa.event;
+
+import io.quarkus.logging.Log;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import it.paa.model.entity.ChangeEvent;
+import it.paa.service.ChangeService;
+import it.paa.util.ChangePosition;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+distribuzione degli eventi dell'outbox ai client collegati in SSE. Un solo thread legge l'outbox in ordine di posizione
+fino alla watermark (vedi ChangePosition) e passa le righe nuove ai client: viene svegliato dai commit locali e dalle
+notifiche degli altri nodi, e comunque rilegge ogni secondo, così arrivano anche le modifiche scritte da altre istanze
+e nessuna riga viene saltata perché ha fatto commit dopo una riga con id più alto. Ogni client ha un buffer limitato:
+gli eventi vengono inviati uno alla volta (il successivo quando l'invio precedente è completato), così un client lento
+non blocca gli altri né chi scrive; se il buffer si riempie il client viene scollegato e riprende dall'ultimo id ricevuto
+(Last-Event-ID). La consegna è at-least-once: dopo una ripresa un evento può arrivare due volte, i client usano l'id
+ */
+@ApplicationScoped
+public class ChangeFeed {
+    //eventi in attesa per client oltre i quali il client viene scollegato
+    public static final int BUFFER_SIZE = 1000;
+    //attesa massima tra due letture dell'outbox se nessuno sveglia il thread
+    private static final long POLL_MILLIS = 1000;
+
+    @Inject
+    ChangeService changeService;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Semaphore wakeUp = new Semaphore(0);
+
+    private volatile boolean running;
+    private Thread poller;
+    //ultima posizione passata ai client, usata solo dal thread di lettura
+    private ChangePosition position;
+
+    void onStart(@Observes StartupEvent event) {
+        running = true;
+        poller = new Thread(this::poll, "change-feed");
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        running = false;
+
+        if (poller != null)
+            poller.interrupt();
+    }
+
+    //commit locale: si legge subito invece di aspettare il prossimo giro
+    public void wakeUp() {
+        wakeUp.release();
+    }
+
+    //modifiche di un altro nodo (LISTEN/NOTIFY)
+    void onRemoteChange(@Observes CacheInvalidationEvent event) {
+        wakeUp();
+    }
+
+    /*
+    il client viene registrato subito, così gli eventi che arrivano durante il replay dal database finiscono nel buffer;
+    vengono inviati solo dopo start()
+     */
+    public Subscriber subscribe(SseEventSink sink, Sse sse) {
+        Subscriber subscriber = new Subscriber(sink, sse);
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    private void poll() {
+        while (running) {
+            try {
+                wakeUp.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                wakeUp.drainPermits();
+                QuarkusTransaction.requiringNew().run(this::publishNew);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                if (!running)
+                    return;
+
+                Log.warnf("change feed poll failed: %s", e.getMessage());
+            }
+        }
+    }
+
+    /*
+    righe nuove fino alla watermark letta prima delle righe. Senza client collegati si avanza e basta: chi si collega
+    dopo con una posizione riceve le righe già visibili dal replay
+     */
+    private void publishNew() {
+        ChangePosition watermark = changeService.getWatermark();
+
+        if (position == null || subscribers.isEmpty()) {
+            position = position == null ? watermark : position.max(watermark);
+            return;
+        }
+
+        while (true) {
+            List<ChangeEvent> changes = changeService.getSince(position, watermark, ChangeService.MAX_PAGE_SIZE);
+
+            for (ChangeEvent change : changes) {
+                subscribers.forEach(subscriber -> subscriber.offer(change));
+                position = ChangePosition.of(change);
+            }
+
+            if (changes.size() < ChangeService.MAX_PAGE_SIZE) {
+                position = position.max(watermark);
+                return;
+            }
+        }
+    }
+
+    public static OutboundSseEvent toSse(Sse sse, ChangeEvent changeEvent) {
+        return sse.newEventBuilder()
+                .id(ChangePosition.of(changeEvent).toString())
+                .name(changeEvent.getEntityType())
+                .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                .data(ChangeEvent.class, changeEvent)
+                .build();
+    }
+
+    public class Subscriber {
+        private final SseEventSink sink;
+        private final Sse sse;
+        private final ArrayBlockingQueue<ChangeEvent> buffer = new ArrayBlockingQueue<>(BUFFER_SIZE);
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile boolean started = false;
+        //ultima posizione inviata dal replay: gli eventi del buffer fino a lì sono doppioni
+        private volatile ChangePosition replayed;
+
+        private Subscriber(SseEventSink sink, Sse sse) {
+            this.sink = sink;
+            this.sse = sse;
+        }
+
+        //fine del replay: da qui si inviano gli eventi del buffer successivi all'ultimo inviato (null senza replay)
+        public void start(ChangePosition replayed) {
+            this.replayed = replayed;
+            started = true;
+            drain();
+        }
+
+        public void close() {
+            subscribers.remove(this);
+
+            if (!sink.isClosed())
+                sink.close();
+        }
+
+        private void offer(ChangeEvent changeEvent) {
+            if (!buffer.offer(changeEvent)) {
+                //client troppo lento: si scollega e riprenderà con Last-Event-ID
+                close();
+                return;
+            }
+
+            drain();
+        }
+
+        private void drain() {
+            while (started && !buffer.isEmpty()) {
+                if (sink.isClosed()) {
+                    close();
+                    return;
+                }
+
+                //un solo invio in corso per client
+                if (!sending.compareAndSet(false, true))
+                    return;
+
+                ChangeEvent next = buffer.poll();
+
+                if (next == null || (replayed != null && ChangePosition.of(next).compareTo(replayed) <= 0)) {
+                    sending.set(false);
+                    continue;
+                }
+
+                sink.send(toSse(sse, next)).whenComplete((result, error) -> {
+                    sending.set(false);
+
+                    if (error != null)
+                        close();
+                    else
+                        drain();
+                });
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package it.paa.event;
+
+import io.quarkus.arc.Arc;
+import it.paa.config.ReadConsistency;
+import it.paa.model.entity.ChangeEvent;
+import it.paa.model.entity.Customer;
+import it.paa.model.entity.Employee;
+import it.paa.model.entity.Project;
+import it.paa.model.entity.Role;
+import it.paa.model.entity.Technology;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+/*
+outbox transazionale: gli eventi dei service vengono osservati durante la transazione (IN_PROGRESS)
+e salvati in change_events nella stessa transazione della modifica, con il txid della transazione che dà la posizione
+nel feed. Dopo il commit il ChangeFeed viene svegliato per leggere le righe nuove; se la transazione fallisce non resta nulla
+ */
+@ApplicationScoped
+public class ChangeOutbox {
+    //txid della transazione corrente, letto una volta sola per transazione
+    private static final String TX_ID_RESOURCE = "it.paa.event.txId";
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @Inject
+    ChangeFeed changeFeed;
+
+    @Inject
+    ReadConsistency consistency;
+
+    void onEntityChange(@Observes(during = TransactionPhase.IN_PROGRESS) EntityChangeEvent event) {
+        record(new ChangeEvent(entityType(event.getEntity()), event.getId(), null, event.getOperation().name(), version(event.getEntity())));
+    }
+
+    void onStaffingChange(@Observes(during = TransactionPhase.IN_PROGRESS) StaffingChangeEvent event) {
+        record(new ChangeEvent("project_employee", event.getProjectId(), event.getEmployeeId(), event.isAdded() ? "ADD" : "REMOVE", null));
+    }
+
+    void onSkillChange(@Observes(during = TransactionPhase.IN_PROGRESS) SkillChangeEvent event) {
+        record(new ChangeEvent("technology_employee", event.getTechnologyId(), event.getEmployeeId(), event.isAdded() ? "ADD" : "REMOVE", null));
+    }
+
+    void onSalaryFloor(@Observes(during = TransactionPhase.IN_PROGRESS) SalaryFloorEvent event) {
+        record(new ChangeEvent("role", event.getRoleId(), null, "SALARY_FLOOR", null));
+    }
+
+    private void record(ChangeEvent changeEvent) {
+        changeEvent.setTxId(currentTxId());
+        entityManager.persist(changeEvent);
+
+        //token per leggere le proprie scritture (header X-Change-Token)
+        if (Arc.container().requestContext().isActive())
+            consistency.setLastChangeId(changeEvent.getId());
+
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED)
+                    changeFeed.wakeUp();
+            }
+        });
+    }
+
+    private long currentTxId() {
+        Object txId = transactionRegistry.getResource(TX_ID_RESOURCE);
+
+        if (txId == null) {
+            txId = ((Number) entityManager.createNativeQuery("SELECT txid_current()").getSingleResult()).longValue();
+            transactionRegistry.putResource(TX_ID_RESOURCE, txId);
+        }
+
+        return (Long) txId;
+    }
+
+    public static String entityType(Object entity) {
+        if (entity instanceof Employee)
+            return "employee";
+        if (entity instanceof Customer)
+            return "customer";
+        if (entity instanceof Project)
+            return "project";
+        if (entity instanceof Role)
+            return "role";
+        if (entity instanceof Technology)
+            return "technology";
+
+        return entity.getClass().getSimpleName().toLowerCase();
+    }
+
+    private static Long version(Object entity) {
+        if (entity instanceof Employee employee)
+            return employee.getVersion();
+        if (entity instanceof Customer customer)
+            return customer.getVersion();
+        if (entity instanceof Project project)
+            return project.getVersion();
+        if (entity instanceof Role role)
+            return role.getVersion();
+        if (entity instanceof Technology technology)
+            return technology.getVersion();
+
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package it.paa.event;
+
+/*
+evento CDI lanciato dai service ad ogni scrittura di un'entità (dopo il flush, dentro la transazione).
+Gli indici in memoria lo osservano con TransactionPhase.AFTER_SUCCESS, così si aggiornano solo
+se la transazione va a buon fine
+*/
+public class EntityChangeEvent {
+    public enum Operation {CREATE, UPDATE, DELETE}
+
+    private final Object entity;
+    private final Long id;
+    private final Operation operation;
+
+    public EntityChangeEvent(Object entity, Long id, Operation operation) {
+        this.entity = entity;
+        this.id = id;
+        this.operation = operation;
+    }
+
+    public Object getEntity() {
+        return entity;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+}
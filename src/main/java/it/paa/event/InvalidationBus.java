@@ -0,0 +1,158 @@
+package it.paa.event;
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.logging.Log;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/*
+invalidazione delle cache in memoria tra più istanze del servizio con LISTEN/NOTIFY di PostgreSQL, senza altra
+infrastruttura. Ogni scrittura fa pg_notify nella sua transazione: postgres consegna la notifica solo al commit
+(e una volta sola per payload uguali nella stessa transazione). Ogni nodo tiene una connessione dedicata in LISTEN,
+raccoglie le notifiche degli altri nodi e lancia un CacheInvalidationEvent con gli id modificati, che gli indici
+usano per ricaricare solo quegli oggetti. Se la connessione cade le notifiche nel frattempo sono perse: alla
+riconnessione si lancia un'invalidazione completa
+ */
+@ApplicationScoped
+public class InvalidationBus {
+    public static final String CHANNEL = "paa_invalidation";
+    //attesa massima di una poll, le notifiche arrivate insieme diventano un solo evento
+    private static final int POLL_MILLIS = 500;
+    private static final long RECONNECT_MILLIS = 1000;
+
+    //le notifiche di questo nodo sono già state gestite dagli eventi locali
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    @Inject
+    Event<CacheInvalidationEvent> invalidationEvent;
+
+    private volatile boolean running;
+    private Thread listener;
+
+    void onEntityChange(@Observes(during = TransactionPhase.IN_PROGRESS) EntityChangeEvent event) {
+        notify(ChangeOutbox.entityType(event.getEntity()), event.getId());
+    }
+
+    void onStaffingChange(@Observes(during = TransactionPhase.IN_PROGRESS) StaffingChangeEvent event) {
+        notify("project_employee", event.getProjectId());
+    }
+
+    void onSkillChange(@Observes(during = TransactionPhase.IN_PROGRESS) SkillChangeEvent event) {
+        notify("technology_employee", event.getEmployeeId());
+    }
+
+    void onSalaryFloor(@Observes(during = TransactionPhase.IN_PROGRESS) SalaryFloorEvent event) {
+        notify("role", event.getRoleId());
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        running = true;
+        listener = new Thread(this::listen, "invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        running = false;
+
+        if (listener != null)
+            listener.interrupt();
+    }
+
+    //payload: nodo:tipo:id
+    private void notify(String type, Long id) {
+        entityManager.createNativeQuery("SELECT pg_notify(:channel, :payload)")
+                .setParameter("channel", CHANNEL)
+                .setParameter("payload", nodeId + ":" + type + ":" + id)
+                .getSingleResult();
+    }
+
+    private void listen() {
+        boolean reconnected = false;
+
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+
+                //le modifiche degli altri nodi mentre non si era in ascolto non sono mai arrivate
+                if (reconnected)
+                    fire(CacheInvalidationEvent.full());
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_MILLIS);
+
+                    if (notifications != null && notifications.length > 0)
+                        dispatch(notifications);
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running)
+                    return;
+
+                Log.warnf("cache invalidation listener disconnected: %s", e.getMessage());
+                reconnected = true;
+
+                try {
+                    Thread.sleep(RECONNECT_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(PGNotification[] notifications) {
+        Map<String, Set<Long>> keys = new HashMap<>();
+
+        for (PGNotification notification : notifications) {
+            String[] parts = notification.getParameter().split(":");
+
+            if (parts.length != 3 || parts[0].equals(nodeId))
+                continue;
+
+            try {
+                keys.computeIfAbsent(parts[1], type -> new HashSet<>()).add(Long.parseLong(parts[2]));
+            } catch (NumberFormatException e) {
+                Log.warnf("invalid cache invalidation payload: %s", notification.getParameter());
+            }
+        }
+
+        if (!keys.isEmpty())
+            fire(CacheInvalidationEvent.of(keys));
+    }
+
+    //gli observer ricaricano dal database, quindi girano in una transazione
+    private void fire(CacheInvalidationEvent event) {
+        QuarkusTransaction.requiringNew().run(() -> invalidationEvent.fire(event));
+    }
+}
@@ -0,0 +1,23 @@
+package it.paa.event;
+
+/*
+evento CDI lanciato da RoleService dopo l'update massivo degli stipendi sotto il minimo del ruolo:
+l'update non passa dalle entità, quindi gli indici in memoria vengono avvisati con questo evento dopo il commit
+*/
+public class SalaryFloorEvent {
+    private final Long roleId;
+    private final Integer minSalary;
+
+    public SalaryFloorEvent(Long roleId, Integer minSalary) {
+        this.roleId = roleId;
+        this.minSalary = minSalary;
+    }
+
+    public Long getRoleId() {
+        return roleId;
+    }
+
+    public Integer getMinSalary() {
+        return minSalary;
+    }
+}
@@ -0,0 +1,29 @@
+package it.paa.event;
+
+/*
+evento CDI lanciato da EmployeeService quando una tecnologia viene aggiunta o rimossa da un dipendente
+(associazione technology_employee), osservato dagli indici in memoria dopo il commit
+*/
+public class SkillChangeEvent {
+    private final Long employeeId;
+    private final Long technologyId;
+    private final boolean added;
+
+    public SkillChangeEvent(Long employeeId, Long technologyId, boolean added) {
+        this.employeeId = employeeId;
+        this.technologyId = technologyId;
+        this.added = added;
+    }
+
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    public Long getTechnologyId() {
+        return technologyId;
+    }
+
+    public boolean isAdded() {
+        return added;
+    }
+}
@@ -0,0 +1,29 @@
+package it.paa.event;
+
+/*
+evento CDI lanciato da ProjectService quando un dipendente viene aggiunto o rimosso da un progetto
+(associazione project_employee), osservato dagli indici in memoria dopo il commit
+*/
+public class StaffingChangeEvent {
+    private final Long projectId;
+    private final Long employeeId;
+    private final boolean added;
+
+    public StaffingChangeEvent(Long projectId, Long employeeId, boolean added) {
+        this.projectId = projectId;
+        this.employeeId = employeeId;
+        this.added = added;
+    }
+
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    public boolean isAdded() {
+        return added;
+    }
+}
@@ -0,0 +1,223 @@
+package it.paa.index;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import it.paa.event.CacheInvalidationEvent;
+import it.paa.event.EntityChangeEvent;
+import it.paa.event.SkillChangeEvent;
+import it.paa.model.dto.technology.CoOccurrenceDTO;
+import it.paa.model.entity.Employee;
+import it.paa.model.entity.Technology;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+matrice sparsa e simmetrica di co-occorrenza delle tecnologie (quanti dipendenti hanno entrambe le tecnologie):
+si salva solo la metà con id minore -> id maggiore e solo le coppie con conteggio > 0.
+Quando un dipendente acquisisce o perde una tecnologia si aggiornano solo le coppie con le altre sue tecnologie,
+O(tecnologie del dipendente), invece di rifare la self join su technology_employee.
+Il reload costruisce una matrice nuova e la pubblica con un solo assegnamento volatile
+ */
+@ApplicationScoped
+public class CoOccurrenceIndex {
+    private volatile State state = new State();
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Transactional
+    void onStart(@Observes StartupEvent event) {
+        reload();
+    }
+
+    synchronized void reload() {
+        State fresh = new State();
+
+        entityManager.createQuery("SELECT t.id, t.name FROM Technology t", Object[].class)
+                .getResultStream()
+                .forEach(row -> fresh.names.put((Long) row[0], (String) row[1]));
+
+        entityManager.createQuery("SELECT e.id, t.id FROM Employee e JOIN e.technologiesList t", Object[].class)
+                .getResultStream()
+                .forEach(row -> fresh.add((Long) row[0], (Long) row[1]));
+
+        state = fresh;
+    }
+
+    /*
+    gli observer AFTER_SUCCESS di transazioni diverse possono girare in ordine diverso da quello dei commit:
+    invece di applicare l'evento si rileggono dal database le tecnologie attuali del dipendente (o la tecnologia),
+    in una transazione nuova e sotto lo stesso lock dell'aggiornamento, così l'ultimo observer lascia la matrice
+    allineata all'ultimo commit. Le modifiche di un dipendente contano solo se lo cancellano
+     */
+    synchronized void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) EntityChangeEvent event) {
+        if (event.getEntity() instanceof Employee && event.getOperation() == EntityChangeEvent.Operation.DELETE)
+            QuarkusTransaction.requiringNew().run(() -> refreshEmployees(Set.of(event.getId())));
+        else if (event.getEntity() instanceof Technology)
+            QuarkusTransaction.requiringNew().run(() -> refreshTechnologies(Set.of(event.getId())));
+    }
+
+    synchronized void onSkillChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) SkillChangeEvent event) {
+        QuarkusTransaction.requiringNew().run(() -> refreshEmployees(Set.of(event.getEmployeeId())));
+    }
+
+    //modifiche di un altro nodo: si rileggono le tecnologie indicate e le tecnologie dei dipendenti toccati
+    synchronized void onRemoteChange(@Observes CacheInvalidationEvent event) {
+        if (event.isFull()) {
+            reload();
+            return;
+        }
+
+        Set<Long> technologyIds = event.getIds("technology");
+        if (!technologyIds.isEmpty())
+            refreshTechnologies(technologyIds);
+
+        Set<Long> employeeIds = event.getIds("employee", "technology_employee");
+        if (!employeeIds.isEmpty())
+            refreshEmployees(employeeIds);
+    }
+
+    //rilettura dei nomi delle tecnologie indicate; quelle non trovate sono state cancellate con le loro righe di technology_employee
+    private void refreshTechnologies(Set<Long> ids) {
+        State state = this.state;
+        Set<Long> technologyIds = new HashSet<>(ids);
+        entityManager.createQuery("SELECT t.id, t.name FROM Technology t WHERE t.id IN :ids", Object[].class)
+                .setParameter("ids", technologyIds)
+                .getResultStream()
+                .forEach(row -> {
+                    state.names.put((Long) row[0], (String) row[1]);
+                    technologyIds.remove((Long) row[0]);
+                });
+        technologyIds.forEach(id -> {
+            state.names.remove(id);
+            new ArrayList<>(state.skillsByEmployee.keySet()).forEach(employeeId -> state.remove(employeeId, id));
+        });
+    }
+
+    //rilettura delle tecnologie dei dipendenti indicati, applicando solo la differenza con quelle in memoria
+    private void refreshEmployees(Set<Long> employeeIds) {
+        State state = this.state;
+        Map<Long, Set<Long>> current = new HashMap<>();
+        entityManager.createQuery("SELECT e.id, t.id FROM Employee e JOIN e.technologiesList t WHERE e.id IN :ids", Object[].class)
+                .setParameter("ids", employeeIds)
+                .getResultStream()
+                .forEach(row -> current.computeIfAbsent((Long) row[0], id -> new HashSet<>()).add((Long) row[1]));
+
+        employeeIds.forEach(employeeId -> {
+            Set<Long> expected = current.getOrDefault(employeeId, Set.of());
+
+            new ArrayList<>(state.skillsByEmployee.getOrDefault(employeeId, Set.of())).forEach(technologyId -> {
+                if (!expected.contains(technologyId))
+                    state.remove(employeeId, technologyId);
+            });
+            expected.forEach(technologyId -> state.add(employeeId, technologyId));
+        });
+    }
+
+    /*
+    le top coppie per numero di dipendenti (tutte o solo quelle di una tecnologia), con una heap di dimensione top
+     */
+    public List<CoOccurrenceDTO> top(int top, Long technologyId) {
+        Comparator<long[]> byCount = Comparator.<long[]>comparingLong(pair -> pair[2])
+                .thenComparing(pair -> -pair[0])
+                .thenComparing(pair -> -pair[1]);
+        PriorityQueue<long[]> heap = new PriorityQueue<>(byCount);
+        State state = this.state;
+
+        state.counts.forEach((first, row) -> row.forEach((second, count) -> {
+            if (technologyId != null && !technologyId.equals(first) && !technologyId.equals(second))
+                return;
+
+            heap.add(new long[]{first, second, count});
+
+            if (heap.size() > top)
+                heap.poll();
+        }));
+
+        List<long[]> pairs = new ArrayList<>(heap);
+        pairs.sort(byCount.reversed());
+
+        return pairs.stream()
+                .map(pair -> {
+                    //con il filtro per tecnologia, quella richiesta è sempre la prima della coppia
+                    boolean swap = technologyId != null && technologyId == pair[1];
+
+                    CoOccurrenceDTO coOccurrence = new CoOccurrenceDTO();
+                    coOccurrence.setTechnologyId(swap ? pair[1] : pair[0]);
+                    coOccurrence.setTechnologyName(state.names.get(coOccurrence.getTechnologyId()));
+                    coOccurrence.setOtherTechnologyId(swap ? pair[0] : pair[1]);
+                    coOccurrence.setOtherTechnologyName(state.names.get(coOccurrence.getOtherTechnologyId()));
+                    coOccurrence.setEmployeesCount((int) pair[2]);
+                    return coOccurrence;
+                })
+                .toList();
+    }
+
+    public boolean containsTechnology(Long technologyId) {
+        return state.names.containsKey(technologyId);
+    }
+
+    /*
+    contenuto dell'indice: modificato solo dalle scritture sincronizzate, un reload ne costruisce uno nuovo
+    invece di svuotare quello pubblicato
+     */
+    private static class State {
+        private final Map<Long, Map<Long, Integer>> counts = new ConcurrentHashMap<>();
+        private final Map<Long, String> names = new ConcurrentHashMap<>();
+        private final Map<Long, Set<Long>> skillsByEmployee = new HashMap<>();
+
+        private void add(Long employeeId, Long technologyId) {
+            Set<Long> skills = skillsByEmployee.computeIfAbsent(employeeId, id -> new HashSet<>());
+
+            if (!skills.add(technologyId))
+                return;
+
+            for (Long other : skills)
+                if (!other.equals(technologyId))
+                    increment(technologyId, other, 1);
+        }
+
+        private void remove(Long employeeId, Long technologyId) {
+            Set<Long> skills = skillsByEmployee.get(employeeId);
+
+            if (skills == null || !skills.remove(technologyId))
+                return;
+
+            for (Long other : skills)
+                increment(technologyId, other, -1);
+
+            if (skills.isEmpty())
+                skillsByEmployee.remove(employeeId);
+        }
+
+        private void increment(Long technologyId, Long otherId, int delta) {
+            Long first = Math.min(technologyId, otherId);
+            Long second = Math.max(technologyId, otherId);
+
+            Map<Long, Integer> row = counts.computeIfAbsent(first, id -> new ConcurrentHashMap<>());
+            Integer count = row.merge(second, delta, Integer::sum);
+
+            //matrice sparsa: le coppie a zero non vengono tenute
+            if (count != null && count <= 0) {
+                row.remove(second);
+
+                if (row.isEmpty())
+                    counts.remove(first);
+            }
+        }
+    }
+}
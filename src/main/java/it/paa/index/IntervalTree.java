@@ -0,0 +1,81 @@
+package it.paa.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+interval tree statico (estremi inclusi) costruito su un array ordinato per inizio: l'albero è implicito
+(radice = elemento centrale di ogni sottoarray) e ogni nodo conosce la fine massima del suo sottoalbero,
+così la ricerca degli intervalli che si sovrappongono costa O(log n + k).
+È immutabile: quando cambiano gli intervalli si ricostruisce, quindi le letture non hanno bisogno di lock
+ */
+public class IntervalTree {
+    private final long[] ids;
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEnds;
+
+    //intervals: {id, inizio, fine}
+    public IntervalTree(List<long[]> intervals) {
+        long[][] sorted = intervals.toArray(new long[0][]);
+        Arrays.sort(sorted, Comparator.comparingLong((long[] interval) -> interval[1]).thenComparingLong(interval -> interval[0]));
+
+        ids = new long[sorted.length];
+        starts = new long[sorted.length];
+        ends = new long[sorted.length];
+        maxEnds = new long[sorted.length];
+
+        for (int i = 0; i < sorted.length; i++) {
+            ids[i] = sorted[i][0];
+            starts[i] = sorted[i][1];
+            ends[i] = sorted[i][2];
+        }
+
+        build(0, sorted.length - 1);
+    }
+
+    //id di tutti gli intervalli, in ordine di inizio
+    public List<Long> ids() {
+        return Arrays.stream(ids).boxed().toList();
+    }
+
+    //id degli intervalli che si sovrappongono a [start, end]
+    public List<Long> overlapping(long start, long end) {
+        List<Long> results = new ArrayList<>();
+        search(0, ids.length - 1, start, end, results);
+        return results;
+    }
+
+    private long build(int low, int high) {
+        if (low > high)
+            return Long.MIN_VALUE;
+
+        int mid = (low + high) >>> 1;
+        maxEnds[mid] = Math.max(ends[mid], Math.max(build(low, mid - 1), build(mid + 1, high)));
+        return maxEnds[mid];
+    }
+
+    private void search(int low, int high, long start, long end, List<Long> results) {
+        if (low > high)
+            return;
+
+        int mid = (low + high) >>> 1;
+
+        //nessun intervallo del sottoalbero finisce dopo l'inizio cercato
+        if (maxEnds[mid] < start)
+            return;
+
+        search(low, mid - 1, start, end, results);
+
+        //a destra gli inizi sono tutti >= starts[mid]: se questo inizia dopo la fine cercata, anche loro
+        if (starts[mid] > end)
+            return;
+
+        if (ends[mid] >= start)
+            results.add(ids[mid]);
+
+        search(mid + 1, high, start, end, results);
+    }
+}
@@ -0,0 +1,74 @@
+package it.paa.index;
+
+import it.paa.event.CacheInvalidationEvent;
+import it.paa.event.ChangeOutbox;
+import it.paa.event.EntityChangeEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+cache negativa dei get by id: gli id non trovati restano "mancanti" per pochi secondi, così le richieste ripetute
+per id inesistenti non arrivano al database. Un id può comparire solo con una create (gli id vengono dalla sequence),
+quindi la create lo toglie subito, anche quella di un altro nodo
+ */
+@ApplicationScoped
+public class MissingIdCache {
+    public static final long TTL_MILLIS = 5000;
+    //oltre questo numero di id non se ne aggiungono altri finché non scadono
+    private static final int MAX_ENTRIES = 10000;
+    private static final List<String> TYPES = List.of("employee", "customer", "project", "role", "technology");
+
+    //tipo:id -> scadenza
+    private final Map<String, Long> expiries = new ConcurrentHashMap<>();
+
+    public boolean isMissing(String type, Long id) {
+        String key = key(type, id);
+        Long expiry = expiries.get(key);
+
+        if (expiry == null)
+            return false;
+
+        if (expiry < System.currentTimeMillis()) {
+            expiries.remove(key, expiry);
+            return false;
+        }
+
+        return true;
+    }
+
+    public void markMissing(String type, Long id) {
+        if (expiries.size() >= MAX_ENTRIES) {
+            long now = System.currentTimeMillis();
+            expiries.values().removeIf(expiry -> expiry < now);
+
+            if (expiries.size() >= MAX_ENTRIES)
+                return;
+        }
+
+        expiries.put(key(type, id), System.currentTimeMillis() + TTL_MILLIS);
+    }
+
+    void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) EntityChangeEvent event) {
+        if (event.getOperation() == EntityChangeEvent.Operation.CREATE)
+            expiries.remove(key(ChangeOutbox.entityType(event.getEntity()), event.getId()));
+    }
+
+    //create di un altro nodo
+    void onRemoteChange(@Observes CacheInvalidationEvent event) {
+        if (event.isFull()) {
+            expiries.clear();
+            return;
+        }
+
+        TYPES.forEach(type -> event.getIds(type).forEach(id -> expiries.remove(key(type, id))));
+    }
+
+    private static String key(String type, Long id) {
+        return type + ":" + id;
+    }
+}
@@ -0,0 +1,67 @@
+package it.paa.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/*
+indice in memoria per la ricerca per prefisso (autocomplete): chiavi in minuscolo ordinate in una skip list,
+quindi una ricerca è una tailMap dal prefisso che si ferma alla prima chiave che non lo inizia
+o quando si raggiunge il limite. Le letture non prendono lock, le scritture sono sincronizzate
+ */
+public class PrefixIndex<T> {
+    //chiave -> (id -> valore), più oggetti possono avere la stessa chiave (es. stesso cognome)
+    private final ConcurrentSkipListMap<String, NavigableMap<Long, T>> byKey = new ConcurrentSkipListMap<>();
+    private final Map<Long, String> keyById = new ConcurrentHashMap<>();
+
+    public synchronized void put(Long id, String key, T value) {
+        remove(id);
+
+        if (key == null)
+            return;
+
+        String normalized = normalize(key);
+        byKey.computeIfAbsent(normalized, k -> new ConcurrentSkipListMap<>()).put(id, value);
+        keyById.put(id, normalized);
+    }
+
+    public synchronized void remove(Long id) {
+        String key = keyById.remove(id);
+
+        if (key == null)
+            return;
+
+        NavigableMap<Long, T> values = byKey.get(key);
+        values.remove(id);
+
+        if (values.isEmpty())
+            byKey.remove(key);
+    }
+
+    public List<T> search(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        List<T> results = new ArrayList<>(limit);
+
+        for (Map.Entry<String, NavigableMap<Long, T>> entry : byKey.tailMap(normalized).entrySet()) {
+            if (!entry.getKey().startsWith(normalized))
+                break;
+
+            for (T value : entry.getValue().values()) {
+                results.add(value);
+
+                if (results.size() == limit)
+                    return results;
+            }
+        }
+
+        return results;
+    }
+
+    private static String normalize(String key) {
+        return key.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,107 @@
+package it.paa.index;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+sketch dei quantili con errore relativo garantito (stile DDSketch): ogni valore positivo finisce nel bucket
+ceil(log_gamma(v)), con gamma = (1 + a) / (1 - a), e il quantile restituito ha un errore relativo al massimo a.
+I bucket sono contatori, quindi si possono anche togliere valori (update e delete dei dipendenti) e due sketch
+si uniscono sommando i bucket. Conteggio, somma e media sono esatti; min e max sono stimati dai bucket estremi
+con lo stesso errore relativo (dopo una rimozione il valore esatto non sarebbe più ricostruibile).
+Non è thread safe: la sincronizzazione è di chi lo usa
+ */
+public class QuantileSketch {
+    //errore relativo dei quantili (1%)
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private final TreeMap<Integer, Long> bins = new TreeMap<>();
+    private long zeroCount = 0;
+    private long count = 0;
+    private double sum = 0;
+
+    public void add(double value) {
+        update(value, 1);
+    }
+
+    public void remove(double value) {
+        update(value, -1);
+    }
+
+    public void merge(QuantileSketch other) {
+        other.bins.forEach((index, binCount) -> bins.merge(index, binCount, Long::sum));
+        zeroCount += other.zeroCount;
+        count += other.count;
+        sum += other.sum;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    public double getMin() {
+        if (zeroCount > 0 || bins.isEmpty())
+            return 0;
+
+        return value(bins.firstKey());
+    }
+
+    public double getMax() {
+        if (bins.isEmpty())
+            return 0;
+
+        return value(bins.lastKey());
+    }
+
+    //quantile q (0..1) come rango q * (count - 1), al bucket che lo contiene
+    public double getQuantile(double q) {
+        if (count == 0)
+            return 0;
+
+        long rank = (long) (q * (count - 1));
+
+        if (rank < zeroCount)
+            return 0;
+
+        long seen = zeroCount;
+        for (Map.Entry<Integer, Long> bin : bins.entrySet()) {
+            seen += bin.getValue();
+
+            if (seen > rank)
+                return value(bin.getKey());
+        }
+
+        return value(bins.lastKey());
+    }
+
+    private void update(double value, long delta) {
+        if (value < 0)
+            throw new IllegalArgumentException("negative values are not supported");
+
+        count += delta;
+        sum += delta * value;
+
+        if (value == 0) {
+            zeroCount += delta;
+            return;
+        }
+
+        int index = (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+        Long binCount = bins.merge(index, delta, Long::sum);
+
+        if (binCount != null && binCount <= 0)
+            bins.remove(index);
+    }
+
+    //valore rappresentativo del bucket: il punto con lo stesso errore relativo verso i due estremi
+    private static double value(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+}
@@ -0,0 +1,214 @@
+package it.paa.index;
+
+import io.quarkus.runtime.StartupEvent;
+import it.paa.event.CacheInvalidationEvent;
+import it.paa.event.EntityChangeEvent;
+import it.paa.event.SalaryFloorEvent;
+import it.paa.model.dto.role.SalaryReportDTO;
+import it.paa.model.dto.role.SalaryStatsDTO;
+import it.paa.model.entity.Employee;
+import it.paa.model.entity.Role;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/*
+statistiche degli stipendi per ruolo con uno sketch dei quantili per ruolo: ogni create/update/delete di un dipendente
+toglie il vecchio stipendio dallo sketch del vecchio ruolo e aggiunge il nuovo, senza ordinare gli stipendi ad ogni richiesta.
+Il totale è l'unione degli sketch dei ruoli. La ricostruzione completa calcola gli sketch dei ruoli in parallelo
+ */
+@ApplicationScoped
+public class SalaryIndex {
+    private static final long NO_SALARY = Long.MIN_VALUE;
+
+    private Map<Long, QuantileSketch> sketches = new HashMap<>();
+    private final Map<Long, String> roleNames = new HashMap<>();
+    //dipendente -> {ruolo, stipendio}, per togliere il valore vecchio quando cambia
+    private Map<Long, long[]> employees = new HashMap<>();
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Transactional
+    void onStart(@Observes StartupEvent event) {
+        rebuild();
+    }
+
+    /*
+    ricostruzione completa: una proiezione (id, ruolo, stipendio) raggruppata per ruolo,
+    poi ogni ruolo costruisce il suo sketch in parallelo. Lettura e sostituzione avvengono sotto lo stesso lock degli
+    aggiornamenti: una modifica arrivata durante la lettura aspetta e viene applicata sopra gli sketch nuovi invece
+    di andare persa con quelli vecchi (riapplicarla è innocuo, ogni dipendente ha un solo valore corrente)
+     */
+    @Transactional
+    public synchronized void rebuild() {
+        Map<Long, String> names = entityManager.createQuery("SELECT r.id, r.name FROM Role r", Object[].class)
+                .getResultStream()
+                .collect(Collectors.toMap(row -> (Long) row[0], row -> (String) row[1]));
+
+        Map<Long, long[]> salaries = entityManager.createQuery("SELECT e.id, e.role.id, e.salary FROM Employee e", Object[].class)
+                .getResultStream()
+                .collect(Collectors.toMap(row -> (Long) row[0], row -> new long[]{(Long) row[1], row[2] == null ? NO_SALARY : (Integer) row[2]}));
+
+        Map<Long, QuantileSketch> rebuilt = salaries.values()
+                .stream()
+                .collect(Collectors.groupingBy(employee -> employee[0]))
+                .entrySet()
+                .parallelStream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> {
+                    QuantileSketch sketch = new QuantileSketch();
+                    entry.getValue().forEach(employee -> {
+                        if (employee[1] != NO_SALARY)
+                            sketch.add(employee[1]);
+                    });
+                    return sketch;
+                }));
+
+        roleNames.clear();
+        roleNames.putAll(names);
+        sketches = new HashMap<>(rebuilt);
+        employees = new HashMap<>(salaries);
+    }
+
+    synchronized void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) EntityChangeEvent event) {
+        if (event.getEntity() instanceof Employee employee) {
+            if (event.getOperation() == EntityChangeEvent.Operation.DELETE)
+                apply(event.getId(), null);
+            else
+                apply(event.getId(), new long[]{employee.getRole().getId(), employee.getSalary() == null ? NO_SALARY : employee.getSalary()});
+        } else if (event.getEntity() instanceof Role role) {
+            if (event.getOperation() == EntityChangeEvent.Operation.DELETE) {
+                roleNames.remove(event.getId());
+                sketches.remove(event.getId());
+            } else
+                roleNames.put(event.getId(), role.getName());
+        }
+    }
+
+    //update massivo degli stipendi sotto il minimo di un ruolo: si spostano nello sketch solo quelli interessati
+    synchronized void onSalaryFloor(@Observes(during = TransactionPhase.AFTER_SUCCESS) SalaryFloorEvent event) {
+        QuantileSketch sketch = sketches.computeIfAbsent(event.getRoleId(), id -> new QuantileSketch());
+
+        employees.values().forEach(employee -> {
+            if (employee[0] == event.getRoleId() && employee[1] != NO_SALARY && employee[1] < event.getMinSalary()) {
+                sketch.remove(employee[1]);
+                sketch.add(event.getMinSalary());
+                employee[1] = event.getMinSalary();
+            }
+        });
+    }
+
+    /*
+    modifiche di un altro nodo: si rileggono solo i ruoli e i dipendenti indicati e si applicano come le modifiche locali.
+    Un ruolo modificato può aver alzato il minimo salariale (update massivo senza id dei dipendenti), quindi si rileggono
+    anche i suoi dipendenti. La ricostruzione completa solo se le notifiche potrebbero essere andate perse
+     */
+    synchronized void onRemoteChange(@Observes CacheInvalidationEvent event) {
+        if (event.isFull()) {
+            rebuild();
+            return;
+        }
+
+        Set<Long> roleIds = new HashSet<>(event.getIds("role"));
+        Set<Long> employeeIds = new HashSet<>(event.getIds("employee"));
+
+        if (!roleIds.isEmpty()) {
+            Set<Long> missingRoles = new HashSet<>(roleIds);
+            entityManager.createQuery("SELECT r.id, r.name FROM Role r WHERE r.id IN :ids", Object[].class)
+                    .setParameter("ids", roleIds)
+                    .getResultStream()
+                    .forEach(row -> {
+                        roleNames.put((Long) row[0], (String) row[1]);
+                        missingRoles.remove((Long) row[0]);
+                    });
+            missingRoles.forEach(id -> {
+                roleNames.remove(id);
+                sketches.remove(id);
+            });
+
+            employees.forEach((id, employee) -> {
+                if (roleIds.contains(employee[0]))
+                    employeeIds.add(id);
+            });
+        }
+
+        if (employeeIds.isEmpty())
+            return;
+
+        Set<Long> missing = new HashSet<>(employeeIds);
+        entityManager.createQuery("SELECT e.id, e.role.id, e.salary FROM Employee e WHERE e.id IN :ids", Object[].class)
+                .setParameter("ids", employeeIds)
+                .getResultStream()
+                .forEach(row -> {
+                    apply((Long) row[0], new long[]{(Long) row[1], row[2] == null ? NO_SALARY : (Integer) row[2]});
+                    missing.remove((Long) row[0]);
+                });
+        missing.forEach(id -> apply(id, null));
+    }
+
+    public synchronized SalaryReportDTO report() {
+        QuantileSketch overall = new QuantileSketch();
+        List<SalaryStatsDTO> roles = new ArrayList<>();
+
+        roleNames.entrySet()
+                .stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(role -> {
+                    QuantileSketch sketch = sketches.getOrDefault(role.getKey(), new QuantileSketch());
+                    overall.merge(sketch);
+                    roles.add(stats(role.getKey(), role.getValue(), sketch));
+                });
+
+        SalaryReportDTO report = new SalaryReportDTO();
+        report.setOverall(stats(null, null, overall));
+        report.setRoles(roles);
+
+        return report;
+    }
+
+    //sostituzione del valore di un dipendente negli sketch: via il vecchio, dentro il nuovo (null = cancellato)
+    private void apply(Long employeeId, long[] current) {
+        long[] previous = employees.remove(employeeId);
+
+        if (previous != null && previous[1] != NO_SALARY) {
+            QuantileSketch sketch = sketches.get(previous[0]);
+
+            if (sketch != null)
+                sketch.remove(previous[1]);
+        }
+
+        if (current == null)
+            return;
+
+        employees.put(employeeId, current);
+
+        if (current[1] != NO_SALARY)
+            sketches.computeIfAbsent(current[0], id -> new QuantileSketch()).add(current[1]);
+    }
+
+    private static SalaryStatsDTO stats(Long roleId, String roleName, QuantileSketch sketch) {
+        SalaryStatsDTO stats = new SalaryStatsDTO();
+        stats.setRoleId(roleId);
+        stats.setRoleName(roleName);
+        stats.setCount(sketch.getCount());
+        stats.setMean(sketch.getMean());
+        stats.setMin(sketch.getMin());
+        stats.setMax(sketch.getMax());
+        stats.setP50(sketch.getQuantile(0.5));
+        stats.setP90(sketch.getQuantile(0.9));
+        stats.setP99(sketch.getQuantile(0.99));
+
+        return stats;
+    }
+}
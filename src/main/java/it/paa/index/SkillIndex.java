@@ -0,0 +1,318 @@
+package it.paa.index;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import it.paa.event.CacheInvalidationEvent;
+import it.paa.event.EntityChangeEvent;
+import it.paa.event.SkillChangeEvent;
+import it.paa.model.dto.employee.EmployeeMatchDTO;
+import it.paa.model.dto.project.TeamMemberDTO;
+import it.paa.model.entity.Employee;
+import it.paa.model.entity.Technology;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+indice dipendenti x tecnologie a bitset: ogni dipendente ha una posizione fissa e ogni tecnologia un BitSet
+con i bit dei dipendenti che la possiedono, così "tutte" e "almeno una" sono AND/OR di bitset.
+I BitSet non sono thread safe: le scritture (sincronizzate) ne fanno una copia e la sostituiscono,
+le letture lavorano sempre su bitset che non cambiano più. Il reload costruisce un indice nuovo e lo pubblica
+con un solo assegnamento volatile, così le letture concorrenti non vedono mai mappe svuotate a metà
+ */
+@ApplicationScoped
+public class SkillIndex {
+    private volatile State state = new State();
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Transactional
+    void onStart(@Observes StartupEvent event) {
+        reload();
+    }
+
+    synchronized void reload() {
+        State fresh = new State();
+
+        entityManager.createQuery("SELECT e.id, e.name, e.surname, e.experienceLevel FROM Employee e ORDER BY e.id", Object[].class)
+                .getResultStream()
+                .forEach(row -> fresh.putEmployee((Long) row[0], (String) row[1], (String) row[2], (Integer) row[3]));
+
+        entityManager.createQuery("SELECT t.id, t.minExperienceLevel FROM Technology t", Object[].class)
+                .getResultStream()
+                .forEach(row -> {
+                    fresh.minExperienceLevels.put((Long) row[0], row[1] == null ? 0 : (Integer) row[1]);
+                    fresh.holders.put((Long) row[0], new BitSet());
+                });
+
+        //l'indice nuovo non è ancora visibile alle letture, i bitset si modificano direttamente
+        entityManager.createQuery("SELECT e.id, t.id FROM Employee e JOIN e.technologiesList t", Object[].class)
+                .getResultStream()
+                .forEach(row -> fresh.holders.computeIfAbsent((Long) row[1], id -> new BitSet()).set(fresh.positions.get((Long) row[0])));
+
+        state = fresh;
+    }
+
+    /*
+    gli observer AFTER_SUCCESS di transazioni diverse possono girare in ordine diverso da quello dei commit:
+    invece di applicare l'evento si rilegge dal database lo stato attuale di dipendente e tecnologia, in una transazione
+    nuova e sotto lo stesso lock dell'aggiornamento, così l'ultimo observer lascia l'indice allineato all'ultimo commit
+     */
+    synchronized void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) EntityChangeEvent event) {
+        if (event.getEntity() instanceof Employee)
+            QuarkusTransaction.requiringNew().run(() -> refreshEmployees(Set.of(event.getId())));
+        else if (event.getEntity() instanceof Technology)
+            QuarkusTransaction.requiringNew().run(() -> refreshTechnologies(Set.of(event.getId())));
+    }
+
+    synchronized void onSkillChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) SkillChangeEvent event) {
+        QuarkusTransaction.requiringNew().run(() -> refreshEmployees(Set.of(event.getEmployeeId())));
+    }
+
+    //modifiche di un altro nodo: si rileggono le tecnologie indicate e i dipendenti modificati o con tecnologie cambiate
+    synchronized void onRemoteChange(@Observes CacheInvalidationEvent event) {
+        if (event.isFull()) {
+            reload();
+            return;
+        }
+
+        Set<Long> technologyIds = event.getIds("technology");
+        if (!technologyIds.isEmpty())
+            refreshTechnologies(technologyIds);
+
+        Set<Long> employeeIds = event.getIds("employee", "technology_employee");
+        if (!employeeIds.isEmpty())
+            refreshEmployees(employeeIds);
+    }
+
+    //rilettura delle tecnologie indicate, quelle non trovate sono state cancellate
+    private void refreshTechnologies(Set<Long> ids) {
+        State state = this.state;
+        Set<Long> technologyIds = new HashSet<>(ids);
+        entityManager.createQuery("SELECT t.id, t.minExperienceLevel FROM Technology t WHERE t.id IN :ids", Object[].class)
+                .setParameter("ids", technologyIds)
+                .getResultStream()
+                .forEach(row -> {
+                    state.minExperienceLevels.put((Long) row[0], row[1] == null ? 0 : (Integer) row[1]);
+                    state.holders.putIfAbsent((Long) row[0], new BitSet());
+                    technologyIds.remove((Long) row[0]);
+                });
+        technologyIds.forEach(id -> {
+            state.holders.remove(id);
+            state.minExperienceLevels.remove(id);
+        });
+    }
+
+    /*
+    rilettura dei dipendenti indicati e delle loro tecnologie (quelli non trovati sono stati cancellati),
+    poi si correggono con copy-on-write solo i bitset in cui cambia la posizione di uno di quei dipendenti
+     */
+    private void refreshEmployees(Set<Long> employeeIds) {
+        State state = this.state;
+        Set<Long> missing = new HashSet<>(employeeIds);
+        entityManager.createQuery("SELECT e.id, e.name, e.surname, e.experienceLevel FROM Employee e WHERE e.id IN :ids", Object[].class)
+                .setParameter("ids", employeeIds)
+                .getResultStream()
+                .forEach(row -> {
+                    state.putEmployee((Long) row[0], (String) row[1], (String) row[2], (Integer) row[3]);
+                    missing.remove((Long) row[0]);
+                });
+        missing.forEach(state::removeEmployee);
+
+        //tecnologia -> posizioni dei dipendenti riletti che la possiedono
+        Map<Long, BitSet> current = new HashMap<>();
+        entityManager.createQuery("SELECT e.id, t.id FROM Employee e JOIN e.technologiesList t WHERE e.id IN :ids", Object[].class)
+                .setParameter("ids", employeeIds)
+                .getResultStream()
+                .forEach(row -> current.computeIfAbsent((Long) row[1], id -> new BitSet()).set(state.positions.get((Long) row[0])));
+
+        BitSet refreshed = new BitSet();
+        employeeIds.forEach(id -> {
+            Integer position = state.positions.get(id);
+
+            if (position != null)
+                refreshed.set(position);
+        });
+
+        current.keySet().forEach(id -> state.holders.putIfAbsent(id, new BitSet()));
+        state.holders.replaceAll((technologyId, bits) -> {
+            BitSet expected = current.getOrDefault(technologyId, new BitSet());
+            BitSet actual = (BitSet) bits.clone();
+            actual.and(refreshed);
+
+            if (actual.equals(expected))
+                return bits;
+
+            BitSet updated = (BitSet) bits.clone();
+            updated.andNot(refreshed);
+            updated.or(expected);
+            return updated;
+        });
+    }
+
+    public boolean containsTechnology(Long technologyId) {
+        return state.holders.containsKey(technologyId);
+    }
+
+    /*
+    posizioni dei dipendenti che possiedono la tecnologia con esperienza sufficiente: almeno il livello minimo
+    della tecnologia e almeno minExperience
+     */
+    public BitSet qualified(Long technologyId, int minExperience) {
+        return qualified(state, technologyId, minExperience);
+    }
+
+    private static BitSet qualified(State state, Long technologyId, int minExperience) {
+        BitSet bits = state.holders.get(technologyId);
+        BitSet qualified = new BitSet();
+
+        if (bits == null)
+            return qualified;
+
+        int required = Math.max(minExperience, state.minExperienceLevels.getOrDefault(technologyId, 0));
+
+        for (int position = bits.nextSetBit(0); position >= 0; position = bits.nextSetBit(position + 1)) {
+            Candidate candidate = state.candidates.get(position);
+
+            if (candidate != null && candidate.experienceLevel >= required)
+                qualified.set(position);
+        }
+
+        return qualified;
+    }
+
+    //dipendente in una posizione (null se è stato cancellato), usato dal team consigliato
+    public TeamMemberDTO member(int position) {
+        Candidate candidate = state.candidates.get(position);
+
+        if (candidate == null)
+            return null;
+
+        TeamMemberDTO member = new TeamMemberDTO();
+        member.setEmployeeId(candidate.id);
+        member.setName(candidate.name);
+        member.setSurname(candidate.surname);
+
+        return member;
+    }
+
+    /*
+    matching: con all=true solo chi ha tutte le tecnologie (AND dei bitset), altrimenti chi ne ha almeno una (OR);
+    ordinati per copertura, poi per esperienza e id
+     */
+    public List<EmployeeMatchDTO> match(List<Long> technologyIds, int minExperience, boolean all, int limit) {
+        //tutto il matching su uno stesso indice, anche se nel frattempo ne viene pubblicato uno nuovo
+        State state = this.state;
+        List<BitSet> qualifiedByTechnology = new ArrayList<>(technologyIds.size());
+        BitSet matching = null;
+
+        for (Long technologyId : technologyIds) {
+            BitSet qualified = qualified(state, technologyId, minExperience);
+            qualifiedByTechnology.add(qualified);
+
+            if (matching == null)
+                matching = (BitSet) qualified.clone();
+            else if (all)
+                matching.and(qualified);
+            else
+                matching.or(qualified);
+        }
+
+        List<EmployeeMatchDTO> matches = new ArrayList<>();
+
+        if (matching == null)
+            return matches;
+
+        for (int position = matching.nextSetBit(0); position >= 0; position = matching.nextSetBit(position + 1)) {
+            Candidate candidate = state.candidates.get(position);
+
+            if (candidate == null)
+                continue;
+
+            List<Long> matched = new ArrayList<>();
+            for (int i = 0; i < technologyIds.size(); i++)
+                if (qualifiedByTechnology.get(i).get(position))
+                    matched.add(technologyIds.get(i));
+
+            EmployeeMatchDTO match = new EmployeeMatchDTO();
+            match.setEmployeeId(candidate.id);
+            match.setName(candidate.name);
+            match.setSurname(candidate.surname);
+            match.setExperienceLevel(candidate.experienceLevel);
+            match.setCoverage((double) matched.size() / technologyIds.size());
+            match.setMatchedTechnologies(matched);
+            matches.add(match);
+        }
+
+        return matches.stream()
+                .sorted(Comparator.comparingDouble(EmployeeMatchDTO::getCoverage).reversed()
+                        .thenComparing(EmployeeMatchDTO::getExperienceLevel, Comparator.reverseOrder())
+                        .thenComparing(EmployeeMatchDTO::getEmployeeId))
+                .limit(limit)
+                .toList();
+    }
+
+    private static BitSet without(BitSet bits, int position) {
+        if (!bits.get(position))
+            return bits;
+
+        BitSet copy = (BitSet) bits.clone();
+        copy.clear(position);
+        return copy;
+    }
+
+    /*
+    contenuto dell'indice: le mappe vengono modificate solo dalle scritture sincronizzate, un reload ne costruisce
+    uno nuovo invece di svuotare quello pubblicato
+     */
+    private static class State {
+        private final Map<Long, Integer> positions = new ConcurrentHashMap<>();
+        private final Map<Integer, Candidate> candidates = new ConcurrentHashMap<>();
+        private final Map<Long, BitSet> holders = new ConcurrentHashMap<>();
+        private final Map<Long, Integer> minExperienceLevels = new ConcurrentHashMap<>();
+        private int nextPosition = 0;
+
+        private void putEmployee(Long id, String name, String surname, Integer experienceLevel) {
+            int position = positions.computeIfAbsent(id, key -> nextPosition++);
+            candidates.put(position, new Candidate(id, name, surname, experienceLevel == null ? 0 : experienceLevel));
+        }
+
+        private void removeEmployee(Long id) {
+            Integer position = positions.remove(id);
+
+            if (position != null) {
+                candidates.remove(position);
+                holders.replaceAll((technologyId, bits) -> without(bits, position));
+            }
+        }
+    }
+
+    //dati del dipendente necessari al matching, immutabili
+    private static class Candidate {
+        private final Long id;
+        private final String name;
+        private final String surname;
+        private final int experienceLevel;
+
+        private Candidate(Long id, String name, String surname, int experienceLevel) {
+            this.id = id;
+            this.name = name;
+            this.surname = surname;
+            this.experienceLevel = experienceLevel;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package it.paa.index;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import it.paa.event.CacheInvalidationEvent;
+import it.paa.event.EntityChangeEvent;
+import it.paa.event.StaffingChangeEvent;
+import it.paa.model.dto.project.StaffingConflictDTO;
+import it.paa.model.entity.Project;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+indice dello staffing per dipendente: per ogni dipendente un interval tree con i periodi dei suoi progetti,
+ricostruito solo per i dipendenti toccati da una modifica. Le date sono in epoch day, una data di inizio nulla
+vale -infinito e una data di fine nulla (progetto aperto) +infinito.
+Caricato all'avvio con proiezioni e aggiornato dagli eventi dei service dopo il commit; il reload costruisce un indice
+nuovo e lo pubblica con un solo assegnamento volatile, senza svuotare quello letto dalle richieste in corso
+ */
+@ApplicationScoped
+public class StaffingIndex {
+    private volatile State state = new State();
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Transactional
+    void onStart(@Observes StartupEvent event) {
+        reload();
+    }
+
+    synchronized void reload() {
+        State fresh = new State();
+
+        entityManager.createQuery("SELECT p.id, p.startDate, p.endDate FROM Project p", Object[].class)
+                .getResultStream()
+                .forEach(row -> fresh.periods.put((Long) row[0], period((LocalDate) row[1], (LocalDate) row[2])));
+
+        entityManager.createQuery("SELECT p.id, e.id FROM Project p JOIN p.employeesList e", Object[].class)
+                .getResultStream()
+                .forEach(row -> fresh.link((Long) row[0], (Long) row[1]));
+
+        fresh.projectsByEmployee.keySet().forEach(fresh::rebuild);
+
+        state = fresh;
+    }
+
+    /*
+    gli observer AFTER_SUCCESS di transazioni diverse possono girare in ordine diverso da quello dei commit:
+    invece di applicare l'evento si rilegge dal database lo stato attuale del progetto, in una transazione nuova
+    e sotto lo stesso lock dell'aggiornamento, così l'ultimo observer lascia sempre l'indice allineato all'ultimo commit
+     */
+    synchronized void onProjectChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) EntityChangeEvent event) {
+        if (event.getEntity() instanceof Project)
+            QuarkusTransaction.requiringNew().run(() -> refreshProjects(Set.of(event.getId())));
+    }
+
+    synchronized void onStaffingChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) StaffingChangeEvent event) {
+        QuarkusTransaction.requiringNew().run(() -> refreshProjects(Set.of(event.getProjectId())));
+    }
+
+    //modifiche di un altro nodo: si rileggono i progetti modificati o con assegnazioni cambiate
+    synchronized void onRemoteChange(@Observes CacheInvalidationEvent event) {
+        if (event.isFull()) {
+            reload();
+            return;
+        }
+
+        Set<Long> projectIds = event.getIds("project", "project_employee");
+        if (!projectIds.isEmpty())
+            refreshProjects(projectIds);
+    }
+
+    /*
+    rilettura di periodo e dipendenti dei progetti indicati (quelli non trovati sono stati cancellati),
+    poi si ricostruiscono gli alberi dei dipendenti di prima e di adesso
+     */
+    private void refreshProjects(Set<Long> projectIds) {
+        State state = this.state;
+        Set<Long> missing = new HashSet<>(projectIds);
+        entityManager.createQuery("SELECT p.id, p.startDate, p.endDate FROM Project p WHERE p.id IN :ids", Object[].class)
+                .setParameter("ids", projectIds)
+                .getResultStream()
+                .forEach(row -> {
+                    state.periods.put((Long) row[0], period((LocalDate) row[1], (LocalDate) row[2]));
+                    missing.remove((Long) row[0]);
+                });
+        missing.forEach(state.periods::remove);
+
+        Map<Long, Set<Long>> current = new HashMap<>();
+        entityManager.createQuery("SELECT p.id, e.id FROM Project p JOIN p.employeesList e WHERE p.id IN :ids", Object[].class)
+                .setParameter("ids", projectIds)
+                .getResultStream()
+                .forEach(row -> current.computeIfAbsent((Long) row[0], id -> new HashSet<>()).add((Long) row[1]));
+
+        Set<Long> touched = new HashSet<>();
+        projectIds.forEach(projectId -> {
+            Set<Long> previous = state.employeesByProject.remove(projectId);
+
+            if (previous != null)
+                previous.forEach(employeeId -> {
+                    state.projectsByEmployee.getOrDefault(employeeId, new HashSet<>()).remove(projectId);
+                    touched.add(employeeId);
+                });
+
+            current.getOrDefault(projectId, Set.of()).forEach(employeeId -> {
+                state.link(projectId, employeeId);
+                touched.add(employeeId);
+            });
+        });
+
+        touched.forEach(state::rebuild);
+    }
+
+    /*
+    progetti del dipendente il cui periodo si sovrappone a [start, end], escluso excludedProjectId
+    (il progetto a cui lo si sta aggiungendo)
+     */
+    public List<Long> overlapping(Long employeeId, LocalDate start, LocalDate end, Long excludedProjectId) {
+        IntervalTree tree = state.trees.get(employeeId);
+
+        if (tree == null)
+            return List.of();
+
+        long[] period = period(start, end);
+        List<Long> projects = new ArrayList<>(tree.overlapping(period[0], period[1]));
+        projects.remove(excludedProjectId);
+
+        return projects;
+    }
+
+    //tutte le sovrapposizioni, una volta per coppia di progetti dello stesso dipendente
+    public List<StaffingConflictDTO> conflicts() {
+        State state = this.state;
+        List<StaffingConflictDTO> conflicts = new ArrayList<>();
+
+        state.trees.entrySet()
+                .stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> {
+                    IntervalTree tree = entry.getValue();
+
+                    for (Long projectId : tree.ids()) {
+                        long[] period = state.periods.get(projectId);
+
+                        if (period == null)
+                            continue;
+
+                        tree.overlapping(period[0], period[1])
+                                .stream()
+                                .filter(other -> other > projectId)
+                                .sorted(Comparator.naturalOrder())
+                                .forEach(other -> {
+                                    long[] otherPeriod = state.periods.get(other);
+
+                                    if (otherPeriod != null)
+                                        conflicts.add(new StaffingConflictDTO(entry.getKey(), projectId, other,
+                                                date(Math.max(period[0], otherPeriod[0])), date(Math.min(period[1], otherPeriod[1]))));
+                                });
+                    }
+                });
+
+        return conflicts;
+    }
+
+    private static long[] period(LocalDate start, LocalDate end) {
+        return new long[]{
+                start == null ? Long.MIN_VALUE : start.toEpochDay(),
+                end == null ? Long.MAX_VALUE : end.toEpochDay()
+        };
+    }
+
+    private static LocalDate date(long epochDay) {
+        return epochDay == Long.MIN_VALUE || epochDay == Long.MAX_VALUE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    /*
+    contenuto dell'indice: modificato solo dalle scritture sincronizzate, un reload ne costruisce uno nuovo
+    invece di svuotare quello pubblicato
+     */
+    private static class State {
+        //progetto -> {inizio, fine}
+        private final Map<Long, long[]> periods = new ConcurrentHashMap<>();
+        private final Map<Long, Set<Long>> projectsByEmployee = new HashMap<>();
+        private final Map<Long, Set<Long>> employeesByProject = new HashMap<>();
+        private final Map<Long, IntervalTree> trees = new ConcurrentHashMap<>();
+
+        private void link(Long projectId, Long employeeId) {
+            projectsByEmployee.computeIfAbsent(employeeId, id -> new HashSet<>()).add(projectId);
+            employeesByProject.computeIfAbsent(projectId, id -> new HashSet<>()).add(employeeId);
+        }
+
+        //ricostruzione dell'albero di un solo dipendente
+        private void rebuild(Long employeeId) {
+            Set<Long> projects = projectsByEmployee.get(employeeId);
+
+            if (projects == null || projects.isEmpty()) {
+                projectsByEmployee.remove(employeeId);
+                trees.remove(employeeId);
+                return;
+            }
+
+            List<long[]> intervals = new ArrayList<>(projects.size());
+            for (Long projectId : projects) {
+                long[] period = periods.get(projectId);
+
+                if (period != null)
+                    intervals.add(new long[]{projectId, period[0], period[1]});
+            }
+
+            trees.put(employeeId, new IntervalTree(intervals));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package it.paa.index;
+
+import io.quarkus.runtime.StartupEvent;
+import it.paa.event.CacheInvalidationEvent;
+import it.paa.event.EntityChangeEvent;
+import it.paa.model.dto.suggestion.SuggestionDTO;
+import it.paa.model.entity.Customer;
+import it.paa.model.entity.Employee;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+indici per prefisso usati dall'autocomplete: cognomi dei dipendenti e nomi dei clienti.
+Caricati all'avvio con una proiezione (senza entità) e tenuti allineati dagli EntityChangeEvent
+dei service dopo il commit; il reload costruisce indici nuovi e li pubblica con un solo assegnamento volatile,
+così l'autocomplete non vede mai indici svuotati a metà
+ */
+@ApplicationScoped
+public class SuggestionIndex {
+    private volatile State state = new State();
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Transactional
+    void onStart(@Observes StartupEvent event) {
+        reload();
+    }
+
+    synchronized void reload() {
+        State fresh = new State();
+
+        entityManager.createQuery("SELECT e.id, e.name, e.surname FROM Employee e", Object[].class)
+                .getResultStream()
+                .forEach(row -> fresh.employees.put((Long) row[0], (String) row[2], new SuggestionDTO((Long) row[0], (String) row[1], (String) row[2])));
+
+        entityManager.createQuery("SELECT c.id, c.name FROM Customer c", Object[].class)
+                .getResultStream()
+                .forEach(row -> fresh.customers.put((Long) row[0], (String) row[1], new SuggestionDTO((Long) row[0], (String) row[1], null)));
+
+        state = fresh;
+    }
+
+    //sincronizzato con il reload: una modifica arrivata durante il caricamento si applica all'indice appena pubblicato
+    synchronized void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) EntityChangeEvent event) {
+        State state = this.state;
+
+        if (event.getEntity() instanceof Employee employee) {
+            if (event.getOperation() == EntityChangeEvent.Operation.DELETE)
+                state.employees.remove(event.getId());
+            else
+                state.employees.put(event.getId(), employee.getSurname(), new SuggestionDTO(event.getId(), employee.getName(), employee.getSurname()));
+        } else if (event.getEntity() instanceof Customer customer) {
+            if (event.getOperation() == EntityChangeEvent.Operation.DELETE)
+                state.customers.remove(event.getId());
+            else
+                state.customers.put(event.getId(), customer.getName(), new SuggestionDTO(event.getId(), customer.getName(), null));
+        }
+    }
+
+    //modifiche di un altro nodo: si rileggono solo i dipendenti e i clienti indicati, quelli non trovati sono stati cancellati
+    synchronized void onRemoteChange(@Observes CacheInvalidationEvent event) {
+        if (event.isFull()) {
+            reload();
+            return;
+        }
+
+        State state = this.state;
+        Set<Long> employeeIds = new HashSet<>(event.getIds("employee"));
+        if (!employeeIds.isEmpty()) {
+            entityManager.createQuery("SELECT e.id, e.name, e.surname FROM Employee e WHERE e.id IN :ids", Object[].class)
+                    .setParameter("ids", employeeIds)
+                    .getResultStream()
+                    .forEach(row -> {
+                        state.employees.put((Long) row[0], (String) row[2], new SuggestionDTO((Long) row[0], (String) row[1], (String) row[2]));
+                        employeeIds.remove((Long) row[0]);
+                    });
+            employeeIds.forEach(state.employees::remove);
+        }
+
+        Set<Long> customerIds = new HashSet<>(event.getIds("customer"));
+        if (!customerIds.isEmpty()) {
+            entityManager.createQuery("SELECT c.id, c.name FROM Customer c WHERE c.id IN :ids", Object[].class)
+                    .setParameter("ids", customerIds)
+                    .getResultStream()
+                    .forEach(row -> {
+                        state.customers.put((Long) row[0], (String) row[1], new SuggestionDTO((Long) row[0], (String) row[1], null));
+                        customerIds.remove((Long) row[0]);
+                    });
+            customerIds.forEach(state.customers::remove);
+        }
+    }
+
+    public List<SuggestionDTO> suggestEmployees(String prefix, int limit) {
+        return state.employees.search(prefix, limit);
+    }
+
+    public List<SuggestionDTO> suggestCustomers(String prefix, int limit) {
+        return state.customers.search(prefix, limit);
+    }
+
+    //indici pubblicati insieme: un reload ne costruisce di nuovi invece di svuotare quelli letti dalle richieste
+    private static class State {
+        private final PrefixIndex<SuggestionDTO> employees = new PrefixIndex<>();
+        private final PrefixIndex<SuggestionDTO> customers = new PrefixIndex<>();
+    }
+}
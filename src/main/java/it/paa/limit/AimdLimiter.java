@@ -0,0 +1,73 @@
+package it.paa.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+limite di concorrenza adattivo AIMD: ogni richiesta completata sotto la latenza obiettivo aumenta il limite di 1/limite
+(circa +1 ogni "giro" di richieste), ma solo se il limite è davvero usato; una richiesta più lenta dell'obiettivo
+o fallita con 5xx lo riduce in modo moltiplicativo. Così il limite sale finché il database risponde in tempo
+e scende appena le richieste si accodano sul pool di connessioni
+ */
+public class AimdLimiter {
+    private static final double BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile double limit;
+
+    public AimdLimiter(int initialLimit, int minLimit, int maxLimit, long targetLatencyMillis) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatencyMillis * 1_000_000;
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+
+            if (current >= (int) limit) {
+                rejected.increment();
+                return false;
+            }
+
+            if (inFlight.compareAndSet(current, current + 1)) {
+                accepted.increment();
+                return true;
+            }
+        }
+    }
+
+    public void release(long latencyNanos, boolean failed) {
+        int current = inFlight.getAndDecrement();
+
+        synchronized (this) {
+            if (failed || latencyNanos > targetLatencyNanos)
+                limit = Math.max(minLimit, limit * BACKOFF);
+            //si cresce solo se il limite è stato quasi raggiunto, altrimenti non si sa se reggerebbe di più
+            else if (current * 2 >= (int) limit)
+                limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,78 @@
+package it.paa.limit;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+
+import java.lang.reflect.Method;
+
+/*
+load shedding: prima di eseguire una richiesta si prende un posto nel limiter della sua classe di endpoint, se non ce ne
+sono risponde subito 503 con Retry-After invece di accodarsi sul pool di connessioni. Il posto viene rilasciato quando
+la risposta è pronta, con la latenza osservata che adatta il limite
+ */
+@Provider
+public class ConcurrencyLimitFilter implements ContainerRequestFilter, ContainerResponseFilter {
+    private static final String LIMITER_PROPERTY = "it.paa.limit.limiter";
+    private static final String START_PROPERTY = "it.paa.limit.start";
+    //secondi suggeriti al client prima di riprovare
+    private static final int RETRY_AFTER_SECONDS = 1;
+
+    @Inject
+    ConcurrencyLimits limits;
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        AimdLimiter limiter = limits.get(endpointClass());
+
+        if (limiter == null)
+            return;
+
+        if (!limiter.tryAcquire()) {
+            requestContext.abortWith(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity("too many concurrent requests, retry later")
+                    .build());
+            return;
+        }
+
+        requestContext.setProperty(LIMITER_PROPERTY, limiter);
+        requestContext.setProperty(START_PROPERTY, System.nanoTime());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        //anche le richieste rifiutate passano di qui, ma non hanno preso un posto
+        if (!(requestContext.getProperty(LIMITER_PROPERTY) instanceof AimdLimiter limiter))
+            return;
+
+        requestContext.removeProperty(LIMITER_PROPERTY);
+        long latency = System.nanoTime() - (Long) requestContext.getProperty(START_PROPERTY);
+        limiter.release(latency, responseContext.getStatus() >= 500);
+    }
+
+    private EndpointClass endpointClass() {
+        Method method = resourceInfo.getResourceMethod();
+
+        if (method == null)
+            return EndpointClass.CRUD;
+
+        Limited limited = method.getAnnotation(Limited.class);
+        if (limited == null)
+            limited = resourceInfo.getResourceClass().getAnnotation(Limited.class);
+
+        return limited == null ? EndpointClass.CRUD : limited.value();
+    }
+}
@@ -0,0 +1,39 @@
+package it.paa.limit;
+
+import it.paa.model.dto.limit.LimitStatsDTO;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+un limiter per classe di endpoint: limite iniziale, minimo, massimo e latenza obiettivo. Il massimo delle analisi resta
+ben sotto il pool di connessioni (20 di default), così le altre classi trovano sempre connessioni libere
+ */
+@ApplicationScoped
+public class ConcurrencyLimits {
+    private final Map<EndpointClass, AimdLimiter> limiters = new EnumMap<>(EndpointClass.class);
+
+    public ConcurrencyLimits() {
+        limiters.put(EndpointClass.CRUD, new AimdLimiter(20, 4, 50, 100));
+        limiters.put(EndpointClass.LIST, new AimdLimiter(8, 2, 20, 500));
+        limiters.put(EndpointClass.ANALYTICS, new AimdLimiter(2, 1, 6, 2000));
+    }
+
+    //null per gli endpoint senza limite
+    public AimdLimiter get(EndpointClass endpointClass) {
+        return limiters.get(endpointClass);
+    }
+
+    public List<LimitStatsDTO> stats() {
+        List<LimitStatsDTO> stats = new ArrayList<>();
+
+        limiters.forEach((endpointClass, limiter) -> stats.add(new LimitStatsDTO(endpointClass.name().toLowerCase(Locale.ROOT),
+                limiter.getLimit(), limiter.getInFlight(), limiter.getAccepted(), limiter.getRejected())));
+
+        return stats;
+    }
+}
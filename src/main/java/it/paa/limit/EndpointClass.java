@@ -0,0 +1,9 @@
+package it.paa.limit;
+
+/*
+classi di endpoint con limiti di concorrenza separati: letture e scritture puntuali (CRUD), liste e ricerche (LIST),
+report e ranking (ANALYTICS). UNLIMITED per le connessioni di lunga durata (feed SSE) e per le metriche dei limiti
+ */
+public enum EndpointClass {
+    CRUD, LIST, ANALYTICS, UNLIMITED
+}
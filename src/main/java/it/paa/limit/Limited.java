@@ -0,0 +1,16 @@
+package it.paa.limit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+classe di endpoint di un metodo o di tutta una resource per il limite di concorrenza;
+i metodi senza annotazione sono CRUD
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Limited {
+    EndpointClass value();
+}
@@ -0,0 +1,73 @@
+package it.paa.model.dto.employee;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.List;
+
+/*
+DTO per il matching delle competenze: dipendente, tecnologie richieste che possiede (con il livello di esperienza
+sufficiente) e copertura, cioè la frazione delle tecnologie richieste coperte
+*/
+@JsonPropertyOrder({"employee_id", "name", "surname", "experience_level", "coverage", "matched_technologies"})
+public class EmployeeMatchDTO {
+    @JsonProperty("employee_id")
+    private Long employeeId;
+    private String name;
+    private String surname;
+    @JsonProperty("experience_level")
+    private Integer experienceLevel;
+    private double coverage;
+    @JsonProperty("matched_technologies")
+    private List<Long> matchedTechnologies;
+
+    public EmployeeMatchDTO() {}
+
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(Long employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getSurname() {
+        return surname;
+    }
+
+    public void setSurname(String surname) {
+        this.surname = surname;
+    }
+
+    public Integer getExperienceLevel() {
+        return experienceLevel;
+    }
+
+    public void setExperienceLevel(Integer experienceLevel) {
+        this.experienceLevel = experienceLevel;
+    }
+
+    public double getCoverage() {
+        return coverage;
+    }
+
+    public void setCoverage(double coverage) {
+        this.coverage = coverage;
+    }
+
+    public List<Long> getMatchedTechnologies() {
+        return matchedTechnologies;
+    }
+
+    public void setMatchedTechnologies(List<Long> matchedTechnologies) {
+        this.matchedTechnologies = matchedTechnologies;
+    }
+}
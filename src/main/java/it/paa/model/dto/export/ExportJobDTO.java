@@ -0,0 +1,121 @@
+package it.paa.model.dto.export;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.time.LocalDateTime;
+
+/*
+DTO per lo stato di un export: tipo, formato, stato (QUEUED, RUNNING, COMPLETED, FAILED), righe scritte
+sul totale stimato all'avvio, e a export finito il percorso da cui scaricare il file o l'errore
+*/
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"id", "type", "format", "status", "rows_written", "rows_total", "progress", "created_at", "completed_at", "download", "error"})
+public class ExportJobDTO {
+    private String id;
+    private String type;
+    private String format;
+    private String status;
+    @JsonProperty("rows_written")
+    private Long rowsWritten;
+    @JsonProperty("rows_total")
+    private Long rowsTotal;
+    private Double progress;
+    @JsonProperty("created_at")
+    private LocalDateTime createdAt;
+    @JsonProperty("completed_at")
+    private LocalDateTime completedAt;
+    private String download;
+    private String error;
+
+    public ExportJobDTO() {}
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public void setRowsWritten(Long rowsWritten) {
+        this.rowsWritten = rowsWritten;
+    }
+
+    public Long getRowsTotal() {
+        return rowsTotal;
+    }
+
+    public void setRowsTotal(Long rowsTotal) {
+        this.rowsTotal = rowsTotal;
+    }
+
+    public Double getProgress() {
+        return progress;
+    }
+
+    public void setProgress(Double progress) {
+        this.progress = progress;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public String getDownload() {
+        return download;
+    }
+
+    public void setDownload(String download) {
+        this.download = download;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
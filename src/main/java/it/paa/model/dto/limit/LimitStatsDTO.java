@@ -0,0 +1,69 @@
+package it.paa.model.dto.limit;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/*
+DTO per le metriche del limite di concorrenza di una classe di endpoint: limite attuale, richieste in corso,
+richieste accettate e rifiutate (503) dall'avvio
+*/
+@JsonPropertyOrder({"endpoint_class", "limit", "in_flight", "accepted", "rejected"})
+public class LimitStatsDTO {
+    @JsonProperty("endpoint_class")
+    private String endpointClass;
+    private Integer limit;
+    @JsonProperty("in_flight")
+    private Integer inFlight;
+    private Long accepted;
+    private Long rejected;
+
+    public LimitStatsDTO() {}
+
+    public LimitStatsDTO(String endpointClass, Integer limit, Integer inFlight, Long accepted, Long rejected) {
+        this.endpointClass = endpointClass;
+        this.limit = limit;
+        this.inFlight = inFlight;
+        this.accepted = accepted;
+        this.rejected = rejected;
+    }
+
+    public String getEndpointClass() {
+        return endpointClass;
+    }
+
+    public void setEndpointClass(String endpointClass) {
+        this.endpointClass = endpointClass;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    public Integer getInFlight() {
+        return inFlight;
+    }
+
+    public void setInFlight(Integer inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    public Long getAccepted() {
+        return accepted;
+    }
+
+    public void setAccepted(Long accepted) {
+        this.accepted = accepted;
+    }
+
+    public Long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(Long rejected) {
+        this.rejected = rejected;
+    }
+}
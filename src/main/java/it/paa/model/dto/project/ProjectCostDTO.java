@@ -0,0 +1,58 @@
+package it.paa.model.dto.project;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/*
+DTO per il costo di staffing di un progetto: somma degli stipendi dei dipendenti assegnati e loro numero
+*/
+@JsonPropertyOrder({"project_id", "name", "staffing_cost", "headcount"})
+public class ProjectCostDTO {
+    @JsonProperty("project_id")
+    private Long projectId;
+    private String name;
+    @JsonProperty("staffing_cost")
+    private Long staffingCost;
+    private Integer headcount;
+
+    public ProjectCostDTO() {}
+
+    public ProjectCostDTO(Long projectId, String name, Long staffingCost, Integer headcount) {
+        this.projectId = projectId;
+        this.name = name;
+        this.staffingCost = staffingCost;
+        this.headcount = headcount;
+    }
+
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(Long projectId) {
+        this.projectId = projectId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getStaffingCost() {
+        return staffingCost;
+    }
+
+    public void setStaffingCost(Long staffingCost) {
+        this.staffingCost = staffingCost;
+    }
+
+    public Integer getHeadcount() {
+        return headcount;
+    }
+
+    public void setHeadcount(Integer headcount) {
+        this.headcount = headcount;
+    }
+}
@@ -0,0 +1,76 @@
+package it.paa.model.dto.project;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.time.LocalDate;
+
+/*
+DTO per una sovrapposizione di staffing: lo stesso dipendente su due progetti con periodi sovrapposti,
+con il periodo in comune (estremi nulli = illimitato, per progetti senza data di inizio o ancora aperti)
+*/
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"employee_id", "project_id", "conflicting_project_id", "overlap_start", "overlap_end"})
+public class StaffingConflictDTO {
+    @JsonProperty("employee_id")
+    private Long employeeId;
+    @JsonProperty("project_id")
+    private Long projectId;
+    @JsonProperty("conflicting_project_id")
+    private Long conflictingProjectId;
+    @JsonProperty("overlap_start")
+    private LocalDate overlapStart;
+    @JsonProperty("overlap_end")
+    private LocalDate overlapEnd;
+
+    public StaffingConflictDTO() {}
+
+    public StaffingConflictDTO(Long employeeId, Long projectId, Long conflictingProjectId, LocalDate overlapStart, LocalDate overlapEnd) {
+        this.employeeId = employeeId;
+        this.projectId = projectId;
+        this.conflictingProjectId = conflictingProjectId;
+        this.overlapStart = overlapStart;
+        this.overlapEnd = overlapEnd;
+    }
+
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(Long employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(Long projectId) {
+        this.projectId = projectId;
+    }
+
+    public Long getConflictingProjectId() {
+        return conflictingProjectId;
+    }
+
+    public void setConflictingProjectId(Long conflictingProjectId) {
+        this.conflictingProjectId = conflictingProjectId;
+    }
+
+    public LocalDate getOverlapStart() {
+        return overlapStart;
+    }
+
+    public void setOverlapStart(LocalDate overlapStart) {
+        this.overlapStart = overlapStart;
+    }
+
+    public LocalDate getOverlapEnd() {
+        return overlapEnd;
+    }
+
+    public void setOverlapEnd(LocalDate overlapEnd) {
+        this.overlapEnd = overlapEnd;
+    }
+}
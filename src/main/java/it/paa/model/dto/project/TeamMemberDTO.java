@@ -0,0 +1,62 @@
+package it.paa.model.dto.project;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.List;
+
+/*
+DTO per un dipendente del team consigliato: carico (progetti già assegnati sovrapposti al progetto)
+e tecnologie richieste che copre nel team
+*/
+@JsonPropertyOrder({"employee_id", "name", "surname", "load", "covers"})
+public class TeamMemberDTO {
+    @JsonProperty("employee_id")
+    private Long employeeId;
+    private String name;
+    private String surname;
+    private int load;
+    private List<Long> covers;
+
+    public TeamMemberDTO() {}
+
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(Long employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getSurname() {
+        return surname;
+    }
+
+    public void setSurname(String surname) {
+        this.surname = surname;
+    }
+
+    public int getLoad() {
+        return load;
+    }
+
+    public void setLoad(int load) {
+        this.load = load;
+    }
+
+    public List<Long> getCovers() {
+        return covers;
+    }
+
+    public void setCovers(List<Long> covers) {
+        this.covers = covers;
+    }
+}
@@ -0,0 +1,64 @@
+package it.paa.model.dto.project;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.List;
+
+/*
+DTO per il team consigliato per un progetto: dipendenti scelti, tecnologie richieste rimaste scoperte
+e se la ricerca è stata interrotta dal limite di tempo (in quel caso il team può non essere il migliore trovabile)
+*/
+@JsonPropertyOrder({"project_id", "complete", "budget_exceeded", "team", "uncovered_technologies"})
+public class TeamRecommendationDTO {
+    @JsonProperty("project_id")
+    private Long projectId;
+    private boolean complete;
+    @JsonProperty("budget_exceeded")
+    private boolean budgetExceeded;
+    private List<TeamMemberDTO> team;
+    @JsonProperty("uncovered_technologies")
+    private List<Long> uncoveredTechnologies;
+
+    public TeamRecommendationDTO() {}
+
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(Long projectId) {
+        this.projectId = projectId;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    public boolean isBudgetExceeded() {
+        return budgetExceeded;
+    }
+
+    public void setBudgetExceeded(boolean budgetExceeded) {
+        this.budgetExceeded = budgetExceeded;
+    }
+
+    public List<TeamMemberDTO> getTeam() {
+        return team;
+    }
+
+    public void setTeam(List<TeamMemberDTO> team) {
+        this.team = team;
+    }
+
+    public List<Long> getUncoveredTechnologies() {
+        return uncoveredTechnologies;
+    }
+
+    public void setUncoveredTechnologies(List<Long> uncoveredTechnologies) {
+        this.uncoveredTechnologies = uncoveredTechnologies;
+    }
+}
@@ -0,0 +1,35 @@
+package it.paa.model.dto.role;
+
+import it.paa.model.entity.Role;
+
+/*
+risultato dell'update di un ruolo con l'adeguamento degli stipendi: ruolo aggiornato e numero di dipendenti
+il cui stipendio è stato portato al nuovo minimo
+*/
+public class RoleUpdateDTO {
+    private Role role;
+    private int employeesUpdated;
+
+    public RoleUpdateDTO() {}
+
+    public RoleUpdateDTO(Role role, int employeesUpdated) {
+        this.role = role;
+        this.employeesUpdated = employeesUpdated;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public void setRole(Role role) {
+        this.role = role;
+    }
+
+    public int getEmployeesUpdated() {
+        return employeesUpdated;
+    }
+
+    public void setEmployeesUpdated(int employeesUpdated) {
+        this.employeesUpdated = employeesUpdated;
+    }
+}
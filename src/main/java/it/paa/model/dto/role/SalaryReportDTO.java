@@ -0,0 +1,32 @@
+package it.paa.model.dto.role;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.List;
+
+/*
+DTO per le statistiche degli stipendi: totale di tutti i dipendenti e dettaglio per ruolo
+*/
+@JsonPropertyOrder({"overall", "roles"})
+public class SalaryReportDTO {
+    private SalaryStatsDTO overall;
+    private List<SalaryStatsDTO> roles;
+
+    public SalaryReportDTO() {}
+
+    public SalaryStatsDTO getOverall() {
+        return overall;
+    }
+
+    public void setOverall(SalaryStatsDTO overall) {
+        this.overall = overall;
+    }
+
+    public List<SalaryStatsDTO> getRoles() {
+        return roles;
+    }
+
+    public void setRoles(List<SalaryStatsDTO> roles) {
+        this.roles = roles;
+    }
+}
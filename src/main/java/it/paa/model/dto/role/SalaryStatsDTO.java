@@ -0,0 +1,99 @@
+package it.paa.model.dto.role;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/*
+DTO per le statistiche degli stipendi di un ruolo (o di tutti i dipendenti, senza role_id e role_name):
+count e mean sono esatti, min, max e percentili hanno un errore relativo massimo dell'1%
+*/
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"role_id", "role_name", "count", "mean", "min", "max", "p50", "p90", "p99"})
+public class SalaryStatsDTO {
+    @JsonProperty("role_id")
+    private Long roleId;
+    @JsonProperty("role_name")
+    private String roleName;
+    private long count;
+    private double mean;
+    private double min;
+    private double max;
+    private double p50;
+    private double p90;
+    private double p99;
+
+    public SalaryStatsDTO() {}
+
+    public Long getRoleId() {
+        return roleId;
+    }
+
+    public void setRoleId(Long roleId) {
+        this.roleId = roleId;
+    }
+
+    public String getRoleName() {
+        return roleName;
+    }
+
+    public void setRoleName(String roleName) {
+        this.roleName = roleName;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public void setMean(double mean) {
+        this.mean = mean;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public void setMin(double min) {
+        this.min = min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public void setMax(double max) {
+        this.max = max;
+    }
+
+    public double getP50() {
+        return p50;
+    }
+
+    public void setP50(double p50) {
+        this.p50 = p50;
+    }
+
+    public double getP90() {
+        return p90;
+    }
+
+    public void setP90(double p90) {
+        this.p90 = p90;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    public void setP99(double p99) {
+        this.p99 = p99;
+    }
+}
@@ -0,0 +1,58 @@
+package it.paa.model.dto.search;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/*
+DTO per i risultati della ricerca full text: tipo (project o technology), id e nome dell'oggetto trovato,
+rank della ricerca e snippet della descrizione con i termini evidenziati
+*/
+@JsonPropertyOrder({"type", "id", "name", "rank", "snippet"})
+public class SearchResultDTO {
+    private String type;
+    private Long id;
+    private String name;
+    private Float rank;
+    private String snippet;
+
+    public SearchResultDTO() {}
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Float getRank() {
+        return rank;
+    }
+
+    public void setRank(Float rank) {
+        this.rank = rank;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public void setSnippet(String snippet) {
+        this.snippet = snippet;
+    }
+}
@@ -0,0 +1,48 @@
+package it.paa.model.dto.suggestion;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/*
+DTO per l'autocomplete di dipendenti (per cognome) e clienti (per nome):
+solo id e nomi, il surname è assente per i clienti
+*/
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"id", "name", "surname"})
+public class SuggestionDTO {
+    private Long id;
+    private String name;
+    private String surname;
+
+    public SuggestionDTO() {}
+
+    public SuggestionDTO(Long id, String name, String surname) {
+        this.id = id;
+        this.name = name;
+        this.surname = surname;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getSurname() {
+        return surname;
+    }
+
+    public void setSurname(String surname) {
+        this.surname = surname;
+    }
+}
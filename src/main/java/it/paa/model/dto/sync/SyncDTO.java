@@ -0,0 +1,83 @@
+package it.paa.model.dto.sync;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import it.paa.model.entity.Customer;
+import it.paa.model.entity.Employee;
+import it.paa.model.entity.Project;
+
+import java.util.List;
+
+/*
+DTO per la sincronizzazione incrementale: oggetti creati o modificati e oggetti cancellati dopo il token ricevuto,
+il nuovo token da usare alla prossima chiamata e se ci sono altre modifiche da leggere subito
+*/
+@JsonPropertyOrder({"token", "has_more", "employees", "projects", "customers", "deleted"})
+public class SyncDTO {
+    private String token;
+    @JsonProperty("has_more")
+    private boolean hasMore;
+    private List<Employee> employees;
+    private List<Project> projects;
+    private List<Customer> customers;
+    private List<TombstoneDTO> deleted;
+
+    public SyncDTO() {}
+
+    public SyncDTO(String token, boolean hasMore, List<Employee> employees, List<Project> projects, List<Customer> customers, List<TombstoneDTO> deleted) {
+        this.token = token;
+        this.hasMore = hasMore;
+        this.employees = employees;
+        this.projects = projects;
+        this.customers = customers;
+        this.deleted = deleted;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public List<Employee> getEmployees() {
+        return employees;
+    }
+
+    public void setEmployees(List<Employee> employees) {
+        this.employees = employees;
+    }
+
+    public List<Project> getProjects() {
+        return projects;
+    }
+
+    public void setProjects(List<Project> projects) {
+        this.projects = projects;
+    }
+
+    public List<Customer> getCustomers() {
+        return customers;
+    }
+
+    public void setCustomers(List<Customer> customers) {
+        this.customers = customers;
+    }
+
+    public List<TombstoneDTO> getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(List<TombstoneDTO> deleted) {
+        this.deleted = deleted;
+    }
+}
@@ -0,0 +1,35 @@
+package it.paa.model.dto.sync;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/*
+DTO per un oggetto cancellato dopo il token di sincronizzazione: tipo (employee, project, customer) e id
+*/
+@JsonPropertyOrder({"type", "id"})
+public class TombstoneDTO {
+    private String type;
+    private Long id;
+
+    public TombstoneDTO() {}
+
+    public TombstoneDTO(String type, Long id) {
+        this.type = type;
+        this.id = id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+}
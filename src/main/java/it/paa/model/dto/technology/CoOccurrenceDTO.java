@@ -0,0 +1,63 @@
+package it.paa.model.dto.technology;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/*
+DTO per la co-occorrenza delle tecnologie: coppia di tecnologie e numero di dipendenti che le hanno entrambe
+*/
+@JsonPropertyOrder({"technology_id", "technology_name", "other_technology_id", "other_technology_name", "employees_count"})
+public class CoOccurrenceDTO {
+    @JsonProperty("technology_id")
+    private Long technologyId;
+    @JsonProperty("technology_name")
+    private String technologyName;
+    @JsonProperty("other_technology_id")
+    private Long otherTechnologyId;
+    @JsonProperty("other_technology_name")
+    private String otherTechnologyName;
+    @JsonProperty("employees_count")
+    private int employeesCount;
+
+    public CoOccurrenceDTO() {}
+
+    public Long getTechnologyId() {
+        return technologyId;
+    }
+
+    public void setTechnologyId(Long technologyId) {
+        this.technologyId = technologyId;
+    }
+
+    public String getTechnologyName() {
+        return technologyName;
+    }
+
+    public void setTechnologyName(String technologyName) {
+        this.technologyName = technologyName;
+    }
+
+    public Long getOtherTechnologyId() {
+        return otherTechnologyId;
+    }
+
+    public void setOtherTechnologyId(Long otherTechnologyId) {
+        this.otherTechnologyId = otherTechnologyId;
+    }
+
+    public String getOtherTechnologyName() {
+        return otherTechnologyName;
+    }
+
+    public void setOtherTechnologyName(String otherTechnologyName) {
+        this.otherTechnologyName = otherTechnologyName;
+    }
+
+    public int getEmployeesCount() {
+        return employeesCount;
+    }
+
+    public void setEmployeesCount(int employeesCount) {
+        this.employeesCount = employeesCount;
+    }
+}
@@ -0,0 +1,48 @@
+package it.paa.model.dto.utilisation;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.time.LocalDate;
+
+/*
+periodo (estremi inclusi) con il numero massimo di progetti contemporanei del dipendente in quel periodo:
+usato sia per i bucket della timeline che per i periodi di sovrallocazione
+*/
+@JsonPropertyOrder({"start", "end", "projects"})
+public class AllocationPeriodDTO {
+    private LocalDate start;
+    private LocalDate end;
+    private int projects;
+
+    public AllocationPeriodDTO() {}
+
+    public AllocationPeriodDTO(LocalDate start, LocalDate end, int projects) {
+        this.start = start;
+        this.end = end;
+        this.projects = projects;
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public void setStart(LocalDate start) {
+        this.start = start;
+    }
+
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    public void setEnd(LocalDate end) {
+        this.end = end;
+    }
+
+    public int getProjects() {
+        return projects;
+    }
+
+    public void setProjects(int projects) {
+        this.projects = projects;
+    }
+}
@@ -0,0 +1,54 @@
+package it.paa.model.dto.utilisation;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.List;
+
+/*
+DTO per l'utilizzo di un dipendente: picco di progetti contemporanei nell'intervallo richiesto,
+timeline per bucket (solo i bucket con almeno un progetto) e periodi in cui supera la soglia
+*/
+@JsonPropertyOrder({"employee_id", "peak", "timeline", "over_allocated"})
+public class EmployeeUtilisationDTO {
+    @JsonProperty("employee_id")
+    private Long employeeId;
+    private int peak;
+    private List<AllocationPeriodDTO> timeline;
+    @JsonProperty("over_allocated")
+    private List<AllocationPeriodDTO> overAllocated;
+
+    public EmployeeUtilisationDTO() {}
+
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(Long employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    public int getPeak() {
+        return peak;
+    }
+
+    public void setPeak(int peak) {
+        this.peak = peak;
+    }
+
+    public List<AllocationPeriodDTO> getTimeline() {
+        return timeline;
+    }
+
+    public void setTimeline(List<AllocationPeriodDTO> timeline) {
+        this.timeline = timeline;
+    }
+
+    public List<AllocationPeriodDTO> getOverAllocated() {
+        return overAllocated;
+    }
+
+    public void setOverAllocated(List<AllocationPeriodDTO> overAllocated) {
+        this.overAllocated = overAllocated;
+    }
+}
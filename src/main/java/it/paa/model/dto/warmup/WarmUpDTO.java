@@ -0,0 +1,123 @@
+package it.paa.model.dto.warmup;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/*
+DTO per la readiness: stato del servizio (UP/DOWN), stato del riscaldamento (PENDING, RUNNING, COMPLETED, FAILED,
+DISABLED), giri eseguiti, durata e a riscaldamento finito la latenza del primo e dell'ultimo giro, totale e per passo
+*/
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"status", "warmup", "iterations", "started_at", "completed_at", "duration_ms", "first_pass_ms", "last_pass_ms", "speedup", "steps", "error"})
+public class WarmUpDTO {
+    private String status;
+    private String warmup;
+    private Integer iterations;
+    @JsonProperty("started_at")
+    private LocalDateTime startedAt;
+    @JsonProperty("completed_at")
+    private LocalDateTime completedAt;
+    @JsonProperty("duration_ms")
+    private Long durationMs;
+    @JsonProperty("first_pass_ms")
+    private Double firstPassMs;
+    @JsonProperty("last_pass_ms")
+    private Double lastPassMs;
+    private Double speedup;
+    private List<WarmUpStepDTO> steps;
+    private String error;
+
+    public WarmUpDTO() {}
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getWarmup() {
+        return warmup;
+    }
+
+    public void setWarmup(String warmup) {
+        this.warmup = warmup;
+    }
+
+    public Integer getIterations() {
+        return iterations;
+    }
+
+    public void setIterations(Integer iterations) {
+        this.iterations = iterations;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public Long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(Long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public Double getFirstPassMs() {
+        return firstPassMs;
+    }
+
+    public void setFirstPassMs(Double firstPassMs) {
+        this.firstPassMs = firstPassMs;
+    }
+
+    public Double getLastPassMs() {
+        return lastPassMs;
+    }
+
+    public void setLastPassMs(Double lastPassMs) {
+        this.lastPassMs = lastPassMs;
+    }
+
+    public Double getSpeedup() {
+        return speedup;
+    }
+
+    public void setSpeedup(Double speedup) {
+        this.speedup = speedup;
+    }
+
+    public List<WarmUpStepDTO> getSteps() {
+        return steps;
+    }
+
+    public void setSteps(List<WarmUpStepDTO> steps) {
+        this.steps = steps;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
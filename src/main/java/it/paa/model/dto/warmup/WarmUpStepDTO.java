@@ -0,0 +1,68 @@
+package it.paa.model.dto.warmup;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/*
+DTO per un passo del riscaldamento: latenza del primo giro (a freddo), dell'ultimo giro e rapporto tra le due
+*/
+@JsonPropertyOrder({"name", "runs", "first_ms", "last_ms", "speedup"})
+public class WarmUpStepDTO {
+    private String name;
+    private Integer runs;
+    @JsonProperty("first_ms")
+    private Double firstMs;
+    @JsonProperty("last_ms")
+    private Double lastMs;
+    private Double speedup;
+
+    public WarmUpStepDTO() {}
+
+    public WarmUpStepDTO(String name, Integer runs, Double firstMs, Double lastMs, Double speedup) {
+        this.name = name;
+        this.runs = runs;
+        this.firstMs = firstMs;
+        this.lastMs = lastMs;
+        this.speedup = speedup;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Integer getRuns() {
+        return runs;
+    }
+
+    public void setRuns(Integer runs) {
+        this.runs = runs;
+    }
+
+    public Double getFirstMs() {
+        return firstMs;
+    }
+
+    public void setFirstMs(Double firstMs) {
+        this.firstMs = firstMs;
+    }
+
+    public Double getLastMs() {
+        return lastMs;
+    }
+
+    public void setLastMs(Double lastMs) {
+        this.lastMs = lastMs;
+    }
+
+    public Double getSpeedup() {
+        return speedup;
+    }
+
+    public void setSpeedup(Double speedup) {
+        this.speedup = speedup;
+    }
+}
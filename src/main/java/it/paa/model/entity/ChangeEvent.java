@@ -0,0 +1,127 @@
+package it.paa.model.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/*
+riga dell'outbox delle modifiche: scritta nella stessa transazione della modifica che descrive, quindi esiste
+solo se la modifica è stata salvata. I consumer riprendono il feed dalla posizione (tx_id, id), vedi ChangePosition
+ */
+@Entity
+@Table(name = "change_events", indexes = @Index(name = "change_events_position_idx", columnList = "tx_id, id"))
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    //transazione che ha scritto la riga (txid_current()), dà l'ordine dei commit
+    @Column(name = "tx_id", nullable = false)
+    @JsonIgnore
+    private Long txId;
+
+    //employee, customer, project, role, technology o l'associazione (project_employee, technology_employee)
+    @Column(name = "entity_type", nullable = false)
+    @JsonProperty("entity_type")
+    private String entityType;
+
+    @Column(name = "entity_id")
+    @JsonProperty("entity_id")
+    private Long entityId;
+
+    //solo per le associazioni: l'id dell'altro lato (dipendente)
+    @Column(name = "related_id")
+    @JsonProperty("related_id")
+    private Long relatedId;
+
+    //CREATE, UPDATE, DELETE, ADD, REMOVE, SALARY_FLOOR
+    @Column(name = "operation", nullable = false)
+    private String operation;
+
+    @Column(name = "entity_version")
+    @JsonProperty("entity_version")
+    private Long entityVersion;
+
+    @Column(name = "occurred_at", nullable = false)
+    @JsonProperty("occurred_at")
+    private LocalDateTime occurredAt;
+
+    public ChangeEvent() {}
+
+    public ChangeEvent(String entityType, Long entityId, Long relatedId, String operation, Long entityVersion) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.relatedId = relatedId;
+        this.operation = operation;
+        this.entityVersion = entityVersion;
+        this.occurredAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getTxId() {
+        return txId;
+    }
+
+    public void setTxId(Long txId) {
+        this.txId = txId;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(String entityType) {
+        this.entityType = entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    public Long getRelatedId() {
+        return relatedId;
+    }
+
+    public void setRelatedId(Long relatedId) {
+        this.relatedId = relatedId;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public Long getEntityVersion() {
+        return entityVersion;
+    }
+
+    public void setEntityVersion(Long entityVersion) {
+        this.entityVersion = entityVersion;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(LocalDateTime occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+}
@@ -29,6 +29,10 @@ public class Customer {
     @JsonProperty("contact_person")
     private Employee employee;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     public Customer() {}
 
     public Long getId() {
@@ -39,6 +43,14 @@ public class Customer {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getName() {
         return name;
     }
@@ -65,6 +65,10 @@ public class Employee {
     @JsonIgnore
     private Set<Technology> technologiesList;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     public Employee() {
     }
 
@@ -76,6 +80,14 @@ public class Employee {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getName() {
         return name;
     }
@@ -5,13 +5,15 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import it.paa.validation.ProjectDates;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.Generated;
 
 import java.time.LocalDate;
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "projects")
+@Table(name = "projects", indexes = @Index(name = "projects_staffing_cost_idx", columnList = "staffing_cost, id"))
 @ProjectDates
 public class Project {
     @Id
@@ -34,6 +36,21 @@ public class Project {
     @JsonProperty("end_date")
     private LocalDate endDate;
 
+    /*
+    aggregati denormalizzati dello staffing (somma degli stipendi e numero dei dipendenti sul progetto):
+    mantenuti da ProjectService con update SQL, quindi mai scritti da hibernate; letti dopo l'insert
+    */
+    @Column(name = "staffing_cost", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    @Generated
+    @JsonProperty("staffing_cost")
+    private Long staffingCost;
+
+    @Column(name = "headcount", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    @Generated
+    private Integer headcount;
+
     @ManyToMany
     @JoinTable(
             name = "project_employee",
@@ -43,6 +60,10 @@ public class Project {
     @JsonIgnore
     private Set<Employee> employeesList;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     public Project() {}
 
     public Long getId() {
@@ -53,6 +74,14 @@ public class Project {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getName() {
         return name;
     }
@@ -85,6 +114,22 @@ public class Project {
         this.endDate = endDate;
     }
 
+    public Long getStaffingCost() {
+        return staffingCost;
+    }
+
+    public void setStaffingCost(Long staffingCost) {
+        this.staffingCost = staffingCost;
+    }
+
+    public Integer getHeadcount() {
+        return headcount;
+    }
+
+    public void setHeadcount(Integer headcount) {
+        this.headcount = headcount;
+    }
+
     public Set<Employee> getEmployeesList() {
         return employeesList;
     }
@@ -34,6 +34,10 @@ public class Role {
     @JsonIgnore
     private List<Employee> employeeList;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     public Role() {}
 
     public Long getId() {
@@ -44,6 +48,14 @@ public class Role {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getName() {
         return name;
     }
@@ -37,6 +37,10 @@ public class Technology {
     @JsonIgnore
     private Set<Employee> employeesList;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     public Technology() {}
 
     public Long getId() {
@@ -47,6 +51,14 @@ public class Technology {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getName() {
         return name;
     }
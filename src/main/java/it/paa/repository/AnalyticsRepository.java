@@ -0,0 +1,8 @@
+package it.paa.repository;
+
+import java.util.List;
+import java.util.Map;
+
+public interface AnalyticsRepository {
+    List<Map<String, Object>> getCube(String dims) throws IllegalArgumentException;
+}
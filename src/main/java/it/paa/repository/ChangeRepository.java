@@ -0,0 +1,14 @@
+package it.paa.repository;
+
+import it.paa.model.entity.ChangeEvent;
+import it.paa.util.ChangePosition;
+
+import java.util.List;
+
+public interface ChangeRepository {
+    ChangePosition getWatermark();
+
+    List<ChangeEvent> getSince(ChangePosition from, ChangePosition watermark, int limit) throws IllegalArgumentException;
+
+    List<ChangeEvent> getSince(ChangePosition from, int limit) throws IllegalArgumentException;
+}
@@ -1,16 +1,25 @@
 package it.paa.repository;
 
+import it.paa.model.dto.suggestion.SuggestionDTO;
 import it.paa.model.entity.Customer;
+import it.paa.util.FieldSelection;
+import it.paa.util.SharedBody;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.validation.ConstraintViolationException;
-import jakarta.ws.rs.NotFoundException;
-import jakarta.ws.rs.core.NoContentException;
+import jakarta.ws.rs.core.EntityTag;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 public interface CustomerRepository {
-    List<Customer> getAll(String name, String sector) throws NoContentException;
-    Customer getById(Long id) throws NotFoundException;
+    List<Customer> getAll(String name, String sector);
+    Optional<Customer> findById(Long id);
+    Optional<SharedBody> findSharedById(Long id);
+    List<Map<String, Object>> getAll(FieldSelection fields, String name, String sector);
+    Optional<Map<String, Object>> findById(Long id, FieldSelection fields);
     Customer save(Customer customer) throws ConstraintViolationException;
-    Customer update(Customer customer) throws ConstraintViolationException;
-    void delete(Long id) throws ConstraintViolationException;
+    Customer update(Customer customer) throws OptimisticLockException, ConstraintViolationException;
+    void delete(Long id, EntityTag expected) throws OptimisticLockException, ConstraintViolationException;
+    List<SuggestionDTO> suggest(String prefix, int limit) throws IllegalArgumentException;
 }
@@ -1,20 +1,35 @@
 package it.paa.repository;
 
+import it.paa.model.dto.employee.EmployeeMatchDTO;
+import it.paa.model.dto.suggestion.SuggestionDTO;
+import it.paa.model.dto.utilisation.EmployeeUtilisationDTO;
 import it.paa.model.entity.Employee;
+import it.paa.util.FieldSelection;
+import it.paa.util.SharedBody;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.NotFoundException;
-import jakarta.ws.rs.core.NoContentException;
+import jakarta.ws.rs.core.EntityTag;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 public interface EmployeeRepository {
-    List<Employee> getAll(String surname, LocalDate startDate, LocalDate endDate) throws NoContentException,IllegalArgumentException;
-    Employee getById(Long id) throws NotFoundException;
+    List<Employee> getAll(String surname, LocalDate startDate, LocalDate endDate) throws IllegalArgumentException;
+    Optional<Employee> findById(Long id);
+    Optional<SharedBody> findSharedById(Long id);
+    List<Map<String, Object>> getAll(FieldSelection fields, String surname, LocalDate startDate, LocalDate endDate) throws IllegalArgumentException;
+    Optional<Map<String, Object>> findById(Long id, FieldSelection fields);
     Employee save(Employee employee) throws ConstraintViolationException;
-    Employee update(Employee employee) throws ConstraintViolationException;
-    void delete(Long id) throws NotFoundException, BadRequestException;
+    Employee update(Employee employee) throws OptimisticLockException, ConstraintViolationException;
+    void delete(Long id, EntityTag expected) throws OptimisticLockException, NotFoundException, BadRequestException;
     void addTechnology(Long employeeId, Long technologyId) throws NotFoundException, IllegalArgumentException;
     void removeTechnology(Long employeeId, Long technologyId) throws NotFoundException, IllegalArgumentException;
+    List<EmployeeMatchDTO> match(List<Long> technologyIds, Integer minExperience, String mode, int limit) throws IllegalArgumentException;
+    Optional<Long> findMissingTechnology(List<Long> technologyIds);
+    List<EmployeeUtilisationDTO> getUtilisation(LocalDate from, LocalDate to, String bucket, int threshold) throws IllegalArgumentException;
+    List<SuggestionDTO> suggest(String prefix, int limit) throws IllegalArgumentException;
 }
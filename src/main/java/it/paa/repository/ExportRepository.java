@@ -0,0 +1,13 @@
+package it.paa.repository;
+
+import it.paa.model.dto.export.ExportJobDTO;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+public interface ExportRepository {
+    ExportJobDTO start(String type, String format) throws IllegalArgumentException, RejectedExecutionException;
+    Optional<ExportJobDTO> findJob(String id);
+    Optional<Path> findFile(String id) throws IllegalStateException;
+}
@@ -1,19 +1,38 @@
 package it.paa.repository;
 
+import it.paa.model.dto.project.ProjectCostDTO;
+import it.paa.model.dto.project.StaffingConflictDTO;
+import it.paa.model.dto.project.TeamRecommendationDTO;
 import it.paa.model.entity.Project;
+import it.paa.util.FieldSelection;
+import it.paa.util.SharedBody;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.ws.rs.NotFoundException;
-import jakarta.ws.rs.core.NoContentException;
+import jakarta.ws.rs.core.EntityTag;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 public interface ProjectRepository {
-    List<Project> getAll(String name, LocalDate startDate, LocalDate endDate) throws NoContentException,IllegalArgumentException;
-    Project getById(Long id) throws NotFoundException;
+    List<Project> getAll(String name, LocalDate startDate, LocalDate endDate) throws IllegalArgumentException;
+    Optional<Project> findById(Long id);
+    Optional<SharedBody> findSharedById(Long id);
+    List<Project> getActiveBetween(LocalDate from, LocalDate to) throws IllegalArgumentException;
+    List<Project> getActiveOn(LocalDate date) throws IllegalArgumentException;
+    List<Map<String, Object>> getAll(FieldSelection fields, String name, LocalDate startDate, LocalDate endDate) throws IllegalArgumentException;
+    Optional<Map<String, Object>> findById(Long id, FieldSelection fields);
     Project save(Project project) throws ConstraintViolationException;
-    Project update(Project project) throws ConstraintViolationException;
-    void delete(Long id) throws NotFoundException;
+    Project update(Project project) throws OptimisticLockException, ConstraintViolationException;
+    void delete(Long id, EntityTag expected) throws OptimisticLockException, NotFoundException;
     void addEmployee(Long projectId, Long employeeId) throws NotFoundException, IllegalArgumentException;
+    List<StaffingConflictDTO> addEmployee(Long projectId, Long employeeId, Integer maxOverlaps, String onConflict) throws NotFoundException, IllegalArgumentException, IllegalStateException;
     void removeEmployee(Long projectId, Long employeeId) throws NotFoundException, IllegalArgumentException;
+    List<StaffingConflictDTO> getConflicts();
+    Optional<ProjectCostDTO> findCost(Long id);
+    List<ProjectCostDTO> getByCost(String order, int page, int size) throws IllegalArgumentException;
+    Optional<TeamRecommendationDTO> recommendTeam(Long projectId, List<Long> technologyIds, int budgetMillis) throws IllegalArgumentException;
+    Optional<Long> findMissingTechnology(List<Long> technologyIds);
 }
@@ -1,17 +1,29 @@
 package it.paa.repository;
 
+import it.paa.model.dto.role.RoleUpdateDTO;
+import it.paa.model.dto.role.SalaryReportDTO;
 import it.paa.model.entity.Role;
+import it.paa.util.FieldSelection;
+import it.paa.util.SharedBody;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.persistence.PersistenceException;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.ws.rs.NotFoundException;
-import jakarta.ws.rs.core.NoContentException;
+import jakarta.ws.rs.core.EntityTag;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 public interface RoleRepository {
-    List<Role> getAll(String name, Float min_salary) throws NoContentException;
-    Role getById(Long id) throws NotFoundException;
+    List<Role> getAll(String name, Float min_salary);
+    Optional<Role> findById(Long id);
+    Optional<SharedBody> findSharedById(Long id);
+    List<Map<String, Object>> getAll(FieldSelection fields, String name, Float min_salary);
+    Optional<Map<String, Object>> findById(Long id, FieldSelection fields);
     Role save(Role role) throws PersistenceException, ConstraintViolationException;
-    Role update(Role role) throws PersistenceException, ConstraintViolationException;
-    void delete(Long id) throws NotFoundException;
+    Role update(Role role) throws OptimisticLockException, PersistenceException, ConstraintViolationException;
+    RoleUpdateDTO update(Role role, boolean raiseSalaries) throws OptimisticLockException, PersistenceException, ConstraintViolationException;
+    void delete(Long id, EntityTag expected) throws OptimisticLockException, NotFoundException;
+    SalaryReportDTO getSalaryStats();
 }
@@ -0,0 +1,9 @@
+package it.paa.repository;
+
+import it.paa.model.dto.search.SearchResultDTO;
+
+import java.util.List;
+
+public interface SearchRepository {
+    List<SearchResultDTO> search(String text, int page, int size) throws IllegalArgumentException;
+}
@@ -0,0 +1,7 @@
+package it.paa.repository;
+
+import it.paa.model.dto.sync.SyncDTO;
+
+public interface SyncRepository {
+    SyncDTO getChanges(String since, int limit) throws IllegalArgumentException, IllegalStateException;
+}
@@ -1,16 +1,26 @@
 package it.paa.repository;
 
+import it.paa.model.dto.technology.CoOccurrenceDTO;
 import it.paa.model.entity.Technology;
+import it.paa.util.FieldSelection;
+import it.paa.util.SharedBody;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.ws.rs.NotFoundException;
-import jakarta.ws.rs.core.NoContentException;
+import jakarta.ws.rs.core.EntityTag;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 public interface TechnologyRepository {
-    List<Technology> getAll(String name, Integer minExperienceLevel) throws NoContentException;
-    Technology getById(Long id) throws NotFoundException;
+    List<Technology> getAll(String name, Integer minExperienceLevel);
+    Optional<Technology> findById(Long id);
+    Optional<SharedBody> findSharedById(Long id);
+    List<Map<String, Object>> getAll(FieldSelection fields, String name, Integer minExperienceLevel);
+    Optional<Map<String, Object>> findById(Long id, FieldSelection fields);
     Technology save(Technology technology) throws ConstraintViolationException;
-    Technology update(Technology technology) throws ConstraintViolationException;
-    void delete(Long id) throws NotFoundException;
+    Technology update(Technology technology) throws OptimisticLockException, ConstraintViolationException;
+    void delete(Long id, EntityTag expected) throws OptimisticLockException, NotFoundException;
+    Optional<List<CoOccurrenceDTO>> getCoOccurrence(int top, Long technologyId) throws IllegalArgumentException;
 }
@@ -0,0 +1,42 @@
+package it.paa.resource;
+
+import it.paa.limit.EndpointClass;
+import it.paa.limit.Limited;
+import it.paa.service.AnalyticsService;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.util.List;
+import java.util.Map;
+
+@Path("/analytics")
+@Limited(EndpointClass.ANALYTICS)
+public class AnalyticsResource {
+
+    @Inject
+    AnalyticsService analyticsService;
+
+    //conteggio di clienti, progetti e dipendenti per le dimensioni richieste (sector, technology, role) con i subtotali
+    @GET
+    @Path("/cube")
+    public Response getCube(@QueryParam("dims") @DefaultValue("sector,technology,role") String dims) {
+        try {
+            List<Map<String, Object>> cube = analyticsService.getCube(dims);
+            if (cube.isEmpty())
+                return Response.noContent()
+                        .build();
+
+            return Response.ok(cube).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
+                    .build();
+        }
+    }
+}
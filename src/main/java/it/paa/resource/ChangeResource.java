@@ -0,0 +1,75 @@
+package it.paa.resource;
+
+import it.paa.event.ChangeFeed;
+import it.paa.limit.EndpointClass;
+import it.paa.limit.Limited;
+import it.paa.model.entity.ChangeEvent;
+import it.paa.service.ChangeService;
+import it.paa.util.ChangePosition;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+import java.util.List;
+
+@Path("/changes")
+public class ChangeResource {
+
+    @Inject
+    ChangeService changeService;
+
+    @Inject
+    ChangeFeed changeFeed;
+
+    /*
+    feed SSE delle modifiche. Con offset (o l'header Last-Event-ID, inviato dai client SSE alla riconnessione)
+    si ricevono prima gli eventi dell'outbox successivi a quella posizione (<tx_id>-<id>, l'id degli eventi), poi quelli nuovi
+    */
+    @GET
+    @Path("/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @Limited(EndpointClass.UNLIMITED)
+    public void stream(@QueryParam("offset") String offset, @HeaderParam("Last-Event-ID") String lastEventId, @Context SseEventSink sink, @Context Sse sse) {
+        String value = offset != null ? offset : lastEventId;
+        ChangePosition from = null;
+
+        if (value != null) {
+            try {
+                from = ChangePosition.parse(value);
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("offset and Last-Event-ID must be an event id");
+            }
+        }
+
+        ChangeFeed.Subscriber subscriber = changeFeed.subscribe(sink, sse);
+        //posizione già nota al client: anche gli eventi live fino a lì sono doppioni
+        ChangePosition replayed = from;
+
+        //replay dall'outbox a pagine fino alla watermark, aspettando ogni invio
+        try {
+            while (from != null) {
+                List<ChangeEvent> changes = changeService.getSince(from, ChangeService.MAX_PAGE_SIZE);
+
+                for (ChangeEvent change : changes) {
+                    sink.send(ChangeFeed.toSse(sse, change)).toCompletableFuture().join();
+                    replayed = ChangePosition.of(change);
+                }
+
+                from = changes.size() < ChangeService.MAX_PAGE_SIZE ? null : replayed;
+            }
+        } catch (RuntimeException e) {
+            subscriber.close();
+            return;
+        }
+
+        subscriber.start(replayed);
+    }
+}
@@ -1,19 +1,30 @@
 package it.paa.resource;
 
+import it.paa.limit.EndpointClass;
+import it.paa.limit.Limited;
 import it.paa.model.dto.customer.CustomerPostDTO;
 import it.paa.model.dto.customer.CustomerPutDTO;
+import it.paa.model.dto.suggestion.SuggestionDTO;
 import it.paa.model.entity.Customer;
 import it.paa.model.entity.Employee;
 import it.paa.service.CustomerService;
+import it.paa.util.FieldSelection;
+import it.paa.util.SharedBody;
+import it.paa.util.VersionTag;
 import jakarta.inject.Inject;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
-import jakarta.ws.rs.core.NoContentException;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Path("/customers")
 public class CustomerResource {
@@ -23,12 +34,52 @@ public class CustomerResource {
 
     //get all con filtri facoltativi
     @GET
-    public Response getAll(@QueryParam("name") String name, @QueryParam("sector") String sector) {
+    @Limited(EndpointClass.LIST)
+    public Response getAll(@QueryParam("name") String name, @QueryParam("sector") String sector, @QueryParam("fields") String fields) {
         try {
+            //fields= facoltativo: solo i campi richiesti, validati con la whitelist
+            FieldSelection selection = FieldSelection.parse(fields, CustomerService.FIELDS);
+
+            if (!selection.isAll()) {
+                List<Map<String, Object>> rows = customerService.getAll(selection, name, sector);
+                if (rows.isEmpty())
+                    return Response.noContent()
+                            .build();
+
+                return Response.ok(rows).build();
+            }
+
             List<Customer> customerList = customerService.getAll(name, sector);
+            if (customerList.isEmpty())
+                return Response.noContent()
+                        .build();
+
             return Response.ok(customerList).build();
-        } catch (NoContentException e) {
-            return Response.noContent()
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
+                    .build();
+        }
+    }
+
+    //autocomplete per nome: prefisso dall'indice in memoria, completato con la ricerca per similarità
+    @GET
+    @Path("/suggest")
+    public Response suggest(@QueryParam("prefix") String prefix, @QueryParam("limit") @DefaultValue("10") int limit) {
+        try {
+            List<SuggestionDTO> suggestions = customerService.suggest(prefix, limit);
+            if (suggestions.isEmpty())
+                return Response.noContent()
+                        .build();
+
+            return Response.ok(suggestions)
+                    .type(MediaType.APPLICATION_JSON)
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
                     .build();
         }
     }
@@ -36,14 +87,53 @@ public class CustomerResource {
     //get by id
     @GET
     @Path("/customer_id/{customer_id}")
-    public Response getById(@PathParam("customer_id") Long customer_id) {
+    public Response getById(@PathParam("customer_id") Long customer_id, @QueryParam("fields") String fields, @Context Request request) {
         try {
-            Customer customer = customerService.getById(customer_id);
-            return Response.ok(customer)
+            //fields= facoltativo: solo i campi richiesti, validati con la whitelist
+            FieldSelection selection = FieldSelection.parse(fields, CustomerService.FIELDS);
+
+            //If-None-Match: se cliente e referente non sono cambiati si risponde 304 senza caricare il cliente
+            Optional<EntityTag> versionTag = customerService.findEntityTag(customer_id);
+            if (versionTag.isEmpty())
+                return Response.status(Response.Status.NOT_FOUND)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("customer not found")
+                        .build();
+
+            EntityTag tag = selection.tag(versionTag.get());
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+            if (notModified != null)
+                return notModified.tag(tag).build();
+
+            if (!selection.isAll()) {
+                Optional<Map<String, Object>> row = customerService.findById(customer_id, selection);
+                if (row.isEmpty())
+                    return Response.status(Response.Status.NOT_FOUND)
+                            .type(MediaType.TEXT_PLAIN)
+                            .entity("customer not found")
+                            .build();
+
+                return Response.ok(row.get())
+                        .type(MediaType.APPLICATION_JSON)
+                        .tag(tag)
+                        .build();
+            }
+
+            Optional<SharedBody> existing = customerService.findSharedById(customer_id);
+            if (existing.isEmpty())
+                return Response.status(Response.Status.NOT_FOUND)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("customer not found")
+                        .build();
+
+            //la lettura può essere condivisa con richieste concorrenti: corpo già serializzato e tag della versione restituita
+            SharedBody body = existing.get();
+            return Response.ok(body.getJson())
                     .type(MediaType.APPLICATION_JSON)
+                    .tag(selection.tag(body.getTag()))
                     .build();
-        } catch (NotFoundException e) {
-            return Response.status(Response.Status.NOT_FOUND)
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
                     .type(MediaType.TEXT_PLAIN)
                     .entity(e.getMessage())
                     .build();
@@ -61,14 +151,14 @@ public class CustomerResource {
         //ricerca del dipendente in caso sia specificato nel json
         Employee employee = null;
         if (customerDTO.getEmployeeId() != null) {
-            try {
-                employee = customerService.getEmployeeById(customerDTO.getEmployeeId());
-            } catch (NotFoundException e) {
+            Optional<Employee> contactPerson = customerService.findEmployeeById(customerDTO.getEmployeeId());
+            if (contactPerson.isEmpty())
                 return Response.status(Response.Status.NOT_FOUND)
                         .type(MediaType.TEXT_PLAIN)
-                        .entity(e.getMessage())
+                        .entity("employee not found")
                         .build();
-            }
+
+            employee = contactPerson.get();
         }
 
         //passaggio di dati dal dto all'oggetto base
@@ -97,7 +187,7 @@ public class CustomerResource {
     @PUT
     @Path("/customer_id/{customer_id}")
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response update(@PathParam("customer_id") Long customer_id, CustomerPutDTO customerDTO) {
+    public Response update(@PathParam("customer_id") Long customer_id, CustomerPutDTO customerDTO, @Context Request request) {
         //controllo per evitare crash in caso di json nullo
         if (customerDTO == null)
             return Response.status(Response.Status.BAD_REQUEST).build();
@@ -106,44 +196,56 @@ public class CustomerResource {
         if (customerDTO.isAllEmpty())
             return Response.status(Response.Status.NOT_MODIFIED).build();
 
-        try {
-            //set di ogni parametro nun nullo nel json, con eventuali controlli dove necessario
-            Customer customer = customerService.getById(customer_id);
+        //set di ogni parametro nun nullo nel json, con eventuali controlli dove necessario
+        Optional<Customer> existing = customerService.findById(customer_id);
+        if (existing.isEmpty())
+            return Response.status(Response.Status.NOT_FOUND)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity("customer not found")
+                    .build();
 
-            if (customerDTO.getName() != null)
-                customer.setName(customerDTO.getName());
+        Customer customer = existing.get();
 
-            if (customerDTO.getSector() != null)
-                customer.setSector(customerDTO.getSector());
+        //controllo If-Match: se il client ha una versione diversa da quella attuale si risponde 412
+        Response.ResponseBuilder precondition = request.evaluatePreconditions(customerService.getEntityTag(customer));
+        if (precondition != null)
+            return precondition.build();
 
-            if (customerDTO.getAddress() != null)
-                customer.setAddress(customerDTO.getAddress());
+        if (customerDTO.getName() != null)
+            customer.setName(customerDTO.getName());
 
-            if (customerDTO.getEmployeeId() != null) {
-                try {
-                    Employee employee = customerService.getEmployeeById(customerDTO.getEmployeeId());
-                    customer.setEmployee(employee);
-                } catch (NotFoundException e) {
-                    return Response.status(Response.Status.NOT_FOUND)
-                            .type(MediaType.TEXT_PLAIN)
-                            .entity(e.getMessage())
-                            .build();
-                }
-            }
+        if (customerDTO.getSector() != null)
+            customer.setSector(customerDTO.getSector());
+
+        if (customerDTO.getAddress() != null)
+            customer.setAddress(customerDTO.getAddress());
 
-            try {
-                return Response.ok(customerService.update(customer)).build();
-            } catch (ConstraintViolationException e) {
-                return Response.status(Response.Status.BAD_REQUEST)
+        if (customerDTO.getEmployeeId() != null) {
+            Optional<Employee> contactPerson = customerService.findEmployeeById(customerDTO.getEmployeeId());
+            if (contactPerson.isEmpty())
+                return Response.status(Response.Status.NOT_FOUND)
                         .type(MediaType.TEXT_PLAIN)
-                        .entity(e.getMessage())
+                        .entity("employee not found")
                         .build();
-            }
-        } catch (NotFoundException e) {
-            return Response.status(Response.Status.NOT_FOUND)
+
+            customer.setEmployee(contactPerson.get());
+        }
+
+        try {
+            Customer updated = customerService.update(customer);
+            return Response.ok(updated)
+                    .tag(customerService.getEntityTag(updated))
+                    .build();
+        } catch (ConstraintViolationException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
                     .type(MediaType.TEXT_PLAIN)
                     .entity(e.getMessage())
                     .build();
+        } catch (OptimisticLockException e) {
+            return Response.status(Response.Status.PRECONDITION_FAILED)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity("customer was modified by another request")
+                    .build();
         }
     }
 
@@ -165,14 +267,25 @@ public class CustomerResource {
     //delete del dipendente
     @DELETE
     @Path("/customer_id/{customer_id}")
-    public Response delete(@PathParam("customer_id") Long customer_id) {
+    public Response delete(@PathParam("customer_id") Long customer_id, @HeaderParam("If-Match") String ifMatch) {
         try {
-            customerService.delete(customer_id);
+            //If-Match confrontato dal service sulla riga bloccata, nella stessa transazione della cancellazione
+            customerService.delete(customer_id, VersionTag.parse(ifMatch));
             return Response.ok().build();
         } catch (NotFoundException e) {
             return Response.status(Response.Status.NOT_FOUND)
                     .type(MediaType.TEXT_PLAIN)
                     .build();
+        } catch (OptimisticLockException e) {
+            return Response.status(Response.Status.PRECONDITION_FAILED)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity("invalid If-Match")
+                    .build();
         }
     }
 }
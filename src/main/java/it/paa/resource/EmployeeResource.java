@@ -1,24 +1,37 @@
 package it.paa.resource;
 
+import it.paa.limit.EndpointClass;
+import it.paa.limit.Limited;
+import it.paa.model.dto.employee.EmployeeMatchDTO;
 import it.paa.model.dto.employee.EmployeePostDTO;
 import it.paa.model.dto.employee.EmployeeProjectsCustomersDTO;
 import it.paa.model.dto.employee.EmployeePutDTO;
+import it.paa.model.dto.suggestion.SuggestionDTO;
+import it.paa.model.dto.utilisation.EmployeeUtilisationDTO;
 import it.paa.model.entity.*;
 import it.paa.service.EmployeeService;
+import it.paa.util.FieldSelection;
+import it.paa.util.SharedBody;
 import it.paa.util.DateStringParser;
+import it.paa.util.VersionTag;
 import jakarta.inject.Inject;
-import jakarta.persistence.NoResultException;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
-import jakarta.ws.rs.core.NoContentException;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 @Path("/employees")
@@ -29,7 +42,8 @@ public class EmployeeResource {
 
     //get all con filtri facoltativi
     @GET
-    public Response getAll(@QueryParam("surname") String surname, @QueryParam("hiring date start interval") String startDateString, @QueryParam("hiring date end interval") String endDateString) {
+    @Limited(EndpointClass.LIST)
+    public Response getAll(@QueryParam("surname") String surname, @QueryParam("hiring date start interval") String startDateString, @QueryParam("hiring date end interval") String endDateString, @QueryParam("fields") String fields) {
         //passaggio delle date da stringa a LocalDate (fatto per dare la possibilità di passarla in 2 possibili formati)
         try {
             LocalDate startDate = null;
@@ -57,122 +71,285 @@ public class EmployeeResource {
                 }
             }
 
+            //fields= facoltativo: solo i campi richiesti, validati con la whitelist
+            FieldSelection selection = FieldSelection.parse(fields, EmployeeService.FIELDS);
+
+            if (!selection.isAll()) {
+                List<Map<String, Object>> rows = employeeService.getAll(selection, surname, startDate, endDate);
+                if (rows.isEmpty())
+                    return Response.noContent()
+                            .build();
+
+                return Response.ok(rows).build();
+            }
+
             List<Employee> employees = employeeService.getAll(surname, startDate, endDate);
+            if (employees.isEmpty())
+                return Response.noContent()
+                        .build();
+
             return Response.ok(employees).build();
         } catch (IllegalArgumentException e) {
             return Response.status(Response.Status.BAD_REQUEST)
                     .type(MediaType.TEXT_PLAIN)
                     .entity(e.getMessage())
                     .build();
-        } catch (NoContentException e) {
-            return Response.noContent()
-                    .build();
         }
     }
 
-    //get by id
+    //autocomplete per cognome: prefisso dall'indice in memoria, completato con la ricerca per similarità
     @GET
-    @Path("/employee_id/{employee_id}")
-    public Response getById(@PathParam("employee_id") Long employeeId) {
+    @Path("/suggest")
+    public Response suggest(@QueryParam("prefix") String prefix, @QueryParam("limit") @DefaultValue("10") int limit) {
         try {
-            Employee employee = employeeService.getById(employeeId);
-            return Response.ok(employee)
+            List<SuggestionDTO> suggestions = employeeService.suggest(prefix, limit);
+            if (suggestions.isEmpty())
+                return Response.noContent()
+                        .build();
+
+            return Response.ok(suggestions)
                     .type(MediaType.APPLICATION_JSON)
                     .build();
-        } catch (NotFoundException e) {
-            return Response.status(Response.Status.NOT_FOUND)
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
                     .type(MediaType.TEXT_PLAIN)
                     .entity(e.getMessage())
                     .build();
         }
     }
 
-    //get lista clienti da un dipendente
+    /*
+    dipendenti con le competenze richieste (technologies=1,5,9): mode=all tutte, mode=any almeno una,
+    ordinati per copertura
+    */
     @GET
-    @Path("/employee_id/{employee_id}/customers")
-    public Response getCustomers(@PathParam("employee_id") Long employeeId) {
-        try {
-            Employee employee = employeeService.getById(employeeId);
-
-            Set<Customer> customerList = employee.getCustomerList();
+    @Path("/match")
+    @Limited(EndpointClass.ANALYTICS)
+    public Response match(@QueryParam("technologies") String technologies, @QueryParam("min_experience") Integer minExperience, @QueryParam("mode") @DefaultValue("all") String mode, @QueryParam("limit") @DefaultValue("50") int limit) {
+        List<Long> technologyIds = new ArrayList<>();
 
-            if (customerList.isEmpty())
-                return Response.status(Response.Status.NO_CONTENT)
+        if (technologies != null) {
+            try {
+                for (String technologyId : technologies.split(","))
+                    if (!technologyId.isBlank())
+                        technologyIds.add(Long.parseLong(technologyId.trim()));
+            } catch (NumberFormatException e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("technologies must be a comma separated list of ids")
                         .build();
+            }
+        }
 
-            return Response.ok(customerList).build();
-        } catch (NotFoundException e) {
+        Optional<Long> missing = employeeService.findMissingTechnology(technologyIds);
+        if (missing.isPresent())
             return Response.status(Response.Status.NOT_FOUND)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity("technology " + missing.get() + " not found")
+                    .build();
+
+        try {
+            List<EmployeeMatchDTO> matches = employeeService.match(technologyIds, minExperience, mode, limit);
+            if (matches.isEmpty())
+                return Response.noContent()
+                        .build();
+
+            return Response.ok(matches).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
                     .type(MediaType.TEXT_PLAIN)
                     .entity(e.getMessage())
                     .build();
         }
     }
 
-    //get lista progetti da un dipendente
+    //utilizzo dei dipendenti (progetti contemporanei) nell'intervallo, per bucket di giorni, settimane o mesi
     @GET
-    @Path("/employee_id/{employee_id}/projects")
-    public Response getProjects(@PathParam("employee_id") Long employeeId) {
-        try {
-            Employee employee = employeeService.getById(employeeId);
+    @Path("/utilisation")
+    @Limited(EndpointClass.ANALYTICS)
+    public Response getUtilisation(@QueryParam("from") String fromString, @QueryParam("to") String toString, @QueryParam("bucket") @DefaultValue("week") String bucket, @QueryParam("threshold") @DefaultValue("1") int threshold) {
+        LocalDate from = null;
+        LocalDate to = null;
 
-            Set<Project> projectList = employee.getProjectList();
+        if (fromString != null) {
+            try {
+                from = DateStringParser.parse(fromString);
+            } catch (Exception e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("from: " + e.getMessage())
+                        .build();
+            }
+        }
 
-            if (projectList.isEmpty())
-                return Response.status(Response.Status.NO_CONTENT)
+        if (toString != null) {
+            try {
+                to = DateStringParser.parse(toString);
+            } catch (Exception e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("to: " + e.getMessage())
                         .build();
+            }
+        }
 
-            return Response.ok(projectList).build();
-        } catch (NotFoundException e) {
-            return Response.status(Response.Status.NOT_FOUND)
+        try {
+            List<EmployeeUtilisationDTO> utilisation = employeeService.getUtilisation(from, to, bucket, threshold);
+            if (utilisation.isEmpty())
+                return Response.noContent()
+                        .build();
+
+            return Response.ok(utilisation).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
                     .type(MediaType.TEXT_PLAIN)
                     .entity(e.getMessage())
                     .build();
         }
     }
 
-    //get lista tecnologie da un dipendente
+    //get by id
     @GET
-    @Path("/employee_id/{employee_id}/technologies")
-    public Response getTechnologies(@PathParam("employee_id") Long employeeId) {
+    @Path("/employee_id/{employee_id}")
+    public Response getById(@PathParam("employee_id") Long employeeId, @QueryParam("fields") String fields, @Context Request request) {
         try {
-            Employee employee = employeeService.getById(employeeId);
+            //fields= facoltativo: solo i campi richiesti, validati con la whitelist
+            FieldSelection selection = FieldSelection.parse(fields, EmployeeService.FIELDS);
+
+            //If-None-Match: se dipendente e ruolo non sono cambiati si risponde 304 senza caricare il dipendente
+            Optional<EntityTag> versionTag = employeeService.findEntityTag(employeeId);
+            if (versionTag.isEmpty())
+                return Response.status(Response.Status.NOT_FOUND)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("employee not found")
+                        .build();
+
+            EntityTag tag = selection.tag(versionTag.get());
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+            if (notModified != null)
+                return notModified.tag(tag).build();
+
+            if (!selection.isAll()) {
+                Optional<Map<String, Object>> row = employeeService.findById(employeeId, selection);
+                if (row.isEmpty())
+                    return Response.status(Response.Status.NOT_FOUND)
+                            .type(MediaType.TEXT_PLAIN)
+                            .entity("employee not found")
+                            .build();
 
-            Set<Technology> technologiesList = employee.getTechnologiesList();
+                return Response.ok(row.get())
+                        .type(MediaType.APPLICATION_JSON)
+                        .tag(tag)
+                        .build();
+            }
 
-            if (technologiesList.isEmpty())
-                return Response.status(Response.Status.NO_CONTENT)
+            Optional<SharedBody> existing = employeeService.findSharedById(employeeId);
+            if (existing.isEmpty())
+                return Response.status(Response.Status.NOT_FOUND)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("employee not found")
                         .build();
 
-            return Response.ok(technologiesList).build();
-        } catch (NotFoundException e) {
-            return Response.status(Response.Status.NOT_FOUND)
+            //la lettura può essere condivisa con richieste concorrenti: corpo già serializzato e tag della versione restituita
+            SharedBody body = existing.get();
+            return Response.ok(body.getJson())
+                    .type(MediaType.APPLICATION_JSON)
+                    .tag(selection.tag(body.getTag()))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
                     .type(MediaType.TEXT_PLAIN)
                     .entity(e.getMessage())
                     .build();
         }
     }
 
+    //get lista clienti da un dipendente
+    @GET
+    @Path("/employee_id/{employee_id}/customers")
+    public Response getCustomers(@PathParam("employee_id") Long employeeId) {
+        Optional<Employee> existing = employeeService.findById(employeeId);
+        if (existing.isEmpty())
+            return Response.status(Response.Status.NOT_FOUND)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity("employee not found")
+                    .build();
+
+        Employee employee = existing.get();
+
+        Set<Customer> customerList = employee.getCustomerList();
+
+        if (customerList.isEmpty())
+            return Response.status(Response.Status.NO_CONTENT)
+                    .build();
+
+        return Response.ok(customerList).build();
+    }
+
+    //get lista progetti da un dipendente
+    @GET
+    @Path("/employee_id/{employee_id}/projects")
+    public Response getProjects(@PathParam("employee_id") Long employeeId) {
+        Optional<Employee> existing = employeeService.findById(employeeId);
+        if (existing.isEmpty())
+            return Response.status(Response.Status.NOT_FOUND)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity("employee not found")
+                    .build();
+
+        Employee employee = existing.get();
+
+        Set<Project> projectList = employee.getProjectList();
+
+        if (projectList.isEmpty())
+            return Response.status(Response.Status.NO_CONTENT)
+                    .build();
+
+        return Response.ok(projectList).build();
+    }
+
+    //get lista tecnologie da un dipendente
+    @GET
+    @Path("/employee_id/{employee_id}/technologies")
+    public Response getTechnologies(@PathParam("employee_id") Long employeeId) {
+        Optional<Employee> existing = employeeService.findById(employeeId);
+        if (existing.isEmpty())
+            return Response.status(Response.Status.NOT_FOUND)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity("employee not found")
+                    .build();
+
+        Employee employee = existing.get();
+
+        Set<Technology> technologiesList = employee.getTechnologiesList();
+
+        if (technologiesList.isEmpty())
+            return Response.status(Response.Status.NO_CONTENT)
+                    .build();
+
+        return Response.ok(technologiesList).build();
+    }
+
     //get lista clienti e tecnologie da un dipendente (esercitazione avanzata 1)
     @GET
     @Path("/employee_id/{employee_id}/technologies_and_clients")
     public Response getTechnologiesAndClients(@PathParam("employee_id") Long employeeId) {
-        try {
-            Employee employee = employeeService.getById(employeeId);
-
-            //usato un dto specifico
-            EmployeeProjectsCustomersDTO employeeDto = new EmployeeProjectsCustomersDTO();
-            employeeDto.setEmployee(employee);
-            employeeDto.setProjects(employee.getProjectList());
-            employeeDto.setCustomers(employee.getCustomerList());
-
-            return Response.ok(employeeDto).build();
-        } catch (NotFoundException e) {
+        Optional<Employee> existing = employeeService.findById(employeeId);
+        if (existing.isEmpty())
             return Response.status(Response.Status.NOT_FOUND)
                     .type(MediaType.TEXT_PLAIN)
-                    .entity(e.getMessage())
+                    .entity("employee not found")
                     .build();
-        }
+
+        Employee employee = existing.get();
+
+        //usato un dto specifico
+        EmployeeProjectsCustomersDTO employeeDto = new EmployeeProjectsCustomersDTO();
+        employeeDto.setEmployee(employee);
+        employeeDto.setProjects(employee.getProjectList());
+        employeeDto.setCustomers(employee.getCustomerList());
+
+        return Response.ok(employeeDto).build();
     }
 
     //post dipendente
@@ -198,15 +375,14 @@ public class EmployeeResource {
         }
 
         //ricerca del ruolo
-        Role role;
-        try {
-            role = employeeService.getRoleByName(employeeDTO.getRoleName());
-        } catch (NoResultException e) {
+        Optional<Role> existingRole = employeeService.findRoleByName(employeeDTO.getRoleName());
+        if (existingRole.isEmpty())
             return Response.status(Response.Status.NOT_FOUND)
                     .type(MediaType.TEXT_PLAIN)
-                    .entity(e.getMessage())
+                    .entity("role not found")
                     .build();
-        }
+
+        Role role = existingRole.get();
 
         Employee employee = new Employee();
 
@@ -257,14 +433,13 @@ public class EmployeeResource {
                     .entity(e.getMessage())
                     .build();
         }
-
     }
 
     //update dipendente
     @PUT
     @Path("/employee_id/{employee_id}")
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response update(@PathParam("employee_id") Long employee_id, EmployeePutDTO employeeDTO) {
+    public Response update(@PathParam("employee_id") Long employee_id, EmployeePutDTO employeeDTO, @Context Request request) {
         //controllo per evitare crash in caso di json nullo
         if (employeeDTO == null)
             return Response.status(Response.Status.BAD_REQUEST).build();
@@ -272,79 +447,91 @@ public class EmployeeResource {
         //controllo in caso di json vuoto
         if (employeeDTO.isAllEmpty())
             return Response.status(Response.Status.NOT_MODIFIED).build();
-        try {
-            Employee old = employeeService.getById(employee_id);
+        Optional<Employee> existing = employeeService.findById(employee_id);
+        if (existing.isEmpty())
+            return Response.status(Response.Status.NOT_FOUND)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity("employee not found")
+                    .build();
+
+        Employee old = existing.get();
 
-            //set di ogni parametro nun nullo nel json, con eventuali controlli dove necessario
-            if (employeeDTO.getName() != null)
-                old.setName(employeeDTO.getName());
+        //controllo If-Match: se il client ha una versione diversa da quella attuale si risponde 412
+        Response.ResponseBuilder precondition = request.evaluatePreconditions(employeeService.getEntityTag(old));
+        if (precondition != null)
+            return precondition.build();
 
-            if (employeeDTO.getSurname() != null)
-                old.setSurname(employeeDTO.getSurname());
+        //set di ogni parametro nun nullo nel json, con eventuali controlli dove necessario
+        if (employeeDTO.getName() != null)
+            old.setName(employeeDTO.getName());
 
-            if (employeeDTO.getHiringDate() != null) {
-                LocalDate hiringDate = null;
+        if (employeeDTO.getSurname() != null)
+            old.setSurname(employeeDTO.getSurname());
+
+        if (employeeDTO.getHiringDate() != null) {
+            LocalDate hiringDate = null;
+            try {
+                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+                hiringDate = LocalDate.parse(employeeDTO.getHiringDate(), formatter);
+                old.setHiringDate(hiringDate);
+            } catch (DateTimeParseException e) {
                 try {
-                    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+                    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
                     hiringDate = LocalDate.parse(employeeDTO.getHiringDate(), formatter);
                     old.setHiringDate(hiringDate);
-                } catch (DateTimeParseException e) {
-                    try {
-                        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
-                        hiringDate = LocalDate.parse(employeeDTO.getHiringDate(), formatter);
-                        old.setHiringDate(hiringDate);
-                    } catch (DateTimeParseException ex) {
-                        return Response.status(Response.Status.BAD_REQUEST)
-                                .type(MediaType.TEXT_PLAIN)
-                                .entity("hiring_date: Invalid date format")
-                                .build();
-                    }
-                }
-            }
-
-            if (employeeDTO.getRoleName() != null) {
-                if (employeeDTO.getRoleName().isEmpty() || employeeDTO.getRoleName().isBlank())
+                } catch (DateTimeParseException ex) {
                     return Response.status(Response.Status.BAD_REQUEST)
                             .type(MediaType.TEXT_PLAIN)
-                            .entity("role cannot be empty")
-                            .build();
-                try {
-                    Role role = employeeService.getRoleByName(employeeDTO.getRoleName());
-                    old.setRole(role);
-                } catch (NoResultException e) {
-                    return Response.status(Response.Status.NOT_FOUND)
-                            .type(MediaType.TEXT_PLAIN)
-                            .entity(e.getMessage())
+                            .entity("hiring_date: Invalid date format")
                             .build();
                 }
             }
+        }
 
-            if(employeeDTO.getExperienceLevel() != null)
-                old.setExperienceLevel(employeeDTO.getExperienceLevel());
+        if (employeeDTO.getRoleName() != null) {
+            if (employeeDTO.getRoleName().isEmpty() || employeeDTO.getRoleName().isBlank())
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("role cannot be empty")
+                        .build();
+            Optional<Role> role = employeeService.findRoleByName(employeeDTO.getRoleName());
+            if (role.isEmpty())
+                return Response.status(Response.Status.NOT_FOUND)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("role not found")
+                        .build();
 
-            if (employeeDTO.getSalary() != null) {
-                if (employeeDTO.getSalary() < old.getRole().getMinSalary()) {
-                    return Response.status(Response.Status.BAD_REQUEST)
-                            .type(MediaType.TEXT_PLAIN)
-                            .entity("employees's salary cannot be lower than role role's minimum salary")
-                            .build();
-                } else
-                    old.setSalary(employeeDTO.getSalary());
-            }
+            old.setRole(role.get());
+        }
 
-            try {
-                return Response.ok(employeeService.update(old)).build();
-            } catch (ConstraintViolationException e) {
+        if(employeeDTO.getExperienceLevel() != null)
+            old.setExperienceLevel(employeeDTO.getExperienceLevel());
+
+        if (employeeDTO.getSalary() != null) {
+            if (employeeDTO.getSalary() < old.getRole().getMinSalary()) {
                 return Response.status(Response.Status.BAD_REQUEST)
                         .type(MediaType.TEXT_PLAIN)
-                        .entity(e.getMessage())
+                        .entity("employees's salary cannot be lower than role role's minimum salary")
                         .build();
-            }
-        } catch (NotFoundException e) {
-            return Response.status(Response.Status.NOT_FOUND)
+            } else
+                old.setSalary(employeeDTO.getSalary());
+        }
+
+        try {
+            Employee updated = employeeService.update(old);
+            return Response.ok(updated)
+                    .tag(employeeService.getEntityTag(updated))
+                    .build();
+        } catch (ConstraintViolationException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
                     .type(MediaType.TEXT_PLAIN)
                     .entity(e.getMessage())
                     .build();
+        } catch (OptimisticLockException e) {
+            return Response.status(Response.Status.PRECONDITION_FAILED)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity("employee was modified by another request")
+                    .build();
         }
     }
 
@@ -391,14 +578,25 @@ public class EmployeeResource {
     //delete dipendente
     @DELETE
     @Path("/employee_id/{employee_id}")
-    public Response delete(@PathParam("employee_id") Long employee_id) {
+    public Response delete(@PathParam("employee_id") Long employee_id, @HeaderParam("If-Match") String ifMatch) {
         try {
-            employeeService.delete(employee_id);
+            //If-Match confrontato dal service sulla riga bloccata, nella stessa transazione della cancellazione
+            employeeService.delete(employee_id, VersionTag.parse(ifMatch));
             return Response.ok().build();
         } catch (NotFoundException e) {
             return Response.status(Response.Status.NOT_FOUND)
                     .type(MediaType.TEXT_PLAIN)
                     .build();
+        } catch (OptimisticLockException e) {
+            return Response.status(Response.Status.PRECONDITION_FAILED)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity("invalid If-Match")
+                    .build();
         } catch (BadRequestException e) {
             return Response.status(Response.Status.BAD_REQUEST)
                     .type(MediaType.TEXT_PLAIN)
@@ -0,0 +1,85 @@
+package it.paa.resource;
+
+import it.paa.model.dto.export.ExportJobDTO;
+import it.paa.service.ExportService;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
+
+@Path("/exports")
+public class ExportResource {
+    //secondi suggeriti al client prima di riprovare quando gli export sono al completo
+    private static final int RETRY_AFTER_SECONDS = 30;
+
+    @Inject
+    ExportService exportService;
+
+    //avvio di un export in background (employees, projects, customers), risponde subito con lo stato
+    @POST
+    public Response start(@QueryParam("type") String type, @QueryParam("format") @DefaultValue("csv") String format) {
+        try {
+            ExportJobDTO job = exportService.start(type, format);
+            return Response.accepted(job)
+                    .location(URI.create("/exports/" + job.getId()))
+                    .type(MediaType.APPLICATION_JSON)
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (RejectedExecutionException e) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
+                    .build();
+        }
+    }
+
+    //stato e avanzamento di un export
+    @GET
+    @Path("/{id}")
+    public Response getJob(@PathParam("id") String id) {
+        return exportService.findJob(id)
+                .map(job -> Response.ok(job)
+                        .type(MediaType.APPLICATION_JSON)
+                        .build())
+                .orElseGet(() -> Response.status(Response.Status.NOT_FOUND)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("export not found")
+                        .build());
+    }
+
+    //file di un export finito: il Path viene inviato dal server direttamente dal disco (sendfile), senza copiarlo in memoria
+    @GET
+    @Path("/{id}/file")
+    public Response getFile(@PathParam("id") String id) {
+        try {
+            return exportService.findFile(id)
+                    .map(file -> Response.ok(file)
+                            .type("text/csv")
+                            .header("Content-Disposition", "attachment; filename=\"" + file.getFileName() + "\"")
+                            .build())
+                    .orElseGet(() -> Response.status(Response.Status.NOT_FOUND)
+                            .type(MediaType.TEXT_PLAIN)
+                            .entity("export not found")
+                            .build());
+        } catch (IllegalStateException e) {
+            return Response.status(Response.Status.CONFLICT)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package it.paa.resource;
+
+import it.paa.config.WarmUp;
+import it.paa.limit.EndpointClass;
+import it.paa.limit.Limited;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+@Path("/health")
+@Limited(EndpointClass.UNLIMITED)
+public class HealthResource {
+    //secondi suggeriti alla sonda prima di riprovare durante il riscaldamento
+    private static final int RETRY_AFTER_SECONDS = 5;
+
+    @Inject
+    WarmUp warmUp;
+
+    //liveness: il processo risponde
+    @GET
+    @Path("/live")
+    public Response live() {
+        return Response.ok().build();
+    }
+
+    //readiness: 503 finché il riscaldamento non è finito, poi 200 con durata e latenze del primo e dell'ultimo giro
+    @GET
+    @Path("/ready")
+    public Response ready() {
+        if (!warmUp.isReady())
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity(warmUp.report())
+                    .build();
+
+        return Response.ok(warmUp.report())
+                .type(MediaType.APPLICATION_JSON)
+                .build();
+    }
+}
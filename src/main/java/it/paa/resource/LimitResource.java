@@ -0,0 +1,26 @@
+package it.paa.resource;
+
+import it.paa.limit.ConcurrencyLimits;
+import it.paa.limit.EndpointClass;
+import it.paa.limit.Limited;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+@Path("/limits")
+@Limited(EndpointClass.UNLIMITED)
+public class LimitResource {
+
+    @Inject
+    ConcurrencyLimits concurrencyLimits;
+
+    //limiti di concorrenza attuali per classe di endpoint, con richieste in corso, accettate e rifiutate
+    @GET
+    public Response getLimits() {
+        return Response.ok(concurrencyLimits.stats())
+                .type(MediaType.APPLICATION_JSON)
+                .build();
+    }
+}
@@ -1,21 +1,34 @@
 package it.paa.resource;
 
+import it.paa.limit.EndpointClass;
+import it.paa.limit.Limited;
 import it.paa.model.dto.project.ProjectPostDTO;
+import it.paa.model.dto.project.ProjectCostDTO;
 import it.paa.model.dto.project.ProjectPutDTO;
+import it.paa.model.dto.project.StaffingConflictDTO;
 import it.paa.model.entity.Employee;
 import it.paa.model.entity.Project;
 import it.paa.service.ProjectService;
+import it.paa.util.FieldSelection;
+import it.paa.util.SharedBody;
 import it.paa.util.DateStringParser;
+import it.paa.util.VersionTag;
 import jakarta.inject.Inject;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
-import jakarta.ws.rs.core.NoContentException;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 @Path("/projects")
@@ -26,7 +39,8 @@ public class ProjectResource {
 
     //get all con filtri facoltativi
     @GET
-    public Response getAll(@QueryParam("name") String name, @QueryParam("start date") String startDateString, @QueryParam("end date") String endDateString) {
+    @Limited(EndpointClass.LIST)
+    public Response getAll(@QueryParam("name") String name, @QueryParam("start date") String startDateString, @QueryParam("end date") String endDateString, @QueryParam("fields") String fields) {
         LocalDate startDate = null;
         LocalDate endDate = null;
 
@@ -54,28 +68,202 @@ public class ProjectResource {
         }
 
         try {
+            //fields= facoltativo: solo i campi richiesti, validati con la whitelist
+            FieldSelection selection = FieldSelection.parse(fields, ProjectService.FIELDS);
+
+            if (!selection.isAll()) {
+                List<Map<String, Object>> rows = projectService.getAll(selection, name, startDate, endDate);
+                if (rows.isEmpty())
+                    return Response.noContent()
+                            .build();
+
+                return Response.ok(rows).build();
+            }
+
             List<Project> projectList = projectService.getAll(name, startDate, endDate);
+            if (projectList.isEmpty())
+                return Response.noContent()
+                        .build();
+
             return Response.ok(projectList).build();
         } catch (IllegalArgumentException e) {
             return Response.status(Response.Status.BAD_REQUEST)
                     .type(MediaType.TEXT_PLAIN)
                     .entity(e.getMessage())
                     .build();
-        } catch (NoContentException e) {
-            return Response.noContent()
+        }
+    }
+
+    //progetti attivi in almeno un giorno dell'intervallo (to facoltativo: intervallo aperto)
+    @GET
+    @Path("/active")
+    @Limited(EndpointClass.LIST)
+    public Response getActiveBetween(@QueryParam("from") String fromString, @QueryParam("to") String toString) {
+        LocalDate from = null;
+        LocalDate to = null;
+
+        if (fromString != null) {
+            try {
+                from = DateStringParser.parse(fromString);
+            } catch (Exception e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("from: " + e.getMessage())
+                        .build();
+            }
+        }
+
+        if (toString != null) {
+            try {
+                to = DateStringParser.parse(toString);
+            } catch (Exception e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("to: " + e.getMessage())
+                        .build();
+            }
+        }
+
+        try {
+            List<Project> projectList = projectService.getActiveBetween(from, to);
+            if (projectList.isEmpty())
+                return Response.noContent()
+                        .build();
+
+            return Response.ok(projectList).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
                     .build();
         }
     }
 
+    //progetti attivi in una data
+    @GET
+    @Path("/active_on")
+    @Limited(EndpointClass.LIST)
+    public Response getActiveOn(@QueryParam("date") String dateString) {
+        LocalDate date = null;
+
+        if (dateString != null) {
+            try {
+                date = DateStringParser.parse(dateString);
+            } catch (Exception e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("date: " + e.getMessage())
+                        .build();
+            }
+        }
+
+        try {
+            List<Project> projectList = projectService.getActiveOn(date);
+            if (projectList.isEmpty())
+                return Response.noContent()
+                        .build();
+
+            return Response.ok(projectList).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
+                    .build();
+        }
+    }
+
+    //progetti ordinati per costo di staffing (order=desc di default), paginati
+    @GET
+    @Path("/by_cost")
+    @Limited(EndpointClass.ANALYTICS)
+    public Response getByCost(@QueryParam("order") @DefaultValue("desc") String order, @QueryParam("page") @DefaultValue("0") int page, @QueryParam("size") @DefaultValue("20") int size) {
+        try {
+            List<ProjectCostDTO> costs = projectService.getByCost(order, page, size);
+            if (costs.isEmpty())
+                return Response.noContent()
+                        .build();
+
+            return Response.ok(costs).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
+                    .build();
+        }
+    }
+
+    //costo di staffing di un progetto (somma degli stipendi e numero di dipendenti)
+    @GET
+    @Path("/project_id/{project_id}/cost")
+    public Response getCost(@PathParam("project_id") Long projectId) {
+        return projectService.findCost(projectId)
+                .map(cost -> Response.ok(cost).build())
+                .orElseGet(() -> Response.status(Response.Status.NOT_FOUND)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("project not found")
+                        .build());
+    }
+
+    //report delle sovrapposizioni di staffing (stesso dipendente su progetti con periodi sovrapposti)
+    @GET
+    @Path("/conflicts")
+    @Limited(EndpointClass.ANALYTICS)
+    public Response getConflicts() {
+        List<StaffingConflictDTO> conflicts = projectService.getConflicts();
+        if (conflicts.isEmpty())
+            return Response.noContent()
+                    .build();
+
+        return Response.ok(conflicts).build();
+    }
+
     //get by id
     @GET
     @Path("/project_id/{project_id}")
-    public Response getById(@PathParam("project_id") Long projectId) {
+    public Response getById(@PathParam("project_id") Long projectId, @QueryParam("fields") String fields, @Context Request request) {
         try {
-            Project project = projectService.getById(projectId);
-            return Response.ok(project).build();
-        } catch (NotFoundException e) {
-            return Response.status(Response.Status.NOT_FOUND)
+            //fields= facoltativo: solo i campi richiesti, validati con la whitelist
+            FieldSelection selection = FieldSelection.parse(fields, ProjectService.FIELDS);
+
+            //If-None-Match: se la versione non è cambiata si risponde 304 senza caricare il progetto
+            Optional<EntityTag> versionTag = projectService.findEntityTag(projectId);
+            if (versionTag.isEmpty())
+                return Response.status(Response.Status.NOT_FOUND)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("project not found")
+                        .build();
+
+            EntityTag tag = selection.tag(versionTag.get());
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+            if (notModified != null)
+                return notModified.tag(tag).build();
+
+            if (!selection.isAll()) {
+                Optional<Map<String, Object>> row = projectService.findById(projectId, selection);
+                if (row.isEmpty())
+                    return Response.status(Response.Status.NOT_FOUND)
+                            .type(MediaType.TEXT_PLAIN)
+                            .entity("project not found")
+                            .build();
+
+                return Response.ok(row.get()).tag(tag).build();
+            }
+
+            Optional<SharedBody> existing = projectService.findSharedById(projectId);
+            if (existing.isEmpty())
+                return Response.status(Response.Status.NOT_FOUND)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("project not found")
+                        .build();
+
+            //la lettura può essere condivisa con richieste concorrenti: corpo già serializzato e tag della versione restituita
+            SharedBody body = existing.get();
+            return Response.ok(body.getJson())
+                    .type(MediaType.APPLICATION_JSON)
+                    .tag(selection.tag(body.getTag()))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
                     .type(MediaType.TEXT_PLAIN)
                     .entity(e.getMessage())
                     .build();
@@ -86,15 +274,14 @@ public class ProjectResource {
     @GET
     @Path("/project_id/{project_id}/employees")
     public Response getEmployees(@PathParam("project_id") Long projectId) {
-        Project project;
-        try{
-            project = projectService.getById(projectId);
-        } catch (NotFoundException e) {
+        Optional<Project> existing = projectService.findById(projectId);
+        if (existing.isEmpty())
             return Response.status(Response.Status.NOT_FOUND)
                     .type(MediaType.TEXT_PLAIN)
-                    .entity(e.getMessage())
+                    .entity("project not found")
                     .build();
-        }
+
+        Project project = existing.get();
         Set<Employee> employeeList = project.getEmployeesList();
 
         if(employeeList.isEmpty()){
@@ -163,7 +350,7 @@ public class ProjectResource {
     @PUT
     @Path("/project_id/{project_id}")
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response update(@PathParam("project_id") Long projectId, ProjectPutDTO projectDTO) {
+    public Response update(@PathParam("project_id") Long projectId, ProjectPutDTO projectDTO, @Context Request request) {
         //controllo per evitare crash in caso di json nullo
         if (projectDTO == null)
             return Response.status(Response.Status.BAD_REQUEST).build();
@@ -172,15 +359,19 @@ public class ProjectResource {
         if (projectDTO.isAllEmpty())
             return Response.status(Response.Status.NOT_MODIFIED).build();
 
-        Project old;
-        try {
-            old = projectService.getById(projectId);
-        } catch (NotFoundException e) {
+        Optional<Project> existing = projectService.findById(projectId);
+        if (existing.isEmpty())
             return Response.status(Response.Status.NOT_FOUND)
                     .type(MediaType.TEXT_PLAIN)
-                    .entity(e.getMessage())
+                    .entity("project not found")
                     .build();
-        }
+
+        Project old = existing.get();
+
+        //controllo If-Match: se il client ha una versione diversa da quella attuale si risponde 412
+        Response.ResponseBuilder precondition = request.evaluatePreconditions(VersionTag.of(old.getVersion()));
+        if (precondition != null)
+            return precondition.build();
 
         //set di ogni parametro nun nullo nel json, con eventuali controlli dove necessario
         if (projectDTO.getName() != null)
@@ -216,21 +407,83 @@ public class ProjectResource {
         }
 
         try {
-            return Response.ok(projectService.update(old)).build();
+            Project updated = projectService.update(old);
+            return Response.ok(updated)
+                    .tag(VersionTag.of(updated.getVersion()))
+                    .build();
         } catch (ConstraintViolationException e) {
             return Response.status(Response.Status.BAD_REQUEST)
                     .type(MediaType.TEXT_PLAIN)
                     .entity(e.getMessage())
                     .build();
+        } catch (OptimisticLockException e) {
+            return Response.status(Response.Status.PRECONDITION_FAILED)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity("project was modified by another request")
+                    .build();
+        }
+    }
+
+    /*
+    team consigliato per il progetto che copre le tecnologie richieste (technologies=1,5,9),
+    calcolato entro budget_ms millisecondi
+    */
+    @GET
+    @Path("/project_id/{project_id}/recommend_team")
+    @Limited(EndpointClass.ANALYTICS)
+    public Response recommendTeam(@PathParam("project_id") Long projectId, @QueryParam("technologies") String technologies, @QueryParam("budget_ms") @DefaultValue("200") int budgetMillis) {
+        List<Long> technologyIds = new ArrayList<>();
+
+        if (technologies != null) {
+            try {
+                for (String technologyId : technologies.split(","))
+                    if (!technologyId.isBlank())
+                        technologyIds.add(Long.parseLong(technologyId.trim()));
+            } catch (NumberFormatException e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("technologies must be a comma separated list of ids")
+                        .build();
+            }
+        }
+
+        Optional<Long> missing = projectService.findMissingTechnology(technologyIds);
+        if (missing.isPresent())
+            return Response.status(Response.Status.NOT_FOUND)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity("technology " + missing.get() + " not found")
+                    .build();
+
+        try {
+            return projectService.recommendTeam(projectId, technologyIds, budgetMillis)
+                    .map(recommendation -> Response.ok(recommendation).build())
+                    .orElseGet(() -> Response.status(Response.Status.NOT_FOUND)
+                            .type(MediaType.TEXT_PLAIN)
+                            .entity("project not found")
+                            .build());
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
+                    .build();
         }
     }
 
-    //aggiunta dipendente a progetto
+    /*
+    aggiunta dipendente a progetto; con max_overlaps si controllano i progetti sovrapposti del dipendente:
+    on_conflict=reject (default) risponde 409, on_conflict=warn aggiunge e restituisce le sovrapposizioni
+    */
     @PUT
     @Path("/project_id/{project_id}/add_eployee/{employee_id}")
-    public Response addEmployee(@PathParam("project_id") Long projectId, @PathParam("employee_id") Long employeeId) {
+    public Response addEmployee(@PathParam("project_id") Long projectId, @PathParam("employee_id") Long employeeId, @QueryParam("max_overlaps") Integer maxOverlaps, @QueryParam("on_conflict") String onConflict) {
         try {
-            projectService.addEmployee(projectId, employeeId);
+            List<StaffingConflictDTO> conflicts = projectService.addEmployee(projectId, employeeId, maxOverlaps, onConflict);
+
+            if (!conflicts.isEmpty())
+                return Response.ok(conflicts)
+                        .type(MediaType.APPLICATION_JSON)
+                        .build();
+
             return Response.ok().build();
         } catch (NotFoundException e) {
             return Response.status(Response.Status.NOT_FOUND)
@@ -242,6 +495,11 @@ public class ProjectResource {
                     .type(MediaType.TEXT_PLAIN)
                     .entity(e.getMessage())
                     .build();
+        } catch (IllegalStateException e) {
+            return Response.status(Response.Status.CONFLICT)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
+                    .build();
         }
     }
 
@@ -268,15 +526,26 @@ public class ProjectResource {
     //delete progetto
     @DELETE
     @Path("/project_id/{project_id}")
-    public Response delete(@PathParam("project_id") Long projectId) {
+    public Response delete(@PathParam("project_id") Long projectId, @HeaderParam("If-Match") String ifMatch) {
         try {
-            projectService.delete(projectId);
+            //If-Match confrontato dal service sulla riga bloccata, nella stessa transazione della cancellazione
+            projectService.delete(projectId, VersionTag.parse(ifMatch));
             return Response.ok().build();
         } catch (NotFoundException e) {
             return Response.status(Response.Status.NOT_FOUND)
                     .type(MediaType.TEXT_PLAIN)
                     .entity(e.getMessage())
                     .build();
+        } catch (OptimisticLockException e) {
+            return Response.status(Response.Status.PRECONDITION_FAILED)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity("invalid If-Match")
+                    .build();
         }
     }
 }
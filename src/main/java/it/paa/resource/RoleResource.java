@@ -1,20 +1,32 @@
 package it.paa.resource;
 
+import it.paa.limit.EndpointClass;
+import it.paa.limit.Limited;
 import it.paa.model.dto.role.RolePostDTO;
 import it.paa.model.dto.role.RolePutDTO;
+import it.paa.model.dto.role.RoleUpdateDTO;
+import it.paa.model.dto.role.SalaryReportDTO;
 import it.paa.model.entity.Employee;
 import it.paa.model.entity.Role;
 import it.paa.service.RoleService;
+import it.paa.util.FieldSelection;
+import it.paa.util.SharedBody;
+import it.paa.util.VersionTag;
 import jakarta.inject.Inject;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.persistence.PersistenceException;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
-import jakarta.ws.rs.core.NoContentException;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Path("/roles")
 public class RoleResource {
@@ -24,14 +36,43 @@ public class RoleResource {
 
     //get all con filtri facoltativi
     @GET
-    public Response getAll(@QueryParam("name") String name, @QueryParam("minimum_salary") Float minSalary) {
+    @Limited(EndpointClass.LIST)
+    public Response getAll(@QueryParam("name") String name, @QueryParam("minimum_salary") Float minSalary, @QueryParam("fields") String fields, @Context Request request) {
         try {
+            //fields= facoltativo: solo i campi richiesti, validati con la whitelist
+            FieldSelection selection = FieldSelection.parse(fields, RoleService.FIELDS);
+
+            //If-None-Match: se la tabella non è cambiata si risponde 304 senza caricare i ruoli
+            EntityTag tag = selection.tag(roleService.getListEntityTag(name, minSalary));
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+            if (notModified != null)
+                return notModified.tag(tag).build();
+
+            if (!selection.isAll()) {
+                List<Map<String, Object>> rows = roleService.getAll(selection, name, minSalary);
+                if (rows.isEmpty())
+                    return Response.noContent()
+                            .build();
+
+                return Response.ok(rows)
+                        .type(MediaType.APPLICATION_JSON)
+                        .tag(tag)
+                        .build();
+            }
+
             List<Role> roles = roleService.getAll(name, minSalary);
+            if (roles.isEmpty())
+                return Response.noContent()
+                        .build();
+
             return Response.ok(roles)
                     .type(MediaType.APPLICATION_JSON)
+                    .tag(tag)
                     .build();
-        } catch (NoContentException e) {
-            return Response.noContent()
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
                     .build();
         }
     }
@@ -39,40 +80,92 @@ public class RoleResource {
     //get by id
     @GET
     @Path("/role_id/{role_id}")
-    public Response getById(@PathParam("role_id") Long id) {
+    public Response getById(@PathParam("role_id") Long id, @QueryParam("fields") String fields, @Context Request request) {
         try {
-            Role role = roleService.getById(id);
-            return Response.ok(role)
+            //fields= facoltativo: solo i campi richiesti, validati con la whitelist
+            FieldSelection selection = FieldSelection.parse(fields, RoleService.FIELDS);
+
+            //If-None-Match: se la versione non è cambiata si risponde 304 senza caricare il ruolo
+            Optional<EntityTag> versionTag = roleService.findEntityTag(id);
+            if (versionTag.isEmpty())
+                return Response.status(Response.Status.NOT_FOUND)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("role not found")
+                        .build();
+
+            EntityTag tag = selection.tag(versionTag.get());
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+            if (notModified != null)
+                return notModified.tag(tag).build();
+
+            if (!selection.isAll()) {
+                Optional<Map<String, Object>> row = roleService.findById(id, selection);
+                if (row.isEmpty())
+                    return Response.status(Response.Status.NOT_FOUND)
+                            .type(MediaType.TEXT_PLAIN)
+                            .entity("role not found")
+                            .build();
+
+                return Response.ok(row.get())
+                        .type(MediaType.APPLICATION_JSON)
+                        .tag(tag)
+                        .build();
+            }
+
+            Optional<SharedBody> existing = roleService.findSharedById(id);
+            if (existing.isEmpty())
+                return Response.status(Response.Status.NOT_FOUND)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("role not found")
+                        .build();
+
+            //la lettura può essere condivisa con richieste concorrenti: corpo già serializzato e tag della versione restituita
+            SharedBody body = existing.get();
+            return Response.ok(body.getJson())
                     .type(MediaType.APPLICATION_JSON)
+                    .tag(selection.tag(body.getTag()))
                     .build();
-        } catch (NotFoundException e) {
-            return Response.status(Response.Status.NOT_FOUND)
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
                     .type(MediaType.TEXT_PLAIN)
                     .entity(e.getMessage())
                     .build();
         }
     }
 
+    //statistiche degli stipendi (count, media, min/max, percentili) per ruolo e totali
+    @GET
+    @Path("/salary_stats")
+    @Limited(EndpointClass.ANALYTICS)
+    public Response getSalaryStats() {
+        SalaryReportDTO report = roleService.getSalaryStats();
+        if (report.getRoles().isEmpty())
+            return Response.noContent()
+                    .build();
+
+        return Response.ok(report).build();
+    }
+
     //get lista dipendenti da un ruolo
     @GET
     @Path("/role_id/{role_id}/employees")
     public Response getEmployees(@PathParam("role_id") Long id) {
-        try {
-            Role role = roleService.getById(id);
-
-            List<Employee> employeeList = role.getEmployeeList();
-            if (employeeList.isEmpty()) {
-                return Response.status(Response.Status.NO_CONTENT)
-                        .build();
-            }
-
-            return Response.ok(employeeList).build();
-        } catch (NotFoundException e) {
+        Optional<Role> existing = roleService.findById(id);
+        if (existing.isEmpty())
             return Response.status(Response.Status.NOT_FOUND)
                     .type(MediaType.TEXT_PLAIN)
-                    .entity(e.getMessage())
+                    .entity("role not found")
+                    .build();
+
+        Role role = existing.get();
+
+        List<Employee> employeeList = role.getEmployeeList();
+        if (employeeList.isEmpty()) {
+            return Response.status(Response.Status.NO_CONTENT)
                     .build();
         }
+
+        return Response.ok(employeeList).build();
     }
 
     //post ruolo
@@ -105,11 +198,14 @@ public class RoleResource {
         }
     }
 
-    //update ruolo
+    /*
+    update ruolo; con raise_salaries=true gli stipendi dei dipendenti del ruolo sotto il nuovo minimo vengono portati
+    al minimo nella stessa transazione, il numero di dipendenti aggiornati è nell'header X-Employees-Updated
+    */
     @PUT
     @Path("/role_id/{role_id}")
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response update(@PathParam("role_id") Long id, RolePutDTO roleDTO) {
+    public Response update(@PathParam("role_id") Long id, RolePutDTO roleDTO, @QueryParam("raise_salaries") @DefaultValue("false") boolean raiseSalaries, @Context Request request) {
 
         if (roleDTO == null)
             return Response.status(Response.Status.BAD_REQUEST).build();
@@ -118,31 +214,46 @@ public class RoleResource {
             return Response.status(Response.Status.NOT_MODIFIED).build();
 
 
-        try {
-            Role old = roleService.getById(id);
-            //metodo per vedere univocità del nome in ignore case per la PUT
-            if (roleDTO.getName() != null)
-                old.setName(roleDTO.getName());
-
-            if (roleDTO.getMinSalary() != null)
-                old.setMinSalary(roleDTO.getMinSalary());
-
-            try {
-                return Response.ok(roleService.update(old)).build();
-            } catch (ConstraintViolationException e) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .type(MediaType.TEXT_PLAIN)
-                        .entity(e.getMessage())
-                        .build();
-            } catch (PersistenceException e) {
-                return Response.status(Response.Status.CONFLICT)
-                        .type(MediaType.TEXT_PLAIN)
-                        .entity(e.getMessage())
-                        .build();
-            }
-
-        } catch (NotFoundException e) {
+        Optional<Role> existing = roleService.findById(id);
+        if (existing.isEmpty())
             return Response.status(Response.Status.NOT_FOUND)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity("role not found")
+                    .build();
+
+        Role old = existing.get();
+
+        //controllo If-Match: se il client ha una versione diversa da quella attuale si risponde 412
+        Response.ResponseBuilder precondition = request.evaluatePreconditions(VersionTag.of(old.getVersion()));
+        if (precondition != null)
+            return precondition.build();
+
+        //metodo per vedere univocità del nome in ignore case per la PUT
+        if (roleDTO.getName() != null)
+            old.setName(roleDTO.getName());
+
+        if (roleDTO.getMinSalary() != null)
+            old.setMinSalary(roleDTO.getMinSalary());
+
+        try {
+            RoleUpdateDTO result = roleService.update(old, raiseSalaries);
+            Role updated = result.getRole();
+            return Response.ok(updated)
+                    .tag(VersionTag.of(updated.getVersion()))
+                    .header("X-Employees-Updated", result.getEmployeesUpdated())
+                    .build();
+        } catch (ConstraintViolationException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (OptimisticLockException e) {
+            return Response.status(Response.Status.PRECONDITION_FAILED)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity("role was modified by another request")
+                    .build();
+        } catch (PersistenceException e) {
+            return Response.status(Response.Status.CONFLICT)
                     .type(MediaType.TEXT_PLAIN)
                     .entity(e.getMessage())
                     .build();
@@ -152,14 +263,25 @@ public class RoleResource {
     //delete ruolo
     @DELETE
     @Path("/role_id/{role_id}")
-    public Response delete(@PathParam("role_id") Long id) {
+    public Response delete(@PathParam("role_id") Long id, @HeaderParam("If-Match") String ifMatch) {
         try {
-            roleService.delete(id);
+            //If-Match confrontato dal service sulla riga bloccata, nella stessa transazione della cancellazione
+            roleService.delete(id, VersionTag.parse(ifMatch));
             return Response.ok().build();
         } catch (NotFoundException e) {
             return Response.status(Response.Status.NOT_FOUND)
                     .type(MediaType.TEXT_PLAIN)
                     .build();
+        } catch (OptimisticLockException e) {
+            return Response.status(Response.Status.PRECONDITION_FAILED)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity("invalid If-Match")
+                    .build();
         } catch (BadRequestException e) {
             return Response.status(Response.Status.BAD_REQUEST)
                     .type(MediaType.TEXT_PLAIN)
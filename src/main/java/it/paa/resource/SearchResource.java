@@ -0,0 +1,41 @@
+package it.paa.resource;
+
+import it.paa.limit.EndpointClass;
+import it.paa.limit.Limited;
+import it.paa.model.dto.search.SearchResultDTO;
+import it.paa.service.SearchService;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.util.List;
+
+@Path("/search")
+@Limited(EndpointClass.LIST)
+public class SearchResource {
+
+    @Inject
+    SearchService searchService;
+
+    //ricerca full text su nome e descrizione di progetti e tecnologie, ordinata per rank e paginata
+    @GET
+    public Response search(@QueryParam("q") String text, @QueryParam("page") @DefaultValue("0") int page, @QueryParam("size") @DefaultValue("20") int size) {
+        try {
+            List<SearchResultDTO> results = searchService.search(text, page, size);
+            if (results.isEmpty())
+                return Response.noContent()
+                        .build();
+
+            return Response.ok(results).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
+                    .build();
+        }
+    }
+}
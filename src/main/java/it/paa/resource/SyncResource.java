@@ -0,0 +1,46 @@
+package it.paa.resource;
+
+import it.paa.limit.EndpointClass;
+import it.paa.limit.Limited;
+import it.paa.model.dto.sync.SyncDTO;
+import it.paa.service.ChangeService;
+import it.paa.service.SyncService;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+@Path("/sync")
+@Limited(EndpointClass.LIST)
+public class SyncResource {
+
+    @Inject
+    SyncService syncService;
+
+    /*
+    dipendenti, progetti e clienti modificati o cancellati dopo il token (senza token: tutti, a pagine), con il nuovo
+    token; se has_more è true si richiama subito con il nuovo token
+    */
+    @GET
+    public Response sync(@QueryParam("since") String since, @QueryParam("limit") @DefaultValue("" + ChangeService.MAX_PAGE_SIZE) int limit) {
+        try {
+            SyncDTO sync = syncService.getChanges(since, limit);
+            return Response.ok(sync)
+                    .type(MediaType.APPLICATION_JSON)
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (IllegalStateException e) {
+            return Response.status(Response.Status.GONE)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
+                    .build();
+        }
+    }
+}
@@ -1,20 +1,31 @@
 package it.paa.resource;
 
+import it.paa.limit.EndpointClass;
+import it.paa.limit.Limited;
+import it.paa.model.dto.technology.CoOccurrenceDTO;
 import it.paa.model.dto.technology.TechnologyPostDTO;
 import it.paa.model.dto.technology.TechnologyProjectsDTO;
 import it.paa.model.dto.technology.TechnologyPutDTO;
 import it.paa.model.entity.Employee;
 import it.paa.model.entity.Technology;
 import it.paa.service.TechnologyService;
+import it.paa.util.FieldSelection;
+import it.paa.util.SharedBody;
+import it.paa.util.VersionTag;
 import jakarta.inject.Inject;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
-import jakarta.ws.rs.core.NoContentException;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 @Path("/technologies")
@@ -24,12 +35,37 @@ public class TechnologyResource {
 
     //get all con filtri facoltativi
     @GET
-    public Response getAll(@QueryParam("name") String name, @QueryParam("minimum experience level") Integer minimumExperienceLevel) {
+    @Limited(EndpointClass.LIST)
+    public Response getAll(@QueryParam("name") String name, @QueryParam("minimum experience level") Integer minimumExperienceLevel, @QueryParam("fields") String fields, @Context Request request) {
         try{
+            //fields= facoltativo: solo i campi richiesti, validati con la whitelist
+            FieldSelection selection = FieldSelection.parse(fields, TechnologyService.FIELDS);
+
+            //If-None-Match: se la tabella non è cambiata si risponde 304 senza caricare le tecnologie
+            EntityTag tag = selection.tag(technologyService.getListEntityTag(name, minimumExperienceLevel));
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+            if (notModified != null)
+                return notModified.tag(tag).build();
+
+            if (!selection.isAll()) {
+                List<Map<String, Object>> rows = technologyService.getAll(selection, name, minimumExperienceLevel);
+                if (rows.isEmpty())
+                    return Response.noContent()
+                            .build();
+
+                return Response.ok(rows).tag(tag).build();
+            }
+
             List<Technology> technologiesList = technologyService.getAll(name,minimumExperienceLevel);
-            return Response.ok(technologiesList).build();
-        } catch (NoContentException e) {
-            return Response.noContent()
+            if (technologiesList.isEmpty())
+                return Response.noContent()
+                        .build();
+
+            return Response.ok(technologiesList).tag(tag).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
                     .build();
         }
     }
@@ -37,12 +73,50 @@ public class TechnologyResource {
     //get by id
     @GET
     @Path("/techology_id/{technology_id}")
-    public Response getTechnologyById(@PathParam("technology_id") Long technologyId) {
+    public Response getTechnologyById(@PathParam("technology_id") Long technologyId, @QueryParam("fields") String fields, @Context Request request) {
         try{
-            Technology technology = technologyService.getById(technologyId);
-            return Response.ok(technology).build();
-        } catch(NotFoundException e){
-            return Response.status(Response.Status.NOT_FOUND)
+            //fields= facoltativo: solo i campi richiesti, validati con la whitelist
+            FieldSelection selection = FieldSelection.parse(fields, TechnologyService.FIELDS);
+
+            //If-None-Match: se la versione non è cambiata si risponde 304 senza caricare la tecnologia
+            Optional<EntityTag> versionTag = technologyService.findEntityTag(technologyId);
+            if (versionTag.isEmpty())
+                return Response.status(Response.Status.NOT_FOUND)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("technology not found")
+                        .build();
+
+            EntityTag tag = selection.tag(versionTag.get());
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+            if (notModified != null)
+                return notModified.tag(tag).build();
+
+            if (!selection.isAll()) {
+                Optional<Map<String, Object>> row = technologyService.findById(technologyId, selection);
+                if (row.isEmpty())
+                    return Response.status(Response.Status.NOT_FOUND)
+                            .type(MediaType.TEXT_PLAIN)
+                            .entity("technology not found")
+                            .build();
+
+                return Response.ok(row.get()).tag(tag).build();
+            }
+
+            Optional<SharedBody> existing = technologyService.findSharedById(technologyId);
+            if (existing.isEmpty())
+                return Response.status(Response.Status.NOT_FOUND)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("technology not found")
+                        .build();
+
+            //la lettura può essere condivisa con richieste concorrenti: corpo già serializzato e tag della versione restituita
+            SharedBody body = existing.get();
+            return Response.ok(body.getJson())
+                    .type(MediaType.APPLICATION_JSON)
+                    .tag(selection.tag(body.getTag()))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
                     .type(MediaType.TEXT_PLAIN)
                     .entity(e.getMessage())
                     .build();
@@ -53,15 +127,14 @@ public class TechnologyResource {
     @GET
     @Path("/technology_id/{technology_id}/employees")
     public Response getEmployees(@PathParam("technology_id") Long technologyId) {
-        Technology technology;
-        try{
-            technology = technologyService.getById(technologyId);
-        } catch (NotFoundException e) {
+        Optional<Technology> existing = technologyService.findById(technologyId);
+        if (existing.isEmpty())
             return Response.status(Response.Status.NOT_FOUND)
                     .type(MediaType.TEXT_PLAIN)
-                    .entity(e.getMessage())
+                    .entity("technology not found")
                     .build();
-        }
+
+        Technology technology = existing.get();
         Set<Employee> employeeList = technology.getEmployeesList();
 
         if(employeeList.isEmpty()){
@@ -75,12 +148,39 @@ public class TechnologyResource {
     //get tecnologia piu' richiesta (esercitazione avanzata 2)
     @GET
     @Path("/5_most_requested")
+    @Limited(EndpointClass.ANALYTICS)
     public Response get5MostRequestedTechnologiy() {
         List<TechnologyProjectsDTO> technologiesList = technologyService.get5MostRequestedTechnology();
 
         return Response.ok(technologiesList).build();
     }
 
+    //coppie di tecnologie più frequenti sugli stessi dipendenti (facoltativo: solo quelle di una tecnologia)
+    @GET
+    @Path("/co_occurrence")
+    @Limited(EndpointClass.ANALYTICS)
+    public Response getCoOccurrence(@QueryParam("top") @DefaultValue("10") int top, @QueryParam("technology_id") Long technologyId) {
+        try {
+            Optional<List<CoOccurrenceDTO>> coOccurrences = technologyService.getCoOccurrence(top, technologyId);
+            if (coOccurrences.isEmpty())
+                return Response.status(Response.Status.NOT_FOUND)
+                        .type(MediaType.TEXT_PLAIN)
+                        .entity("technology not found")
+                        .build();
+
+            if (coOccurrences.get().isEmpty())
+                return Response.noContent()
+                        .build();
+
+            return Response.ok(coOccurrences.get()).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
+                    .build();
+        }
+    }
+
     //post tecnologia
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
@@ -112,7 +212,7 @@ public class TechnologyResource {
     @PUT
     @Path("/technology_id/{technology_id}")
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response update(@PathParam("technology_id") Long technologyId, TechnologyPutDTO technologyDTO) {
+    public Response update(@PathParam("technology_id") Long technologyId, TechnologyPutDTO technologyDTO, @Context Request request) {
         //controllo per evitare crash in caso di json nullo
         if(technologyDTO == null)
             return Response.status(Response.Status.BAD_REQUEST).build();
@@ -122,15 +222,19 @@ public class TechnologyResource {
             return Response.status(Response.Status.NOT_MODIFIED).build();
 
         //ricerca tecnologia tramite l'id inserito
-        Technology old;
-        try{
-            old = technologyService.getById(technologyId);
-        } catch (NotFoundException e) {
+        Optional<Technology> existing = technologyService.findById(technologyId);
+        if (existing.isEmpty())
             return Response.status(Response.Status.NOT_FOUND)
                     .type(MediaType.TEXT_PLAIN)
-                    .entity(e.getMessage())
+                    .entity("technology not found")
                     .build();
-        }
+
+        Technology old = existing.get();
+
+        //controllo If-Match: se il client ha una versione diversa da quella attuale si risponde 412
+        Response.ResponseBuilder precondition = request.evaluatePreconditions(VersionTag.of(old.getVersion()));
+        if (precondition != null)
+            return precondition.build();
 
         //set di ogni parametro se passato non nullo nel json, con eventuali controlli dove necessario
         if(technologyDTO.getName() != null)
@@ -143,27 +247,46 @@ public class TechnologyResource {
             old.setMinExperienceLevel(technologyDTO.getMinExperienceLevel());
 
         try{
-            return Response.ok(technologyService.update(old)).build();
+            Technology updated = technologyService.update(old);
+            return Response.ok(updated)
+                    .tag(VersionTag.of(updated.getVersion()))
+                    .build();
         } catch (ConstraintViolationException e) {
             return Response.status(Response.Status.BAD_REQUEST)
                     .type(MediaType.TEXT_PLAIN)
                     .entity(e.getMessage())
                     .build();
+        } catch (OptimisticLockException e) {
+            return Response.status(Response.Status.PRECONDITION_FAILED)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity("technology was modified by another request")
+                    .build();
         }
     }
 
     //delete tecnologia
     @DELETE
     @Path("/technology_id/{technology_id}")
-    public Response delete(@PathParam("technology_id") Long technologyId) {
+    public Response delete(@PathParam("technology_id") Long technologyId, @HeaderParam("If-Match") String ifMatch) {
         try{
-            technologyService.delete(technologyId);
+            //If-Match confrontato dal service sulla riga bloccata, nella stessa transazione della cancellazione
+            technologyService.delete(technologyId, VersionTag.parse(ifMatch));
             return Response.ok().build();
         } catch (NotFoundException e) {
             return Response.status(Response.Status.NOT_FOUND)
                     .type(MediaType.TEXT_PLAIN)
                     .entity(e.getMessage())
                     .build();
+        } catch (OptimisticLockException e) {
+            return Response.status(Response.Status.PRECONDITION_FAILED)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity("invalid If-Match")
+                    .build();
         }
     }
 
@@ -0,0 +1,154 @@
+package it.paa.service;
+
+import it.paa.config.ReadRouting;
+import it.paa.event.CacheInvalidationEvent;
+import it.paa.event.EntityChangeEvent;
+import it.paa.event.SkillChangeEvent;
+import it.paa.event.StaffingChangeEvent;
+import it.paa.repository.AnalyticsRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@ApplicationScoped
+public class AnalyticsService implements AnalyticsRepository {
+
+    //dimensioni del cubo (nome -> colonna della query)
+    public static final Map<String, String> DIMENSIONS = Map.of(
+            "sector", "c.sector",
+            "technology", "t.name",
+            "role", "r.name"
+    );
+
+    @Inject
+    ReadRouting readRouting;
+
+    //risultati per lista di dimensioni, validi fino alla prossima scrittura
+    private final Map<List<String>, List<Map<String, Object>>> cache = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    /*
+    cubo clienti x progetti x dipendenti per settore del cliente, tecnologia e ruolo del dipendente, con i subtotali:
+    una sola query con GROUP BY ROLLUP nell'ordine delle dimensioni richieste. Clienti e dipendenti sono uniti con una
+    FULL JOIN sul referente, così restano anche i clienti senza referente e i dipendenti senza clienti; le tabelle di
+    tecnologie e ruoli vengono unite solo se servono. GROUPING distingue le righe di subtotale dai valori nulli
+    */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Map<String, Object>> getCube(String dims) throws IllegalArgumentException {
+        List<String> dimensions = parseDimensions(dims);
+
+        List<Map<String, Object>> cached = cache.get(dimensions);
+        if (cached != null)
+            return cached;
+
+        long startGeneration = generation.get();
+
+        List<String> columns = dimensions.stream()
+                .map(DIMENSIONS::get)
+                .toList();
+
+        String query = "SELECT " + String.join(", ", columns) + ", " +
+                String.join(", ", columns.stream().map(column -> "GROUPING(" + column + ")").toList()) + ", " +
+                "COUNT(DISTINCT c.id), COUNT(DISTINCT pe.project_id), COUNT(DISTINCT e.id)" +
+                " FROM customers c FULL JOIN employees e ON e.id = c.contact_person" +
+                " LEFT JOIN project_employee pe ON pe.employee_id = e.id";
+
+        if (dimensions.contains("technology"))
+            query += " LEFT JOIN technology_employee te ON te.employee_id = e.id LEFT JOIN technologies t ON t.id = te.technology_id";
+
+        if (dimensions.contains("role"))
+            query += " LEFT JOIN roles r ON r.id = e.role";
+
+        query += " GROUP BY ROLLUP(" + String.join(", ", columns) + ")" +
+                " ORDER BY " + String.join(", ", columns.stream().map(column -> column + " NULLS LAST").toList());
+
+        List<Object[]> rows = readRouting.reader().createNativeQuery(query).getResultList();
+
+        int size = dimensions.size();
+        List<Map<String, Object>> cube = new ArrayList<>(rows.size());
+
+        for (Object[] row : rows) {
+            Map<String, Object> cell = new LinkedHashMap<>();
+            List<String> rolledUp = new ArrayList<>();
+
+            for (int i = 0; i < size; i++) {
+                cell.put(dimensions.get(i), row[i]);
+
+                if (((Number) row[size + i]).intValue() == 1)
+                    rolledUp.add(dimensions.get(i));
+            }
+
+            cell.put("subtotal_of", rolledUp);
+            cell.put("customers", ((Number) row[2 * size]).longValue());
+            cell.put("projects", ((Number) row[2 * size + 1]).longValue());
+            cell.put("employees", ((Number) row[2 * size + 2]).longValue());
+            cube.add(cell);
+        }
+
+        List<Map<String, Object>> result = List.copyOf(cube);
+
+        //se nel frattempo c'è stata una scrittura il risultato potrebbe essere già vecchio, non si salva
+        if (generation.get() == startGeneration)
+            cache.put(dimensions, result);
+
+        return result;
+    }
+
+    //dimensioni separate da virgola, validate con DIMENSIONS
+    private static List<String> parseDimensions(String dims) throws IllegalArgumentException {
+        if (dims == null || dims.isBlank())
+            throw new IllegalArgumentException("dims cannot be empty");
+
+        List<String> dimensions = new ArrayList<>();
+
+        for (String dim : dims.split(",")) {
+            String dimension = dim.trim().toLowerCase(Locale.ROOT);
+
+            if (!DIMENSIONS.containsKey(dimension))
+                throw new IllegalArgumentException("unknown dimension: " + dimension + " (allowed: sector, technology, role)");
+
+            if (dimensions.contains(dimension))
+                throw new IllegalArgumentException("duplicate dimension: " + dimension);
+
+            dimensions.add(dimension);
+        }
+
+        return List.copyOf(dimensions);
+    }
+
+    /*
+    invalidazione della cache: qualunque scrittura che cambia clienti, dipendenti, progetti, ruoli, tecnologie
+    o le loro associazioni, dopo il commit
+    */
+    void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) EntityChangeEvent event) {
+        invalidate();
+    }
+
+    void onStaffingChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) StaffingChangeEvent event) {
+        invalidate();
+    }
+
+    void onSkillChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) SkillChangeEvent event) {
+        invalidate();
+    }
+
+    //modifiche salvate da un altro nodo
+    void onRemoteChange(@Observes CacheInvalidationEvent event) {
+        invalidate();
+    }
+
+    private void invalidate() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+}
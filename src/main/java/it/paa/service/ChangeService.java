@@ -0,0 +1,55 @@
+package it.paa.service;
+
+import it.paa.model.entity.ChangeEvent;
+import it.paa.repository.ChangeRepository;
+import it.paa.util.ChangePosition;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.List;
+
+@ApplicationScoped
+public class ChangeService implements ChangeRepository {
+    //righe lette per volta dall'outbox
+    public static final int MAX_PAGE_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /*
+    watermark dell'outbox: la transazione più vecchia ancora in corso. Le righe delle transazioni precedenti sono tutte
+    già visibili, quindi chi legge fino alla watermark non può perdere righe che arrivano dopo con un id più basso.
+    Va letta prima delle righe
+    */
+    @Override
+    public ChangePosition getWatermark() {
+        Number xmin = (Number) entityManager.createNativeQuery("SELECT txid_snapshot_xmin(txid_current_snapshot())")
+                .getSingleResult();
+
+        return ChangePosition.watermark(xmin.longValue());
+    }
+
+    /*
+    eventi dell'outbox successivi alla posizione e sotto la watermark, in ordine di (tx_id, id):
+    range scan sull'indice della posizione
+    */
+    @Override
+    public List<ChangeEvent> getSince(ChangePosition from, ChangePosition watermark, int limit) throws IllegalArgumentException {
+        if (limit < 1 || limit > MAX_PAGE_SIZE)
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+
+        return entityManager.createQuery("SELECT c FROM ChangeEvent c WHERE c.txId >= :txId AND c.txId < :xmin" +
+                        " AND (c.txId > :txId OR c.id > :id) ORDER BY c.txId, c.id", ChangeEvent.class)
+                .setParameter("txId", from.getTxId())
+                .setParameter("id", from.getId())
+                .setParameter("xmin", watermark.getTxId())
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<ChangeEvent> getSince(ChangePosition from, int limit) throws IllegalArgumentException {
+        return getSince(from, getWatermark(), limit);
+    }
+}
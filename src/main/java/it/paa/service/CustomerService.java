@@ -1,31 +1,124 @@
 package it.paa.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.paa.config.ReadRouting;
+import it.paa.event.EntityChangeEvent;
+import it.paa.index.MissingIdCache;
+import it.paa.index.SuggestionIndex;
+import it.paa.model.dto.suggestion.SuggestionDTO;
 import it.paa.model.entity.Customer;
 import it.paa.model.entity.Employee;
 import it.paa.repository.CustomerRepository;
+import it.paa.util.FieldSelection;
+import it.paa.util.SharedBody;
+import it.paa.util.SingleFlight;
+import it.paa.util.VersionTag;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.transaction.Transactional;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.ws.rs.NotFoundException;
-import jakarta.ws.rs.core.NoContentException;
+import jakarta.ws.rs.core.EntityTag;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @ApplicationScoped
 public class CustomerService implements CustomerRepository {
 
+    /*
+    whitelist dei campi per fields= (nome json -> espressione JPQL); contact_person_id usa la foreign key
+    senza join con employees
+    */
+    public static final Map<String, String> FIELDS = Map.of(
+            "id", "c.id",
+            "name", "c.name",
+            "sector", "c.sector",
+            "address", "c.address",
+            "version", "c.version",
+            "contact_person_id", "c.employee.id"
+    );
+
+    //numero massimo di suggerimenti restituiti dall'autocomplete
+    public static final int MAX_SUGGESTIONS = 50;
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Inject
+    ReadRouting readRouting;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    MissingIdCache missingIdCache;
+
+    //get by id contemporanei sullo stesso id condividono la lettura
+    private final SingleFlight<Long, Optional<SharedBody>> byIdFlights = new SingleFlight<>();
+
+    @Inject
+    Event<EntityChangeEvent> changeEvent;
+
+    @Inject
+    SuggestionIndex suggestionIndex;
+
     /*
     get all che o restituisce la lista intera o filtrata se vengono passati i filtri
     */
     @Override
-    public List<Customer> getAll(String name, String sector) throws NoContentException {
-        String query = "SELECT c FROM Customer c";
+    public List<Customer> getAll(String name, String sector) {
+        TypedQuery<Customer> tQuery = createFilteredQuery("SELECT c", Customer.class, name, sector);
+
+        List<Customer> customerList = tQuery.getResultList();
+
+        return customerList;
+    }
+
+    /*
+    get all con fields=: stessi filtri, ma la select contiene solo i campi richiesti
+    */
+    @Override
+    public List<Map<String, Object>> getAll(FieldSelection fields, String name, String sector) {
+        List<Tuple> rows = createFilteredQuery(fields.select(), Tuple.class, name, sector).getResultList();
+
+        return rows.stream()
+                .map(fields::toMap)
+                .toList();
+    }
+
+    /*
+    prima pagina del get all senza filtri, con le stesse query (intera e con fields=): usata dal riscaldamento
+    per preparare piani e serializer senza leggere tutta la tabella
+    */
+    public List<Customer> getFirst(int limit) {
+        return createFilteredQuery("SELECT c", Customer.class, null, null)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public List<Map<String, Object>> getFirst(FieldSelection fields, int limit) {
+        return createFilteredQuery(fields.select(), Tuple.class, null, null)
+                .setMaxResults(limit)
+                .getResultStream()
+                .map(fields::toMap)
+                .toList();
+    }
+
+    /*
+    costruzione della query del get all con i filtri passati, usata sia per le entità intere che per fields=
+    */
+    private <T> TypedQuery<T> createFilteredQuery(String select, Class<T> resultClass, String name, String sector) {
+        String query = select + " FROM Customer c";
 
         if(name!=null && !name.isEmpty() && !name.isBlank())
             query += " WHERE LOWER(c.name) = LOWER(:name)";
@@ -37,7 +130,7 @@ public class CustomerService implements CustomerRepository {
                 query += " AND LOWER(c.sector) = LOWER(:sector)";
         }
 
-        TypedQuery<Customer> tQuery = entityManager.createQuery(query, Customer.class);
+        TypedQuery<T> tQuery = readRouting.reader().createQuery(query, resultClass);
 
         if(name!=null && !name.isEmpty() && !name.isBlank())
             tQuery.setParameter("name", name);
@@ -45,25 +138,95 @@ public class CustomerService implements CustomerRepository {
         if(sector!=null && !sector.isEmpty() && !sector.isBlank())
             tQuery.setParameter("sector", sector);
 
-        List<Customer> customerList = tQuery.getResultList();
+        return tQuery;
+    }
 
-        if(customerList == null || customerList.isEmpty())
-            throw new NoContentException("no customers found");
+    /*
+    get by id, vuoto se l'oggetto non esiste. Nelle letture condivisibili gli id non trovati finiscono
+    nella cache negativa e vengono restituiti vuoti senza andare sul database
+    */
+    @Override
+    public Optional<Customer> findById(Long id) {
+        boolean shareable = readRouting.isShareable();
 
-        return customerList;
+        if (shareable && missingIdCache.isMissing("customer", id))
+            return Optional.empty();
+
+        Customer customer = readRouting.reader().find(Customer.class, id);
+
+        if (customer == null && shareable)
+            missingIdCache.markMissing("customer", id);
+
+        return Optional.ofNullable(customer);
     }
 
     /*
-    get by id che torna l'eccezione se non trova l'oggetto
+    get by id coalescente: le richieste contemporanee per lo stesso id ricevono lo stesso corpo JSON, serializzato
+    nella sessione della prima richiesta. Si condivide il risultato già staccato dalla sessione, mai l'entità gestita,
+    così le altre richieste non toccano il persistence context di un'altra richiesta
     */
     @Override
-    public Customer getById(Long id) throws NotFoundException {
-        Customer customer = entityManager.find(Customer.class, id);
+    public Optional<SharedBody> findSharedById(Long id) {
+        if (!readRouting.isShareable())
+            return findBody(id);
 
-        if(customer == null)
-            throw new NotFoundException("customer not found");
+        return byIdFlights.execute(id, () -> findBody(id));
+    }
+
+    private Optional<SharedBody> findBody(Long id) {
+        return findById(id).map(customer -> SharedBody.of(objectMapper, customer, getEntityTag(customer)));
+    }
+
+    //get by id delle scritture, dove un oggetto mancante interrompe l'operazione
+    private Customer getById(Long id) throws NotFoundException {
+        return findById(id).orElseThrow(() -> new NotFoundException("customer not found"));
+    }
+
+    //get by id delle delete, con la riga bloccata fino alla fine della transazione
+    private Customer lockById(Long id) throws NotFoundException {
+        return Optional.ofNullable(entityManager.find(Customer.class, id, LockModeType.PESSIMISTIC_WRITE))
+                .orElseThrow(() -> new NotFoundException("customer not found"));
+    }
+
+    /*
+    get by id con fields=: si leggono solo le colonne richieste
+    */
+    @Override
+    public Optional<Map<String, Object>> findById(Long id, FieldSelection fields) {
+        List<Tuple> rows = readRouting.reader().createQuery(fields.select() + " FROM Customer c WHERE c.id = :id", Tuple.class)
+                .setParameter("id", id)
+                .getResultList();
+
+        if (rows.isEmpty())
+            return Optional.empty();
 
-        return customer;
+        return Optional.of(fields.toMap(rows.get(0)));
+    }
+
+    /*
+    ETag del cliente: il json contiene il referente e il suo ruolo, quindi entrano nel tag
+    anche le loro versioni (null se il cliente non ha referente)
+    */
+    public Optional<EntityTag> findEntityTag(Long id) {
+        List<Object[]> versions = readRouting.reader().createQuery("SELECT c.version, e.version, r.version FROM Customer c" +
+                        " LEFT JOIN c.employee e LEFT JOIN e.role r WHERE c.id = :id", Object[].class)
+                .setParameter("id", id)
+                .getResultList();
+
+        if (versions.isEmpty())
+            return Optional.empty();
+
+        return Optional.of(VersionTag.of(versions.get(0)[0], versions.get(0)[1], versions.get(0)[2]));
+    }
+
+    //stesso ETag calcolato da un cliente già caricato (usato per If-Match e per la risposta della PUT)
+    public EntityTag getEntityTag(Customer customer) {
+        Employee employee = customer.getEmployee();
+
+        if (employee == null)
+            return VersionTag.of(customer.getVersion(), null, null);
+
+        return VersionTag.of(customer.getVersion(), employee.getVersion(), employee.getRole().getVersion());
     }
 
     /*
@@ -75,6 +238,7 @@ public class CustomerService implements CustomerRepository {
         try {
             entityManager.persist(customer);
             entityManager.flush();
+            changeEvent.fire(new EntityChangeEvent(customer, customer.getId(), EntityChangeEvent.Operation.CREATE));
 
             return customer;
         } catch (ConstraintViolationException e) {
@@ -87,12 +251,13 @@ public class CustomerService implements CustomerRepository {
     */
     @Override
     @Transactional
-    public Customer update(Customer customer) throws ConstraintViolationException {
+    public Customer update(Customer customer) throws OptimisticLockException, ConstraintViolationException {
         try {
-            entityManager.merge(customer);
+            Customer merged = entityManager.merge(customer);
             entityManager.flush();
+            changeEvent.fire(new EntityChangeEvent(merged, merged.getId(), EntityChangeEvent.Operation.UPDATE));
 
-            return customer;
+            return merged;
         } catch (ConstraintViolationException e) {
             throw new ConstraintViolationException(e.getConstraintViolations());
         }
@@ -110,6 +275,9 @@ public class CustomerService implements CustomerRepository {
                 customer.setEmployee(null);
                 entityManager.merge(employee);
                 entityManager.merge(customer);
+                //flush prima dell'evento: il registro delle modifiche legge la versione già incrementata
+                entityManager.flush();
+                changeEvent.fire(new EntityChangeEvent(customer, customerId, EntityChangeEvent.Operation.UPDATE));
             }
             return customer;
     }
@@ -119,21 +287,59 @@ public class CustomerService implements CustomerRepository {
     */
     @Override
     @Transactional
-    public void delete(Long id) throws ConstraintViolationException {
-        Customer customer = getById(id);
+    public void delete(Long id, EntityTag expected) throws OptimisticLockException, ConstraintViolationException {
+        Customer customer = lockById(id);
+
+        //confronto con If-Match sulla riga bloccata: un update concorrente aspetta il commit di questa delete
+        if (expected != null && !expected.equals(getEntityTag(customer)))
+            throw new OptimisticLockException("customer was modified by another request");
         entityManager.remove(customer);
+        changeEvent.fire(new EntityChangeEvent(customer, id, EntityChangeEvent.Operation.DELETE));
     }
 
     /*
-    get employee usato per l'associazione con employee
+    autocomplete per nome: prima l'indice per prefisso in memoria, se i risultati non bastano
+    e il testo ha almeno 3 caratteri si completa con la ricerca per similarità (pg_trgm)
     */
-    public Employee getEmployeeById(Long id) throws NotFoundException {
-        Employee employee = entityManager.find(Employee.class, id);
+    @Override
+    public List<SuggestionDTO> suggest(String prefix, int limit) throws IllegalArgumentException {
+        if (prefix == null || prefix.isBlank())
+            throw new IllegalArgumentException("prefix cannot be empty");
 
-        if (employee == null)
-            throw new NotFoundException("employee not found");
+        if (limit < 1 || limit > MAX_SUGGESTIONS)
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_SUGGESTIONS);
+
+        List<SuggestionDTO> suggestions = new ArrayList<>(suggestionIndex.suggestCustomers(prefix, limit));
+
+        if (suggestions.size() < limit && prefix.trim().length() >= 3) {
+            List<Long> found = suggestions.stream()
+                    .map(SuggestionDTO::getId)
+                    .toList();
 
-        return employee;
+            //id -1 per avere una lista non vuota nella NOT IN
+            List<?> rows = readRouting.reader().createNativeQuery("SELECT id, name FROM customers " +
+                            "WHERE lower(name) % lower(:text) AND id NOT IN (:found) " +
+                            "ORDER BY similarity(lower(name), lower(:text)) DESC, id " +
+                            "LIMIT :limit")
+                    .setParameter("text", prefix.trim())
+                    .setParameter("found", found.isEmpty() ? List.of(-1L) : found)
+                    .setParameter("limit", limit - suggestions.size())
+                    .getResultList();
+
+            for (Object row : rows) {
+                Object[] columns = (Object[]) row;
+                suggestions.add(new SuggestionDTO(((Number) columns[0]).longValue(), (String) columns[1], null));
+            }
+        }
+
+        return suggestions;
+    }
+
+    /*
+    get employee usato per l'associazione con employee
+    */
+    public Optional<Employee> findEmployeeById(Long id) {
+        return Optional.ofNullable(entityManager.find(Employee.class, id));
     }
 
 }
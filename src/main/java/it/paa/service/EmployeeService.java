@@ -1,35 +1,154 @@
 package it.paa.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.paa.config.ReadRouting;
+import it.paa.event.EntityChangeEvent;
+import it.paa.event.SkillChangeEvent;
+import it.paa.index.MissingIdCache;
+import it.paa.index.SkillIndex;
+import it.paa.index.SuggestionIndex;
+import it.paa.model.dto.employee.EmployeeMatchDTO;
+import it.paa.model.dto.suggestion.SuggestionDTO;
+import it.paa.model.dto.utilisation.EmployeeUtilisationDTO;
 import it.paa.model.entity.Employee;
 import it.paa.model.entity.Role;
 import it.paa.model.entity.Technology;
 import it.paa.repository.EmployeeRepository;
+import it.paa.util.FieldSelection;
+import it.paa.util.SharedBody;
+import it.paa.util.SingleFlight;
+import it.paa.util.SweepLine;
+import it.paa.util.TimeBucket;
+import it.paa.util.VersionTag;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
-import jakarta.persistence.NoResultException;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.transaction.Transactional;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.NotFoundException;
-import jakarta.ws.rs.core.NoContentException;
+import jakarta.ws.rs.core.EntityTag;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class EmployeeService implements EmployeeRepository {
 
+    /*
+    whitelist dei campi per fields= (nome json -> espressione JPQL); role_id usa la foreign key,
+    solo role_name richiede la join con roles
+    */
+    public static final Map<String, String> FIELDS = Map.of(
+            "id", "e.id",
+            "name", "e.name",
+            "surname", "e.surname",
+            "experience_level", "e.experienceLevel",
+            "hiring_date", "e.hiringDate",
+            "salary", "e.salary",
+            "version", "e.version",
+            "role_id", "e.role.id",
+            "role_name", "e.role.name"
+    );
+
+    //numero massimo di suggerimenti restituiti dall'autocomplete
+    public static final int MAX_SUGGESTIONS = 50;
+
+    //numero massimo di dipendenti restituiti dal matching delle competenze
+    public static final int MAX_MATCHES = 500;
+
+    //numero massimo di bucket della timeline di utilizzo (con bucket=day poco meno di tre anni)
+    public static final int MAX_UTILISATION_BUCKETS = 1000;
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Inject
+    ReadRouting readRouting;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    MissingIdCache missingIdCache;
+
+    //get by id contemporanei sullo stesso id condividono la lettura
+    private final SingleFlight<Long, Optional<SharedBody>> byIdFlights = new SingleFlight<>();
+
+    @Inject
+    Event<EntityChangeEvent> changeEvent;
+
+    @Inject
+    Event<SkillChangeEvent> skillEvent;
+
+    @Inject
+    SuggestionIndex suggestionIndex;
+
+    @Inject
+    SkillIndex skillIndex;
+
+    @Inject
+    ProjectService projectService;
+
     /*
     get all che o restituisce la lista intera o filtrata se vengono passati i filtri
     */
     @Override
-    public List<Employee> getAll(String surname, LocalDate startDate, LocalDate endDate) throws NoContentException, IllegalArgumentException {
-        String query = "SELECT e FROM Employee e";
+    public List<Employee> getAll(String surname, LocalDate startDate, LocalDate endDate) throws IllegalArgumentException {
+        TypedQuery<Employee> tQuery = createFilteredQuery("SELECT e", Employee.class, surname, startDate, endDate);
+
+        List<Employee> employeeList = tQuery.getResultList();
+
+        return employeeList;
+    }
+
+    /*
+    get all con fields=: stessi filtri, ma la select contiene solo i campi richiesti
+    */
+    @Override
+    public List<Map<String, Object>> getAll(FieldSelection fields, String surname, LocalDate startDate, LocalDate endDate) throws IllegalArgumentException {
+        List<Tuple> rows = createFilteredQuery(fields.select(), Tuple.class, surname, startDate, endDate).getResultList();
+
+        return rows.stream()
+                .map(fields::toMap)
+                .toList();
+    }
+
+    /*
+    prima pagina del get all senza filtri, con le stesse query (intera e con fields=): usata dal riscaldamento
+    per preparare piani e serializer senza leggere tutta la tabella
+    */
+    public List<Employee> getFirst(int limit) {
+        return createFilteredQuery("SELECT e", Employee.class, null, null, null)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public List<Map<String, Object>> getFirst(FieldSelection fields, int limit) {
+        return createFilteredQuery(fields.select(), Tuple.class, null, null, null)
+                .setMaxResults(limit)
+                .getResultStream()
+                .map(fields::toMap)
+                .toList();
+    }
+
+    /*
+    costruzione della query del get all con i filtri passati, usata sia per le entità intere che per fields=
+    */
+    private <T> TypedQuery<T> createFilteredQuery(String select, Class<T> resultClass, String surname, LocalDate startDate, LocalDate endDate) throws IllegalArgumentException {
+        String query = select + " FROM Employee e";
 
         if (surname != null && !surname.isEmpty() && !surname.isBlank())
             query += " WHERE LOWER(e.surname) = LOWER(:surname)";
@@ -49,7 +168,7 @@ public class EmployeeService implements EmployeeRepository {
                 query += " AND e.hiringDate BETWEEN :startDate AND :endDate";
         }
 
-        TypedQuery<Employee> tQuery = entityManager.createQuery(query, Employee.class);
+        TypedQuery<T> tQuery = readRouting.reader().createQuery(query, resultClass);
 
         if (surname != null && !surname.isEmpty() && !surname.isBlank())
             tQuery.setParameter("surname", surname);
@@ -60,25 +179,89 @@ public class EmployeeService implements EmployeeRepository {
             tQuery.setParameter("endDate", endDate);
         }
 
-        List<Employee> employeeList = tQuery.getResultList();
+        return tQuery;
+    }
+
+    /*
+    get by id, vuoto se l'oggetto non esiste. Nelle letture condivisibili gli id non trovati finiscono
+    nella cache negativa e vengono restituiti vuoti senza andare sul database
+    */
+    @Override
+    public Optional<Employee> findById(Long id) {
+        boolean shareable = readRouting.isShareable();
 
-        if (employeeList == null || employeeList.isEmpty())
-            throw new NoContentException("no employees found");
+        if (shareable && missingIdCache.isMissing("employee", id))
+            return Optional.empty();
 
-        return employeeList;
+        Employee employee = readRouting.reader().find(Employee.class, id);
+
+        if (employee == null && shareable)
+            missingIdCache.markMissing("employee", id);
+
+        return Optional.ofNullable(employee);
     }
 
     /*
-    get by id che torna l'eccezione se non trova l'oggetto
+    get by id coalescente: le richieste contemporanee per lo stesso id ricevono lo stesso corpo JSON, serializzato
+    nella sessione della prima richiesta. Si condivide il risultato già staccato dalla sessione, mai l'entità gestita,
+    così le altre richieste non toccano il persistence context di un'altra richiesta
     */
     @Override
-    public Employee getById(Long id) throws NotFoundException {
-        Employee employee = entityManager.find(Employee.class, id);
+    public Optional<SharedBody> findSharedById(Long id) {
+        if (!readRouting.isShareable())
+            return findBody(id);
+
+        return byIdFlights.execute(id, () -> findBody(id));
+    }
 
-        if (employee == null)
-            throw new NotFoundException("employee not found");
+    private Optional<SharedBody> findBody(Long id) {
+        return findById(id).map(employee -> SharedBody.of(objectMapper, employee, getEntityTag(employee)));
+    }
+
+    //get by id delle scritture, dove un oggetto mancante interrompe l'operazione
+    private Employee getById(Long id) throws NotFoundException {
+        return findById(id).orElseThrow(() -> new NotFoundException("employee not found"));
+    }
 
-        return employee;
+    //get by id delle delete, con la riga bloccata fino alla fine della transazione
+    private Employee lockById(Long id) throws NotFoundException {
+        return Optional.ofNullable(entityManager.find(Employee.class, id, LockModeType.PESSIMISTIC_WRITE))
+                .orElseThrow(() -> new NotFoundException("employee not found"));
+    }
+
+    /*
+    get by id con fields=: si leggono solo le colonne richieste
+    */
+    @Override
+    public Optional<Map<String, Object>> findById(Long id, FieldSelection fields) {
+        List<Tuple> rows = readRouting.reader().createQuery(fields.select() + " FROM Employee e WHERE e.id = :id", Tuple.class)
+                .setParameter("id", id)
+                .getResultList();
+
+        if (rows.isEmpty())
+            return Optional.empty();
+
+        return Optional.of(fields.toMap(rows.get(0)));
+    }
+
+    /*
+    ETag del dipendente: il json contiene anche il ruolo, quindi il tag è dato dalla versione
+    del dipendente e da quella del ruolo, letti senza caricare le entità
+    */
+    public Optional<EntityTag> findEntityTag(Long id) {
+        List<Object[]> versions = readRouting.reader().createQuery("SELECT e.version, r.version FROM Employee e JOIN e.role r WHERE e.id = :id", Object[].class)
+                .setParameter("id", id)
+                .getResultList();
+
+        if (versions.isEmpty())
+            return Optional.empty();
+
+        return Optional.of(VersionTag.of(versions.get(0)[0], versions.get(0)[1]));
+    }
+
+    //stesso ETag calcolato da un dipendente già caricato (usato per If-Match e per la risposta della PUT)
+    public EntityTag getEntityTag(Employee employee) {
+        return VersionTag.of(employee.getVersion(), employee.getRole().getVersion());
     }
 
     /*
@@ -90,6 +273,7 @@ public class EmployeeService implements EmployeeRepository {
         try {
             entityManager.persist(employee);
             entityManager.flush();
+            changeEvent.fire(new EntityChangeEvent(employee, employee.getId(), EntityChangeEvent.Operation.CREATE));
 
             return employee;
         } catch (ConstraintViolationException e) {
@@ -102,12 +286,15 @@ public class EmployeeService implements EmployeeRepository {
     */
     @Override
     @Transactional
-    public Employee update(Employee employee) throws ConstraintViolationException {
+    public Employee update(Employee employee) throws OptimisticLockException, ConstraintViolationException {
         try {
-            entityManager.merge(employee);
+            Employee merged = entityManager.merge(employee);
             entityManager.flush();
+            //lo stipendio entra nel costo di staffing dei progetti del dipendente (vengono riscritti solo se cambia)
+            projectService.refreshStaffingByEmployee(merged.getId());
+            changeEvent.fire(new EntityChangeEvent(merged, merged.getId(), EntityChangeEvent.Operation.UPDATE));
 
-            return employee;
+            return merged;
         } catch (ConstraintViolationException e) {
             throw new ConstraintViolationException(e.getConstraintViolations());
         }
@@ -118,32 +305,162 @@ public class EmployeeService implements EmployeeRepository {
     */
     @Override
     @Transactional
-    public void delete(Long id) throws NotFoundException, BadRequestException {
+    public void delete(Long id, EntityTag expected) throws OptimisticLockException, NotFoundException, BadRequestException {
         try {
 
-            Employee employee = getById(id);
+            Employee employee = lockById(id);
+
+            //confronto con If-Match sulla riga bloccata: un update concorrente aspetta il commit di questa delete
+            if (expected != null && !expected.equals(getEntityTag(employee)))
+                throw new OptimisticLockException("employee was modified by another request");
 
             if (!employee.getCustomerList().isEmpty())
                 throw new BadRequestException("cannot delete employee because has associated customers");
 
             entityManager.remove(employee);
             entityManager.flush();
+            changeEvent.fire(new EntityChangeEvent(employee, id, EntityChangeEvent.Operation.DELETE));
         } catch (org.hibernate.exception.ConstraintViolationException e) {
             throw new BadRequestException("cannot delete employee because has associated projects");
         }
     }
 
     /*
-    get by role name usato per la POST e PUT di employee
+    autocomplete per cognome: prima l'indice per prefisso in memoria, se i risultati non bastano
+    e il testo ha almeno 3 caratteri si completa con la ricerca per similarità (pg_trgm), utile per gli errori di battitura
      */
-    public Role getRoleByName(String roleName) throws NoResultException {
-        try {
-            return entityManager.createQuery("SELECT r FROM Role r WHERE LOWER(r.name) = LOWER(:name)", Role.class)
-                    .setParameter("name", roleName)
-                    .getSingleResult();
-        } catch (NoResultException e) {
-            throw new NoResultException("role not found");
+    @Override
+    public List<SuggestionDTO> suggest(String prefix, int limit) throws IllegalArgumentException {
+        if (prefix == null || prefix.isBlank())
+            throw new IllegalArgumentException("prefix cannot be empty");
+
+        if (limit < 1 || limit > MAX_SUGGESTIONS)
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_SUGGESTIONS);
+
+        List<SuggestionDTO> suggestions = new ArrayList<>(suggestionIndex.suggestEmployees(prefix, limit));
+
+        if (suggestions.size() < limit && prefix.trim().length() >= 3) {
+            List<Long> found = suggestions.stream()
+                    .map(SuggestionDTO::getId)
+                    .toList();
+
+            //id -1 per avere una lista non vuota nella NOT IN
+            List<?> rows = readRouting.reader().createNativeQuery("SELECT id, name, surname FROM employees " +
+                            "WHERE lower(surname) % lower(:text) AND id NOT IN (:found) " +
+                            "ORDER BY similarity(lower(surname), lower(:text)) DESC, id " +
+                            "LIMIT :limit")
+                    .setParameter("text", prefix.trim())
+                    .setParameter("found", found.isEmpty() ? List.of(-1L) : found)
+                    .setParameter("limit", limit - suggestions.size())
+                    .getResultList();
+
+            for (Object row : rows) {
+                Object[] columns = (Object[]) row;
+                suggestions.add(new SuggestionDTO(((Number) columns[0]).longValue(), (String) columns[1], (String) columns[2]));
+            }
+        }
+
+        return suggestions;
+    }
+
+    /*
+    matching delle competenze dall'indice a bitset: dipendenti con tutte (mode=all) o almeno una (mode=any)
+    delle tecnologie richieste, con esperienza sufficiente per ognuna, ordinati per copertura.
+    Una tecnologia che non esiste non ha possessori (il controllo per il 404 è findMissingTechnology)
+     */
+    @Override
+    public List<EmployeeMatchDTO> match(List<Long> technologyIds, Integer minExperience, String mode, int limit) throws IllegalArgumentException {
+        if (technologyIds == null || technologyIds.isEmpty())
+            throw new IllegalArgumentException("technologies cannot be empty");
+
+        if (minExperience != null && minExperience < 0)
+            throw new IllegalArgumentException("min_experience cannot be negative");
+
+        if (limit < 1 || limit > MAX_MATCHES)
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_MATCHES);
+
+        boolean all;
+        switch (mode == null ? "all" : mode.trim().toLowerCase(Locale.ROOT)) {
+            case "all" -> all = true;
+            case "any" -> all = false;
+            default -> throw new IllegalArgumentException("mode must be all or any");
+        }
+
+        List<Long> technologies = technologyIds.stream()
+                .distinct()
+                .toList();
+
+        return skillIndex.match(technologies, minExperience == null ? 0 : minExperience, all, limit);
+    }
+
+    //prima tecnologia richiesta che non è nell'indice delle competenze, vuoto se esistono tutte
+    @Override
+    public Optional<Long> findMissingTechnology(List<Long> technologyIds) {
+        return technologyIds.stream()
+                .filter(technologyId -> !skillIndex.containsTechnology(technologyId))
+                .findFirst();
+    }
+
+    /*
+    utilizzo dei dipendenti nell'intervallo [from, to]: si leggono in streaming solo (dipendente, inizio, fine)
+    dei progetti che si sovrappongono all'intervallo, ordinati per dipendente, senza caricare le entità;
+    poi la sweep-line di ogni dipendente è indipendente dalle altre e viene calcolata in parallelo
+     */
+    @Override
+    public List<EmployeeUtilisationDTO> getUtilisation(LocalDate from, LocalDate to, String bucket, int threshold) throws IllegalArgumentException {
+        if (from == null || to == null)
+            throw new IllegalArgumentException("from and to cannot be empty");
+
+        if (from.isAfter(to))
+            throw new IllegalArgumentException("from cannot be after to");
+
+        if (threshold < 1)
+            throw new IllegalArgumentException("threshold must be at least 1");
+
+        TimeBucket timeBucket = TimeBucket.parse(bucket);
+
+        //la timeline ha un bucket per periodo per ogni dipendente: un intervallo troppo lungo va chiesto con bucket più grandi
+        if (timeBucket.count(from, to) > MAX_UTILISATION_BUCKETS)
+            throw new IllegalArgumentException("interval too long: at most " + MAX_UTILISATION_BUCKETS + " " + timeBucket.name().toLowerCase(Locale.ROOT) + " buckets");
+
+        Map<Long, List<LocalDate[]>> intervals = new LinkedHashMap<>();
+
+        try (Stream<?> rows = readRouting.reader().createNativeQuery("SELECT pe.employee_id, p.start_date, p.end_date " +
+                        "FROM project_employee pe JOIN projects p ON p.id = pe.project_id " +
+                        "WHERE daterange(p.start_date, p.end_date, '[]') && daterange(:from, :to, '[]') " +
+                        "ORDER BY pe.employee_id")
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultStream()) {
+            rows.forEach(row -> {
+                Object[] columns = (Object[]) row;
+                intervals.computeIfAbsent(((Number) columns[0]).longValue(), id -> new ArrayList<>())
+                        .add(new LocalDate[]{toLocalDate(columns[1]), toLocalDate(columns[2])});
+            });
         }
+
+        return intervals.entrySet()
+                .parallelStream()
+                .map(entry -> SweepLine.utilisation(entry.getKey(), entry.getValue(), from, to, timeBucket, threshold))
+                .toList();
+    }
+
+    //le colonne date delle query native possono arrivare come java.sql.Date
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof java.sql.Date date)
+            return date.toLocalDate();
+
+        return (LocalDate) value;
+    }
+
+    /*
+    get by role name usato per la POST e PUT di employee
+     */
+    public Optional<Role> findRoleByName(String roleName) {
+        return entityManager.createQuery("SELECT r FROM Role r WHERE LOWER(r.name) = LOWER(:name)", Role.class)
+                .setParameter("name", roleName)
+                .getResultStream()
+                .findFirst();
     }
 
     /*
@@ -163,6 +480,7 @@ public class EmployeeService implements EmployeeRepository {
 
         employee.addTechnology(technology);
         entityManager.merge(employee);
+        skillEvent.fire(new SkillChangeEvent(employeeId, technologyId, true));
     }
 
     /*
@@ -179,6 +497,7 @@ public class EmployeeService implements EmployeeRepository {
 
         employee.removeTechnology(technology);
         entityManager.merge(employee);
+        skillEvent.fire(new SkillChangeEvent(employeeId, technologyId, false));
     }
 
     /*
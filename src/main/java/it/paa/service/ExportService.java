@@ -0,0 +1,261 @@
+package it.paa.service;
+
+import io.quarkus.runtime.ShutdownEvent;
+import it.paa.config.ReadRouting;
+import it.paa.model.dto.export.ExportJobDTO;
+import it.paa.repository.ExportRepository;
+import it.paa.util.ExportType;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@ApplicationScoped
+public class ExportService implements ExportRepository {
+    public static final Path EXPORT_DIRECTORY = Path.of(System.getProperty("java.io.tmpdir"), "it-services-exports");
+    //export eseguiti insieme, gli altri restano in coda
+    private static final int MAX_RUNNING = 2;
+    //export in coda o in esecuzione, oltre i nuovi vengono rifiutati
+    private static final int MAX_ACTIVE = 10;
+    //export tenuti in memoria (e su disco), oltre si eliminano i più vecchi già finiti
+    private static final int MAX_JOBS = 100;
+    //righe lette per volta dal cursore
+    private static final int FETCH_SIZE = 1000;
+    //timeout della query di un export, in secondi
+    private static final int TIMEOUT_SECONDS = 3600;
+
+    @Inject
+    ReadRouting readRouting;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final ExecutorService executor = Executors.newFixedThreadPool(MAX_RUNNING, runnable -> {
+        Thread thread = new Thread(runnable, "export-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    void onStop(@Observes ShutdownEvent event) {
+        executor.shutdownNow();
+    }
+
+    /*
+    avvia un export in background e restituisce subito il suo stato. Solo csv: il formato parquet
+    richiederebbe le librerie di parquet/hadoop, che il progetto non ha. Con MAX_ACTIVE export già in coda
+    o in esecuzione il nuovo viene rifiutato, invece di allungare la coda senza limite
+    */
+    @Override
+    public ExportJobDTO start(String type, String format) throws IllegalArgumentException, RejectedExecutionException {
+        ExportType exportType = ExportType.parse(type);
+
+        if (format == null || !format.trim().equalsIgnoreCase("csv"))
+            throw new IllegalArgumentException("format must be csv");
+
+        if (active.incrementAndGet() > MAX_ACTIVE) {
+            active.decrementAndGet();
+            throw new RejectedExecutionException("too many exports in progress, retry later");
+        }
+
+        evictOldJobs();
+
+        Job job = new Job(UUID.randomUUID().toString(), exportType);
+        jobs.put(job.id, job);
+        executor.submit(() -> run(job));
+
+        return job.toDTO();
+    }
+
+    @Override
+    public Optional<ExportJobDTO> findJob(String id) {
+        return find(id).map(Job::toDTO);
+    }
+
+    //vuoto se l'export non esiste, IllegalStateException se non è ancora finito
+    @Override
+    public Optional<Path> findFile(String id) throws IllegalStateException {
+        Optional<Job> job = find(id);
+
+        if (job.isPresent() && job.get().status != Status.COMPLETED)
+            throw new IllegalStateException("export is " + job.get().status.name().toLowerCase(Locale.ROOT));
+
+        return job.map(completed -> completed.file);
+    }
+
+    private Optional<Job> find(String id) {
+        return Optional.ofNullable(id == null ? null : jobs.get(id));
+    }
+
+    /*
+    le righe vengono lette dalla replica con un cursore (fetch size, transazione aperta) e scritte una alla volta su un
+    file temporaneo, quindi la memoria usata non dipende dal numero di righe; a fine export il file viene rinominato
+     */
+    private void run(Job job) {
+        job.status = Status.RUNNING;
+        Path partial = EXPORT_DIRECTORY.resolve(job.id + ".csv.part");
+        Path file = EXPORT_DIRECTORY.resolve(job.id + ".csv");
+
+        try {
+            Files.createDirectories(EXPORT_DIRECTORY);
+
+            try (Writer writer = Files.newBufferedWriter(partial, StandardCharsets.UTF_8);
+                 Connection connection = readRouting.bulkConnection()) {
+                try {
+                    write(job, connection, writer);
+                } finally {
+                    connection.rollback();
+                }
+            }
+
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.file = file;
+            job.status = Status.COMPLETED;
+        } catch (IOException | SQLException | RuntimeException e) {
+            job.error = e.getMessage();
+            job.status = Status.FAILED;
+
+            try {
+                Files.deleteIfExists(partial);
+            } catch (IOException ignored) {
+            }
+        } finally {
+            job.completedAt = LocalDateTime.now();
+            active.decrementAndGet();
+        }
+    }
+
+    private void write(Job job, Connection connection, Writer writer) throws SQLException, IOException {
+        try (PreparedStatement count = connection.prepareStatement(job.type.getCountQuery());
+             ResultSet result = count.executeQuery()) {
+            result.next();
+            job.rowsTotal = result.getLong(1);
+        }
+
+        writeLine(writer, job.type.getHeader());
+
+        try (PreparedStatement query = connection.prepareStatement(job.type.getQuery())) {
+            query.setFetchSize(FETCH_SIZE);
+            query.setQueryTimeout(TIMEOUT_SECONDS);
+
+            try (ResultSet rows = query.executeQuery()) {
+                Object[] row = new Object[rows.getMetaData().getColumnCount()];
+
+                while (rows.next()) {
+                    for (int i = 0; i < row.length; i++)
+                        row[i] = rows.getObject(i + 1);
+
+                    writeLine(writer, row);
+                    job.rowsWritten++;
+                }
+            }
+        }
+    }
+
+    private static void writeLine(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0)
+                writer.write(',');
+
+            writer.write(escape(values[i]));
+        }
+
+        writer.write("\r\n");
+    }
+
+    //RFC 4180: i valori con separatori, virgolette o a capo vanno tra virgolette, raddoppiando quelle interne
+    private static String escape(Object value) {
+        if (value == null)
+            return "";
+
+        String text = value.toString();
+
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0)
+            return text;
+
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    private void evictOldJobs() {
+        if (jobs.size() < MAX_JOBS)
+            return;
+
+        jobs.values()
+                .stream()
+                .filter(job -> job.status == Status.COMPLETED || job.status == Status.FAILED)
+                .sorted(Comparator.comparing(job -> job.createdAt))
+                .limit(jobs.size() - MAX_JOBS + 1L)
+                .toList()
+                .forEach(job -> {
+                    jobs.remove(job.id);
+
+                    try {
+                        if (job.file != null)
+                            Files.deleteIfExists(job.file);
+                    } catch (IOException ignored) {
+                    }
+                });
+    }
+
+    private enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    //stato di un export, scritto solo dal thread che lo esegue
+    private static final class Job {
+        private final String id;
+        private final ExportType type;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private volatile Status status = Status.QUEUED;
+        private volatile long rowsWritten;
+        private volatile Long rowsTotal;
+        private volatile LocalDateTime completedAt;
+        private volatile Path file;
+        private volatile String error;
+
+        private Job(String id, ExportType type) {
+            this.id = id;
+            this.type = type;
+        }
+
+        private ExportJobDTO toDTO() {
+            ExportJobDTO dto = new ExportJobDTO();
+            dto.setId(id);
+            dto.setType(type.name().toLowerCase(Locale.ROOT));
+            dto.setFormat("csv");
+            dto.setStatus(status.name());
+            dto.setRowsWritten(rowsWritten);
+            dto.setRowsTotal(rowsTotal);
+            dto.setCreatedAt(createdAt);
+            dto.setCompletedAt(completedAt);
+            dto.setError(error);
+
+            if (status == Status.COMPLETED) {
+                dto.setProgress(100.0);
+                dto.setDownload("/exports/" + id + "/file");
+            } else if (rowsTotal != null && rowsTotal > 0)
+                dto.setProgress(Math.min(100.0, Math.round(rowsWritten * 1000.0 / rowsTotal) / 10.0));
+
+            return dto;
+        }
+    }
+}
@@ -1,32 +1,143 @@
 package it.paa.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.paa.config.ReadRouting;
+import it.paa.event.EntityChangeEvent;
+import it.paa.event.StaffingChangeEvent;
+import it.paa.index.MissingIdCache;
+import it.paa.index.SkillIndex;
+import it.paa.index.StaffingIndex;
+import it.paa.model.dto.project.ProjectCostDTO;
+import it.paa.model.dto.project.StaffingConflictDTO;
+import it.paa.model.dto.project.TeamMemberDTO;
+import it.paa.model.dto.project.TeamRecommendationDTO;
 import it.paa.model.entity.Employee;
 import it.paa.model.entity.Project;
 import it.paa.repository.ProjectRepository;
+import it.paa.util.FieldSelection;
+import it.paa.util.SharedBody;
+import it.paa.util.SingleFlight;
+import it.paa.util.VersionTag;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.transaction.Transactional;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.ws.rs.NotFoundException;
-import jakarta.ws.rs.core.NoContentException;
+import jakarta.ws.rs.core.EntityTag;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 
 @ApplicationScoped
 public class ProjectService implements ProjectRepository {
 
+    //limite massimo di tempo per il calcolo del team consigliato (millisecondi)
+    public static final int MAX_RECOMMENDATION_BUDGET = 2000;
+
+    //whitelist dei campi per fields= (nome json -> espressione JPQL)
+    public static final Map<String, String> FIELDS = Map.of(
+            "id", "p.id",
+            "name", "p.name",
+            "description", "p.description",
+            "start_date", "p.startDate",
+            "end_date", "p.endDate",
+            "staffing_cost", "p.staffingCost",
+            "headcount", "p.headcount",
+            "version", "p.version"
+    );
+
+    //dimensione massima di una pagina di /projects/by_cost
+    public static final int MAX_PAGE_SIZE = 100;
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Inject
+    ReadRouting readRouting;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    MissingIdCache missingIdCache;
+
+    //get by id contemporanei sullo stesso id condividono la lettura
+    private final SingleFlight<Long, Optional<SharedBody>> byIdFlights = new SingleFlight<>();
+    private final SingleFlight<String, List<ProjectCostDTO>> costFlights = new SingleFlight<>();
+
+    @Inject
+    Event<EntityChangeEvent> changeEvent;
+
+    @Inject
+    Event<StaffingChangeEvent> staffingEvent;
+
+    @Inject
+    StaffingIndex staffingIndex;
+
+    @Inject
+    SkillIndex skillIndex;
+
     /*
     get all che o restituisce la lista intera o filtrata se vengono passati i filtri
     */
     @Override
-    public List<Project> getAll(String name, LocalDate startDate, LocalDate endDate) throws NoContentException, IllegalArgumentException {
-        String query = "SELECT p FROM Project p";
+    public List<Project> getAll(String name, LocalDate startDate, LocalDate endDate) throws IllegalArgumentException {
+        TypedQuery<Project> tQuery = createFilteredQuery("SELECT p", Project.class, name, startDate, endDate);
+
+        List<Project> projectList = tQuery.getResultList();
+
+        return projectList;
+    }
+
+    /*
+    get all con fields=: stessi filtri, ma la select contiene solo i campi richiesti
+    */
+    @Override
+    public List<Map<String, Object>> getAll(FieldSelection fields, String name, LocalDate startDate, LocalDate endDate) throws IllegalArgumentException {
+        List<Tuple> rows = createFilteredQuery(fields.select(), Tuple.class, name, startDate, endDate).getResultList();
+
+        return rows.stream()
+                .map(fields::toMap)
+                .toList();
+    }
+
+    /*
+    prima pagina del get all senza filtri, con le stesse query (intera e con fields=): usata dal riscaldamento
+    per preparare piani e serializer senza leggere tutta la tabella
+    */
+    public List<Project> getFirst(int limit) {
+        return createFilteredQuery("SELECT p", Project.class, null, null, null)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public List<Map<String, Object>> getFirst(FieldSelection fields, int limit) {
+        return createFilteredQuery(fields.select(), Tuple.class, null, null, null)
+                .setMaxResults(limit)
+                .getResultStream()
+                .map(fields::toMap)
+                .toList();
+    }
+
+    /*
+    costruzione della query del get all con i filtri passati, usata sia per le entità intere che per fields=
+    */
+    private <T> TypedQuery<T> createFilteredQuery(String select, Class<T> resultClass, String name, LocalDate startDate, LocalDate endDate) throws IllegalArgumentException {
+        String query = select + " FROM Project p";
 
         if (name != null && !name.isEmpty() && !name.isBlank()) {
             query += " WHERE LOWER(p.name) = LOWER(:name) ";
@@ -46,7 +157,7 @@ public class ProjectService implements ProjectRepository {
                 query += " AND p.endDate = :endDate";
         }
 
-        TypedQuery<Project> tQuery = entityManager.createQuery(query, Project.class);
+        TypedQuery<T> tQuery = readRouting.reader().createQuery(query, resultClass);
 
         if (name != null && !name.isEmpty() && !name.isBlank())
             tQuery.setParameter("name", name);
@@ -60,25 +171,131 @@ public class ProjectService implements ProjectRepository {
         if (startDate != null && endDate != null && startDate.isAfter(endDate))
             throw new IllegalArgumentException("start date cannot be after end date");
 
-        List<Project> projectList = tQuery.getResultList();
+        return tQuery;
+    }
+
+    /*
+    progetti attivi in almeno un giorno dell'intervallo [from, to] (estremi inclusi).
+    Il periodo del progetto è daterange(start_date, end_date, '[]'): una end_date nulla è un progetto
+    ancora aperto (range illimitato a destra), così come un to nullo; la condizione && usa l'indice GiST
+    creato in DatabaseSchema sulla stessa espressione
+    */
+    @Override
+    public List<Project> getActiveBetween(LocalDate from, LocalDate to) throws IllegalArgumentException {
+        if (from == null)
+            throw new IllegalArgumentException("from cannot be empty");
 
-        if (projectList == null || projectList.isEmpty())
-            throw new NoContentException("no projects found");
+        if (to != null && from.isAfter(to))
+            throw new IllegalArgumentException("from cannot be after to");
+
+        //senza to il range cercato è aperto a destra (NULL come estremo)
+        Query query = readRouting.reader().createNativeQuery("SELECT p.* FROM projects p " +
+                        "WHERE daterange(p.start_date, p.end_date, '[]') && daterange(:from, " + (to == null ? "NULL" : ":to") + ", '[]') " +
+                        "ORDER BY p.start_date, p.id", Project.class)
+                .setParameter("from", from);
+
+        if (to != null)
+            query.setParameter("to", to);
+
+        @SuppressWarnings("unchecked")
+        List<Project> projectList = query.getResultList();
 
         return projectList;
     }
 
     /*
-    get by id che torna l'eccezione se non trova l'oggetto
+    progetti attivi in una data: il periodo del progetto contiene la data (@>), sempre con l'indice GiST
     */
     @Override
-    public Project getById(Long id) throws NotFoundException {
-        Project project = entityManager.find(Project.class, id);
+    public List<Project> getActiveOn(LocalDate date) throws IllegalArgumentException {
+        if (date == null)
+            throw new IllegalArgumentException("date cannot be empty");
+
+        @SuppressWarnings("unchecked")
+        List<Project> projectList = readRouting.reader().createNativeQuery("SELECT p.* FROM projects p " +
+                        "WHERE daterange(p.start_date, p.end_date, '[]') @> CAST(:date AS date) " +
+                        "ORDER BY p.start_date, p.id", Project.class)
+                .setParameter("date", date)
+                .getResultList();
+
+        return projectList;
+    }
+
+    /*
+    get by id, vuoto se l'oggetto non esiste. Nelle letture condivisibili gli id non trovati finiscono
+    nella cache negativa e vengono restituiti vuoti senza andare sul database
+    */
+    @Override
+    public Optional<Project> findById(Long id) {
+        boolean shareable = readRouting.isShareable();
+
+        if (shareable && missingIdCache.isMissing("project", id))
+            return Optional.empty();
+
+        Project project = readRouting.reader().find(Project.class, id);
+
+        if (project == null && shareable)
+            missingIdCache.markMissing("project", id);
+
+        return Optional.ofNullable(project);
+    }
+
+    /*
+    get by id coalescente: le richieste contemporanee per lo stesso id ricevono lo stesso corpo JSON, serializzato
+    nella sessione della prima richiesta. Si condivide il risultato già staccato dalla sessione, mai l'entità gestita,
+    così le altre richieste non toccano il persistence context di un'altra richiesta
+    */
+    @Override
+    public Optional<SharedBody> findSharedById(Long id) {
+        if (!readRouting.isShareable())
+            return findBody(id);
+
+        return byIdFlights.execute(id, () -> findBody(id));
+    }
+
+    private Optional<SharedBody> findBody(Long id) {
+        return findById(id).map(project -> SharedBody.of(objectMapper, project, VersionTag.of(project.getVersion())));
+    }
+
+    //get by id delle scritture, dove un oggetto mancante interrompe l'operazione
+    private Project getById(Long id) throws NotFoundException {
+        return findById(id).orElseThrow(() -> new NotFoundException("project not found"));
+    }
+
+    //get by id delle delete, con la riga bloccata fino alla fine della transazione
+    private Project lockById(Long id) throws NotFoundException {
+        return Optional.ofNullable(entityManager.find(Project.class, id, LockModeType.PESSIMISTIC_WRITE))
+                .orElseThrow(() -> new NotFoundException("project not found"));
+    }
+
+    /*
+    get by id con fields=: si leggono solo le colonne richieste
+    */
+    @Override
+    public Optional<Map<String, Object>> findById(Long id, FieldSelection fields) {
+        List<Tuple> rows = readRouting.reader().createQuery(fields.select() + " FROM Project p WHERE p.id = :id", Tuple.class)
+                .setParameter("id", id)
+                .getResultList();
+
+        if (rows.isEmpty())
+            return Optional.empty();
+
+        return Optional.of(fields.toMap(rows.get(0)));
+    }
+
+    /*
+    ETag del progetto calcolato dalla sola versione, senza caricare l'oggetto intero:
+    usato per rispondere 304 alle GET con If-None-Match
+    */
+    public Optional<EntityTag> findEntityTag(Long id) {
+        List<Long> versions = readRouting.reader().createQuery("SELECT p.version FROM Project p WHERE p.id = :id", Long.class)
+                .setParameter("id", id)
+                .getResultList();
 
-        if (project == null)
-            throw new NotFoundException("project not found");
+        if (versions.isEmpty())
+            return Optional.empty();
 
-        return project;
+        return Optional.of(VersionTag.of(versions.get(0)));
     }
 
     /*
@@ -90,6 +307,7 @@ public class ProjectService implements ProjectRepository {
         try {
             entityManager.persist(project);
             entityManager.flush();
+            changeEvent.fire(new EntityChangeEvent(project, project.getId(), EntityChangeEvent.Operation.CREATE));
 
             return project;
         } catch (ConstraintViolationException e) {
@@ -102,12 +320,13 @@ public class ProjectService implements ProjectRepository {
     */
     @Override
     @Transactional
-    public Project update(Project project) throws ConstraintViolationException {
+    public Project update(Project project) throws OptimisticLockException, ConstraintViolationException {
         try {
-            entityManager.merge(project);
+            Project merged = entityManager.merge(project);
             entityManager.flush();
+            changeEvent.fire(new EntityChangeEvent(merged, merged.getId(), EntityChangeEvent.Operation.UPDATE));
 
-            return project;
+            return merged;
         } catch (ConstraintViolationException e) {
             throw new ConstraintViolationException(e.getConstraintViolations());
         }
@@ -118,9 +337,14 @@ public class ProjectService implements ProjectRepository {
     */
     @Override
     @Transactional
-    public void delete(Long id) throws NotFoundException {
-        Project project = getById(id);
+    public void delete(Long id, EntityTag expected) throws OptimisticLockException, NotFoundException {
+        Project project = lockById(id);
+
+        //confronto con If-Match sulla riga bloccata: un update concorrente aspetta il commit di questa delete
+        if (expected != null && !expected.equals(VersionTag.of(project.getVersion())))
+            throw new OptimisticLockException("project was modified by another request");
         entityManager.remove(project);
+        changeEvent.fire(new EntityChangeEvent(project, id, EntityChangeEvent.Operation.DELETE));
     }
 
     /*
@@ -129,30 +353,306 @@ public class ProjectService implements ProjectRepository {
     @Override
     @Transactional
     public void addEmployee(Long projectId, Long employeeId) throws NotFoundException,IllegalArgumentException {
+        addEmployee(projectId, employeeId, null, null);
+    }
+
+    /*
+    aggiunta dipendente al progetto con controllo dei conflitti: se il dipendente è già su più di maxOverlaps progetti
+    che si sovrappongono a questo, con on_conflict=reject (default) l'aggiunta viene rifiutata, con warn viene fatta
+    e si restituiscono le sovrapposizioni. La riga del dipendente resta bloccata fino al commit, così due aggiunte
+    concorrenti dello stesso dipendente non possono superare insieme il limite; le sovrapposizioni si contano sul database
+    nella stessa transazione (l'interval tree si aggiorna solo dopo il commit e serve al solo report dei conflitti)
+    */
+    @Override
+    @Transactional
+    public List<StaffingConflictDTO> addEmployee(Long projectId, Long employeeId, Integer maxOverlaps, String onConflict) throws NotFoundException, IllegalArgumentException, IllegalStateException {
+        if (maxOverlaps != null && maxOverlaps < 0)
+            throw new IllegalArgumentException("max_overlaps cannot be negative");
+
+        boolean warn = false;
+        if (onConflict != null) {
+            switch (onConflict.trim().toLowerCase(Locale.ROOT)) {
+                case "reject" -> warn = false;
+                case "warn" -> warn = true;
+                default -> throw new IllegalArgumentException("on_conflict must be reject or warn");
+            }
+        }
+
         Project project = getById(projectId);
-        Employee employee = getEmployeeById(employeeId);
+        Employee employee = lockEmployeeById(employeeId);
 
         if(project.getEmployeesList().contains(employee))
             throw new IllegalArgumentException("project already has this employee");
 
+        List<StaffingConflictDTO> conflicts = List.of();
+
+        if (maxOverlaps != null) {
+            List<Long> overlapping = getOverlapping(employeeId, project);
+
+            if (overlapping.size() > maxOverlaps) {
+                if (!warn)
+                    throw new IllegalStateException("employee already on " + overlapping.size() + " overlapping projects " + overlapping + " (max " + maxOverlaps + ")");
+
+                conflicts = overlapping.stream()
+                        .map(other -> new StaffingConflictDTO(employeeId, projectId, other, null, null))
+                        .toList();
+            }
+        }
+
         project.addEmployee(employee);
         entityManager.merge(project);
+        entityManager.flush();
+        refreshStaffing("p.id = :id", projectId);
+        staffingEvent.fire(new StaffingChangeEvent(projectId, employeeId, true));
+
+        return conflicts;
     }
 
     /*
-    rimozione dipendente dal progetto
+    progetti del dipendente che si sovrappongono al periodo del progetto (escluso), letti nella transazione corrente
+    con la stessa condizione && sul daterange di getActiveBetween, servita dall'indice GiST. Date nulle = range aperto
+    */
+    private List<Long> getOverlapping(Long employeeId, Project project) {
+        LocalDate start = project.getStartDate();
+        LocalDate end = project.getEndDate();
+
+        Query query = entityManager.createNativeQuery("SELECT p.id FROM projects p " +
+                        "JOIN project_employee pe ON pe.project_id = p.id " +
+                        "WHERE pe.employee_id = :employeeId AND p.id <> :projectId " +
+                        "AND daterange(p.start_date, p.end_date, '[]') && daterange(" + (start == null ? "NULL" : ":start") + ", " + (end == null ? "NULL" : ":end") + ", '[]') " +
+                        "ORDER BY p.id", Long.class)
+                .setParameter("employeeId", employeeId)
+                .setParameter("projectId", project.getId());
+
+        if (start != null)
+            query.setParameter("start", start);
+        if (end != null)
+            query.setParameter("end", end);
+
+        @SuppressWarnings("unchecked")
+        List<Long> overlapping = query.getResultList();
+
+        return overlapping;
+    }
+
+    /*
+    rimozione dipendente dal progetto: la riga del dipendente si blocca come nell'aggiunta, così un ricalcolo concorrente
+    dello staffing (update dello stipendio) aspetta il commit e non riscrive costo e headcount letti prima della rimozione
     */
     @Override
     @Transactional
     public void removeEmployee(Long projectId, Long employeeId) throws NotFoundException, IllegalArgumentException {
         Project project = getById(projectId);
-        Employee employee = getEmployeeById(employeeId);
+        Employee employee = lockEmployeeById(employeeId);
 
         if(!project.getEmployeesList().contains(employee))
             throw new IllegalArgumentException("project does not have this employee");
 
         project.removeEmployee(employee);
         entityManager.merge(project);
+        entityManager.flush();
+        refreshStaffing("p.id = :id", projectId);
+        staffingEvent.fire(new StaffingChangeEvent(projectId, employeeId, false));
+    }
+
+    /*
+    costo di staffing di un progetto letto dalle colonne aggregate, senza join su project_employee;
+    vuoto se il progetto non esiste
+    */
+    @Override
+    public Optional<ProjectCostDTO> findCost(Long id) {
+        return readRouting.reader().createQuery("SELECT new it.paa.model.dto.project.ProjectCostDTO(p.id, p.name, p.staffingCost, p.headcount) " +
+                        "FROM Project p WHERE p.id = :id", ProjectCostDTO.class)
+                .setParameter("id", id)
+                .getResultList()
+                .stream()
+                .findFirst();
+    }
+
+    /*
+    progetti ordinati per costo di staffing e paginati: l'ordinamento (staffing_cost, id) nella stessa direzione
+    corrisponde all'indice projects_staffing_cost_idx, quindi è una index scan
+    */
+    @Override
+    public List<ProjectCostDTO> getByCost(String order, int page, int size) throws IllegalArgumentException {
+        if (page < 0)
+            throw new IllegalArgumentException("page cannot be negative");
+
+        if (size < 1 || size > MAX_PAGE_SIZE)
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE);
+
+        String direction;
+        switch (order == null ? "desc" : order.trim().toLowerCase(Locale.ROOT)) {
+            case "asc" -> direction = "ASC";
+            case "desc" -> direction = "DESC";
+            default -> throw new IllegalArgumentException("order must be asc or desc");
+        }
+
+        //pagine uguali richieste insieme condividono la stessa query
+        String key = direction + ":" + page + ":" + size;
+        List<ProjectCostDTO> costs = readRouting.isShareable()
+                ? costFlights.execute(key, () -> findByCost(direction, page, size))
+                : findByCost(direction, page, size);
+
+        return costs;
+    }
+
+    private List<ProjectCostDTO> findByCost(String direction, int page, int size) {
+        return readRouting.reader().createQuery("SELECT new it.paa.model.dto.project.ProjectCostDTO(p.id, p.name, p.staffingCost, p.headcount) " +
+                        "FROM Project p ORDER BY p.staffingCost " + direction + ", p.id " + direction, ProjectCostDTO.class)
+                .setFirstResult(page * size)
+                .setMaxResults(size)
+                .getResultList();
+    }
+
+    //ricalcolo degli aggregati dei progetti del dipendente (es. dopo la modifica dello stipendio)
+    @Transactional
+    public int refreshStaffingByEmployee(Long employeeId) {
+        return refreshStaffing("p.id IN (SELECT pe.project_id FROM project_employee pe WHERE pe.employee_id = :id)", employeeId);
+    }
+
+    //ricalcolo degli aggregati dei progetti con dipendenti del ruolo (dopo l'adeguamento massivo degli stipendi)
+    @Transactional
+    public int refreshStaffingByRole(Long roleId) {
+        return refreshStaffing("p.id IN (SELECT pe.project_id FROM project_employee pe JOIN employees e ON e.id = pe.employee_id WHERE e.role = :id)", roleId);
+    }
+
+    /*
+    ricalcolo set-based di staffing_cost e headcount dei progetti scelti da filter (con il parametro :id):
+    un solo UPDATE ... FROM con le somme raggruppate per progetto, che scrive solo le righe cambiate e ne incrementa
+    la versione (gli aggregati fanno parte del json del progetto, quindi anche dell'ETag)
+    */
+    private int refreshStaffing(String filter, Long id) {
+        return entityManager.createNativeQuery("UPDATE projects SET staffing_cost = s.cost, headcount = s.headcount, version = projects.version + 1 " +
+                        "FROM (SELECT p.id, COALESCE(SUM(e.salary), 0) AS cost, COUNT(e.id) AS headcount " +
+                        "FROM projects p LEFT JOIN project_employee pe ON pe.project_id = p.id LEFT JOIN employees e ON e.id = pe.employee_id " +
+                        "WHERE " + filter + " GROUP BY p.id) s " +
+                        "WHERE projects.id = s.id AND (projects.staffing_cost <> s.cost OR projects.headcount <> s.headcount)")
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    /*
+    report di tutte le sovrapposizioni di staffing, calcolato dagli interval tree dei dipendenti
+    */
+    @Override
+    public List<StaffingConflictDTO> getConflicts() {
+        return staffingIndex.conflicts();
+    }
+
+    /*
+    team consigliato per il progetto: set cover greedy sui bitset delle competenze. Ad ogni passo si sceglie il dipendente
+    che copre più tecnologie ancora scoperte (con esperienza sufficiente), a parità quello con meno progetti sovrapposti
+    a questo (dagli interval tree dello staffing).
+    Il greedy dà al massimo H(k) volte il team minimo; se si supera il budget di tempo si restituisce il team trovato fino a lì.
+    Vuoto se il progetto non esiste; una tecnologia che non esiste resta scoperta (il controllo per il 404 è findMissingTechnology)
+    */
+    @Override
+    public Optional<TeamRecommendationDTO> recommendTeam(Long projectId, List<Long> technologyIds, int budgetMillis) throws IllegalArgumentException {
+        if (technologyIds == null || technologyIds.isEmpty())
+            throw new IllegalArgumentException("technologies cannot be empty");
+
+        if (budgetMillis < 1 || budgetMillis > MAX_RECOMMENDATION_BUDGET)
+            throw new IllegalArgumentException("budget_ms must be between 1 and " + MAX_RECOMMENDATION_BUDGET);
+
+        Optional<Project> found = findById(projectId);
+        if (found.isEmpty())
+            return Optional.empty();
+
+        Project project = found.get();
+        long deadline = System.nanoTime() + budgetMillis * 1_000_000L;
+
+        List<Long> technologies = technologyIds.stream()
+                .distinct()
+                .toList();
+
+        //per ogni candidato, il bitset delle tecnologie richieste che copre (bit i = technologies.get(i))
+        Map<Integer, BitSet> skills = new HashMap<>();
+        for (int i = 0; i < technologies.size(); i++) {
+            BitSet qualified = skillIndex.qualified(technologies.get(i), 0);
+
+            for (int position = qualified.nextSetBit(0); position >= 0; position = qualified.nextSetBit(position + 1))
+                skills.computeIfAbsent(position, key -> new BitSet()).set(i);
+        }
+
+        BitSet uncovered = new BitSet();
+        uncovered.set(0, technologies.size());
+
+        Map<Integer, Integer> loads = new HashMap<>();
+        List<TeamMemberDTO> team = new ArrayList<>();
+        boolean budgetExceeded = false;
+
+        while (!uncovered.isEmpty() && !skills.isEmpty()) {
+            Integer best = null;
+            int bestGain = 0;
+            int bestLoad = Integer.MAX_VALUE;
+
+            for (Map.Entry<Integer, BitSet> candidate : skills.entrySet()) {
+                if (System.nanoTime() > deadline) {
+                    budgetExceeded = true;
+                    break;
+                }
+
+                BitSet gain = (BitSet) candidate.getValue().clone();
+                gain.and(uncovered);
+                int gainSize = gain.cardinality();
+
+                if (gainSize == 0 || gainSize < bestGain)
+                    continue;
+
+                //il carico si calcola solo per chi può essere scelto, una volta per candidato
+                int load = loads.computeIfAbsent(candidate.getKey(), position -> {
+                    TeamMemberDTO member = skillIndex.member(position);
+                    return member == null ? Integer.MAX_VALUE : staffingIndex.overlapping(member.getEmployeeId(), project.getStartDate(), project.getEndDate(), projectId).size();
+                });
+
+                if (load == Integer.MAX_VALUE)
+                    continue;
+
+                if (gainSize > bestGain || load < bestLoad) {
+                    best = candidate.getKey();
+                    bestGain = gainSize;
+                    bestLoad = load;
+                }
+            }
+
+            //nessuno copre le tecnologie rimaste, oppure il tempo è finito prima di trovare un candidato
+            if (best == null)
+                break;
+
+            BitSet covered = skills.remove(best);
+            covered.and(uncovered);
+            uncovered.andNot(covered);
+
+            TeamMemberDTO member = skillIndex.member(best);
+            member.setLoad(bestLoad);
+            member.setCovers(covered.stream()
+                    .mapToObj(technologies::get)
+                    .toList());
+            team.add(member);
+
+            if (budgetExceeded)
+                break;
+        }
+
+        TeamRecommendationDTO recommendation = new TeamRecommendationDTO();
+        recommendation.setProjectId(projectId);
+        recommendation.setComplete(uncovered.isEmpty());
+        recommendation.setBudgetExceeded(budgetExceeded);
+        recommendation.setTeam(team);
+        recommendation.setUncoveredTechnologies(uncovered.stream()
+                .mapToObj(technologies::get)
+                .toList());
+
+        return Optional.of(recommendation);
+    }
+
+    //prima tecnologia richiesta che non è nell'indice delle competenze, vuoto se esistono tutte
+    @Override
+    public Optional<Long> findMissingTechnology(List<Long> technologyIds) {
+        return technologyIds.stream()
+                .filter(technologyId -> !skillIndex.containsTechnology(technologyId))
+                .findFirst();
     }
 
     /*
@@ -166,4 +666,12 @@ public class ProjectService implements ProjectRepository {
 
         return employee;
     }
+
+    /*
+    get employee con lock di scrittura sulla riga, tenuto fino al commit
+    */
+    private Employee lockEmployeeById(Long id) throws NotFoundException {
+        return Optional.ofNullable(entityManager.find(Employee.class, id, LockModeType.PESSIMISTIC_WRITE))
+                .orElseThrow(() -> new NotFoundException("employee not found"));
+    }
 }
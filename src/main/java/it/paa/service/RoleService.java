@@ -1,32 +1,125 @@
 package it.paa.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.paa.config.ReadRouting;
+import it.paa.event.EntityChangeEvent;
+import it.paa.event.SalaryFloorEvent;
+import it.paa.index.MissingIdCache;
+import it.paa.index.SalaryIndex;
+import it.paa.model.dto.role.RoleUpdateDTO;
+import it.paa.model.dto.role.SalaryReportDTO;
 import it.paa.model.entity.Role;
 import it.paa.repository.RoleRepository;
+import it.paa.util.FieldSelection;
+import it.paa.util.SharedBody;
+import it.paa.util.SingleFlight;
+import it.paa.util.VersionTag;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.PersistenceException;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.transaction.Transactional;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.NotFoundException;
-import jakarta.ws.rs.core.NoContentException;
+import jakarta.ws.rs.core.EntityTag;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 @ApplicationScoped
 public class RoleService implements RoleRepository {
 
+    //whitelist dei campi per fields= (nome json -> espressione JPQL)
+    public static final Map<String, String> FIELDS = Map.of(
+            "id", "r.id",
+            "name", "r.name",
+            "min_salary", "r.minSalary",
+            "version", "r.version"
+    );
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Inject
+    ReadRouting readRouting;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    MissingIdCache missingIdCache;
+
+    //get by id contemporanei sullo stesso id condividono la lettura
+    private final SingleFlight<Long, Optional<SharedBody>> byIdFlights = new SingleFlight<>();
+
+    @Inject
+    Event<EntityChangeEvent> changeEvent;
+
+    @Inject
+    Event<SalaryFloorEvent> salaryFloorEvent;
+
+    @Inject
+    SalaryIndex salaryIndex;
+
+    @Inject
+    ProjectService projectService;
+
     /*
     get all che o restituisce la lista intera o filtrata se vengono passati i filtri
     */
     @Override
-    public List<Role> getAll(String name, Float min_salary) throws NoContentException {
-        String query = "SELECT r FROM Role r";
+    public List<Role> getAll(String name, Float min_salary) {
+        TypedQuery<Role> tQuery = createFilteredQuery("SELECT r", Role.class, name, min_salary);
+
+        List<Role> roles = tQuery.getResultList();
+
+        return roles;
+    }
+
+    /*
+    get all con fields=: stessi filtri, ma la select contiene solo i campi richiesti
+    */
+    @Override
+    public List<Map<String, Object>> getAll(FieldSelection fields, String name, Float min_salary) {
+        List<Tuple> rows = createFilteredQuery(fields.select(), Tuple.class, name, min_salary).getResultList();
+
+        return rows.stream()
+                .map(fields::toMap)
+                .toList();
+    }
+
+    /*
+    prima pagina del get all senza filtri, con le stesse query (intera e con fields=): usata dal riscaldamento
+    per preparare piani e serializer senza leggere tutta la tabella
+    */
+    public List<Role> getFirst(int limit) {
+        return createFilteredQuery("SELECT r", Role.class, null, null)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public List<Map<String, Object>> getFirst(FieldSelection fields, int limit) {
+        return createFilteredQuery(fields.select(), Tuple.class, null, null)
+                .setMaxResults(limit)
+                .getResultStream()
+                .map(fields::toMap)
+                .toList();
+    }
+
+    /*
+    costruzione della query del get all con i filtri passati, usata sia per le entità intere che per fields=
+    */
+    private <T> TypedQuery<T> createFilteredQuery(String select, Class<T> resultClass, String name, Float min_salary) {
+        String query = select + " FROM Role r";
 
         if (name != null && !name.isEmpty() && !name.isBlank())
             query += " WHERE LOWER(r.name) = LOWER(:name)";
@@ -39,7 +132,7 @@ public class RoleService implements RoleRepository {
 
         }
 
-        TypedQuery<Role> tQuery = entityManager.createQuery(query, Role.class);
+        TypedQuery<T> tQuery = readRouting.reader().createQuery(query, resultClass);
 
         if (name != null)
             tQuery.setParameter("name", name);
@@ -47,26 +140,96 @@ public class RoleService implements RoleRepository {
         if (min_salary != null)
             tQuery.setParameter("min_salary", min_salary);
 
-        List<Role> roles = tQuery.getResultList();
+        return tQuery;
+    }
 
-        if (roles == null || roles.isEmpty())
-            throw new NoContentException("no roles found");
+    /*
+    get by id, vuoto se l'oggetto non esiste. Nelle letture condivisibili gli id non trovati finiscono
+    nella cache negativa e vengono restituiti vuoti senza andare sul database
+    */
+    @Override
+    public Optional<Role> findById(Long id) {
+        boolean shareable = readRouting.isShareable();
 
-        return roles;
+        if (shareable && missingIdCache.isMissing("role", id))
+            return Optional.empty();
+
+        Role role = readRouting.reader().find(Role.class, id);
+
+        if (role == null && shareable)
+            missingIdCache.markMissing("role", id);
+
+        return Optional.ofNullable(role);
     }
 
     /*
-    get by id che torna l'eccezione se non trova l'oggetto
+    get by id coalescente: le richieste contemporanee per lo stesso id ricevono lo stesso corpo JSON, serializzato
+    nella sessione della prima richiesta. Si condivide il risultato già staccato dalla sessione, mai l'entità gestita,
+    così le altre richieste non toccano il persistence context di un'altra richiesta
     */
     @Override
-    public Role getById(Long id) throws NotFoundException {
-        Role role = entityManager.find(Role.class, id);
+    public Optional<SharedBody> findSharedById(Long id) {
+        if (!readRouting.isShareable())
+            return findBody(id);
 
-        if (role == null) {
-            throw new NotFoundException("role not found");
-        }
+        return byIdFlights.execute(id, () -> findBody(id));
+    }
 
-        return role;
+    private Optional<SharedBody> findBody(Long id) {
+        return findById(id).map(role -> SharedBody.of(objectMapper, role, VersionTag.of(role.getVersion())));
+    }
+
+    //get by id delle scritture, dove un oggetto mancante interrompe l'operazione
+    private Role getById(Long id) throws NotFoundException {
+        return findById(id).orElseThrow(() -> new NotFoundException("role not found"));
+    }
+
+    //get by id delle delete, con la riga bloccata fino alla fine della transazione
+    private Role lockById(Long id) throws NotFoundException {
+        return Optional.ofNullable(entityManager.find(Role.class, id, LockModeType.PESSIMISTIC_WRITE))
+                .orElseThrow(() -> new NotFoundException("role not found"));
+    }
+
+    /*
+    get by id con fields=: si leggono solo le colonne richieste
+    */
+    @Override
+    public Optional<Map<String, Object>> findById(Long id, FieldSelection fields) {
+        List<Tuple> rows = readRouting.reader().createQuery(fields.select() + " FROM Role r WHERE r.id = :id", Tuple.class)
+                .setParameter("id", id)
+                .getResultList();
+
+        if (rows.isEmpty())
+            return Optional.empty();
+
+        return Optional.of(fields.toMap(rows.get(0)));
+    }
+
+    /*
+    ETag del ruolo calcolato dalla sola versione, senza caricare l'oggetto intero:
+    usato per rispondere 304 alle GET con If-None-Match
+    */
+    public Optional<EntityTag> findEntityTag(Long id) {
+        List<Long> versions = readRouting.reader().createQuery("SELECT r.version FROM Role r WHERE r.id = :id", Long.class)
+                .setParameter("id", id)
+                .getResultList();
+
+        if (versions.isEmpty())
+            return Optional.empty();
+
+        return Optional.of(VersionTag.of(versions.get(0)));
+    }
+
+    /*
+    ETag della lista calcolato da un contatore a livello di tabella (numero righe, somma delle versioni, id massimo):
+    cambia ad ogni insert, update o delete, senza caricare le entità. I filtri fanno parte del tag
+    perchè la stessa tabella produce liste diverse
+    */
+    public EntityTag getListEntityTag(String name, Float min_salary) {
+        Object[] counter = readRouting.reader().createQuery("SELECT COUNT(r), COALESCE(SUM(r.version), 0), COALESCE(MAX(r.id), 0) FROM Role r", Object[].class)
+                .getSingleResult();
+
+        return VersionTag.of("roles", counter[0], counter[1], counter[2], Integer.toHexString(Objects.hash(name, min_salary)));
     }
 
     /*
@@ -90,6 +253,7 @@ public class RoleService implements RoleRepository {
 
             entityManager.persist(role);
             entityManager.flush();
+            changeEvent.fire(new EntityChangeEvent(role, role.getId(), EntityChangeEvent.Operation.CREATE));
 
             return role;
         } catch (ConstraintViolationException e) {
@@ -104,7 +268,7 @@ public class RoleService implements RoleRepository {
     */
     @Override
     @Transactional
-    public Role update(Role role) throws PersistenceException, ConstraintViolationException {
+    public Role update(Role role) throws OptimisticLockException, PersistenceException, ConstraintViolationException {
         try {
             /*
             ricerca usata per l'univocità del nome del ruolo con ignore case
@@ -119,29 +283,73 @@ public class RoleService implements RoleRepository {
             if (!roles.isEmpty())
                 throw new PersistenceException();
 
-            entityManager.merge(role);
+            Role merged = entityManager.merge(role);
             entityManager.flush();
+            changeEvent.fire(new EntityChangeEvent(merged, merged.getId(), EntityChangeEvent.Operation.UPDATE));
 
-            return role;
+            return merged;
         } catch (ConstraintViolationException e) {
             throw new ConstraintViolationException(e.getConstraintViolations());
+        } catch (OptimisticLockException e) {
+            //ruolo modificato da un'altra richiesta nel frattempo, non va confuso con il nome duplicato
+            throw e;
         } catch (PersistenceException e) {
             throw new PersistenceException("another role with this name already exists");
         }
 
     }
 
+    /*
+    update del ruolo che porta al nuovo minimo anche gli stipendi dei suoi dipendenti che sono sotto, nella stessa transazione:
+    un solo UPDATE sulle righe interessate (indice su role e salary), senza caricare i dipendenti.
+    La versione dei dipendenti aggiornati viene incrementata, così gli ETag già dati ai client non sono più validi
+    */
+    @Override
+    @Transactional
+    public RoleUpdateDTO update(Role role, boolean raiseSalaries) throws OptimisticLockException, PersistenceException, ConstraintViolationException {
+        Role merged = update(role);
+
+        if (!raiseSalaries || merged.getMinSalary() == null)
+            return new RoleUpdateDTO(merged, 0);
+
+        int updated = entityManager.createQuery("UPDATE Employee e SET e.salary = :minSalary, e.version = e.version + 1 " +
+                        "WHERE e.role.id = :roleId AND e.salary < :minSalary")
+                .setParameter("minSalary", merged.getMinSalary())
+                .setParameter("roleId", merged.getId())
+                .executeUpdate();
+
+        if (updated > 0) {
+            projectService.refreshStaffingByRole(merged.getId());
+            salaryFloorEvent.fire(new SalaryFloorEvent(merged.getId(), merged.getMinSalary()));
+        }
+
+        return new RoleUpdateDTO(merged, updated);
+    }
+
     /*
     delete che torna eccezione se l'oggetto ha associazioni o se non lo trova
     */
     @Override
     @Transactional
-    public void delete(Long id) throws NotFoundException, BadRequestException{
-        Role role = getById(id);
+    public void delete(Long id, EntityTag expected) throws OptimisticLockException, NotFoundException, BadRequestException {
+        Role role = lockById(id);
+
+        //confronto con If-Match sulla riga bloccata: un update concorrente aspetta il commit di questa delete
+        if (expected != null && !expected.equals(VersionTag.of(role.getVersion())))
+            throw new OptimisticLockException("role was modified by another request");
 
         if(!role.getEmployeeList().isEmpty())
             throw new BadRequestException("cannot delete role because has associated employees");
 
         entityManager.remove(role);
+        changeEvent.fire(new EntityChangeEvent(role, id, EntityChangeEvent.Operation.DELETE));
+    }
+
+    /*
+    statistiche degli stipendi per ruolo e totali, dagli sketch dei quantili in memoria (senza ruoli la lista è vuota)
+    */
+    @Override
+    public SalaryReportDTO getSalaryStats() {
+        return salaryIndex.report();
     }
 }
@@ -0,0 +1,66 @@
+package it.paa.service;
+
+import it.paa.config.ReadRouting;
+import it.paa.model.dto.search.SearchResultDTO;
+import it.paa.repository.SearchRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.List;
+
+@ApplicationScoped
+public class SearchService implements SearchRepository {
+    public static final int MAX_PAGE_SIZE = 100;
+
+    @Inject
+    ReadRouting readRouting;
+
+    /*
+    ricerca full text su progetti e tecnologie tramite le colonne search_vector (vedi DatabaseSchema):
+    la subquery trova, ordina per rank e pagina i risultati usando gli indici GIN, lo snippet evidenziato
+    (ts_headline, costoso) viene calcolato solo sulle righe della pagina
+    */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<SearchResultDTO> search(String text, int page, int size) throws IllegalArgumentException {
+        if (text == null || text.isBlank())
+            throw new IllegalArgumentException("q cannot be empty");
+
+        if (page < 0)
+            throw new IllegalArgumentException("page cannot be negative");
+
+        if (size < 1 || size > MAX_PAGE_SIZE)
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE);
+
+        String query = "SELECT r.type, r.id, r.name, r.rank," +
+                " ts_headline('simple', r.description, websearch_to_tsquery('simple', :text), 'StartSel=<b>, StopSel=</b>, MaxWords=25, MinWords=10')" +
+                " FROM (" +
+                " SELECT 'project' AS type, p.id, p.name, p.description, ts_rank(p.search_vector, websearch_to_tsquery('simple', :text)) AS rank" +
+                " FROM projects p WHERE p.search_vector @@ websearch_to_tsquery('simple', :text)" +
+                " UNION ALL" +
+                " SELECT 'technology' AS type, t.id, t.name, t.description, ts_rank(t.search_vector, websearch_to_tsquery('simple', :text)) AS rank" +
+                " FROM technologies t WHERE t.search_vector @@ websearch_to_tsquery('simple', :text)" +
+                " ORDER BY rank DESC, type, id" +
+                " LIMIT :limit OFFSET :offset" +
+                ") r" +
+                " ORDER BY r.rank DESC, r.type, r.id";
+
+        List<Object[]> rows = readRouting.reader().createNativeQuery(query)
+                .setParameter("text", text)
+                .setParameter("limit", size)
+                .setParameter("offset", (long) page * size)
+                .getResultList();
+
+        return rows.stream()
+                .map(row -> {
+                    SearchResultDTO result = new SearchResultDTO();
+                    result.setType((String) row[0]);
+                    result.setId(((Number) row[1]).longValue());
+                    result.setName((String) row[2]);
+                    result.setRank(((Number) row[3]).floatValue());
+                    result.setSnippet((String) row[4]);
+                    return result;
+                })
+                .toList();
+    }
+}
@@ -0,0 +1,206 @@
+package it.paa.service;
+
+import it.paa.model.dto.sync.SyncDTO;
+import it.paa.model.dto.sync.TombstoneDTO;
+import it.paa.model.entity.ChangeEvent;
+import it.paa.model.entity.Customer;
+import it.paa.model.entity.Employee;
+import it.paa.model.entity.Project;
+import it.paa.repository.SyncRepository;
+import it.paa.util.ChangePosition;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+@ApplicationScoped
+public class SyncService implements SyncRepository {
+    //ordine in cui vengono restituiti gli oggetti della sincronizzazione iniziale
+    private static final List<String> SNAPSHOT_TYPES = List.of("employee", "project", "customer");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Inject
+    ChangeService changeService;
+
+    /*
+    sincronizzazione per client che non possono tenere aperto il feed SSE. Il token è una posizione dell'outbox
+    (vedi ChangePosition): con il token si leggono al più limit righe successive fino alla watermark e si restituisce lo
+    stato attuale degli oggetti toccati, quindi il costo dipende dal numero di modifiche e non dalla dimensione dei dati.
+    Senza token parte la sincronizzazione iniziale a pagine (vedi snapshot)
+    */
+    @Override
+    public SyncDTO getChanges(String since, int limit) throws IllegalArgumentException, IllegalStateException {
+        if (limit < 1 || limit > ChangeService.MAX_PAGE_SIZE)
+            throw new IllegalArgumentException("limit must be between 1 and " + ChangeService.MAX_PAGE_SIZE);
+
+        //letta prima dei dati, quindi nessuna modifica va persa
+        ChangePosition watermark = changeService.getWatermark();
+
+        if (since == null || since.isBlank())
+            return snapshot(watermark, SNAPSHOT_TYPES.get(0), 0L, limit);
+
+        //token della sincronizzazione iniziale: <posizione>:<tipo>:<ultimo id restituito>
+        String[] parts = since.trim().split(":");
+
+        if (parts.length != 1 && parts.length != 3)
+            throw new IllegalArgumentException("invalid sync token");
+
+        ChangePosition offset = ChangePosition.parse(parts[0]);
+
+        //token oltre la watermark: non viene da questo outbox (ricreato), il client deve ripartire da zero
+        if (offset.compareTo(watermark) > 0)
+            throw new IllegalStateException("sync token expired, sync again without token");
+
+        if (parts.length == 3) {
+            if (!SNAPSHOT_TYPES.contains(parts[1]))
+                throw new IllegalArgumentException("invalid sync token");
+
+            try {
+                return snapshot(offset, parts[1], Long.parseLong(parts[2]), limit);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid sync token");
+            }
+        }
+
+        List<ChangeEvent> changes = changeService.getSince(offset, watermark, limit);
+
+        Set<Long> employeeIds = new LinkedHashSet<>();
+        Set<Long> projectIds = new LinkedHashSet<>();
+        Set<Long> customerIds = new LinkedHashSet<>();
+        Set<Long> roleIds = new LinkedHashSet<>();
+        List<TombstoneDTO> deleted = new ArrayList<>();
+
+        //per ogni oggetto conta l'ultima operazione: una cancellazione annulla le modifiche precedenti e viceversa
+        for (ChangeEvent change : changes) {
+            boolean delete = "DELETE".equals(change.getOperation());
+
+            switch (change.getEntityType()) {
+                case "employee" -> track("employee", change.getEntityId(), delete, employeeIds, deleted);
+                case "project" -> track("project", change.getEntityId(), delete, projectIds, deleted);
+                case "customer" -> track("customer", change.getEntityId(), delete, customerIds, deleted);
+                //assegnazioni: cambiano headcount e costo del progetto
+                case "project_employee" -> track("project", change.getEntityId(), false, projectIds, deleted);
+                //ruolo modificato o minimo salariale: cambiano i dipendenti del ruolo (ruolo e stipendio)
+                case "role" -> {
+                    if (!delete)
+                        roleIds.add(change.getEntityId());
+                }
+                default -> {
+                }
+            }
+        }
+
+        if (!roleIds.isEmpty())
+            employeeIds.addAll(entityManager.createQuery("SELECT e.id FROM Employee e WHERE e.role.id IN :ids", Long.class)
+                    .setParameter("ids", roleIds)
+                    .getResultList());
+
+        /*
+        un dipendente modificato cambia anche i clienti di cui è referente (incluso nel JSON)
+        e il costo dei progetti a cui è assegnato
+        */
+        if (!employeeIds.isEmpty()) {
+            customerIds.addAll(entityManager.createQuery("SELECT c.id FROM Customer c WHERE c.employee.id IN :ids", Long.class)
+                    .setParameter("ids", employeeIds)
+                    .getResultList());
+            projectIds.addAll(entityManager.createQuery("SELECT DISTINCT p.id FROM Project p JOIN p.employeesList e WHERE e.id IN :ids", Long.class)
+                    .setParameter("ids", employeeIds)
+                    .getResultList());
+        }
+
+        List<Employee> employees = load(Employee.class, Employee::getId, "employee", employeeIds, deleted);
+        List<Project> projects = load(Project.class, Project::getId, "project", projectIds, deleted);
+        List<Customer> customers = load(Customer.class, Customer::getId, "customer", customerIds, deleted);
+
+        boolean hasMore = changes.size() == limit;
+        //pagina non piena: tutto fino alla watermark è stato letto
+        ChangePosition token = hasMore ? ChangePosition.of(changes.get(changes.size() - 1)) : offset.max(watermark);
+
+        return new SyncDTO(token.toString(), hasMore, employees, projects, customers, deleted);
+    }
+
+    /*
+    sincronizzazione iniziale a pagine: dipendenti, poi progetti, poi clienti, in ordine di id, al più limit oggetti
+    per pagina. Il token contiene la posizione dell'outbox fissata prima della prima pagina e il punto raggiunto;
+    finite le pagine si riceve la sola posizione con has_more=true, così le modifiche avvenute durante le pagine
+    (anche su oggetti già restituiti o non ancora letti) arrivano subito con la sincronizzazione incrementale
+    */
+    private SyncDTO snapshot(ChangePosition pinned, String type, long afterId, int limit) {
+        SnapshotCursor cursor = new SnapshotCursor(limit);
+
+        List<Employee> employees = page(Employee.class, Employee::getId, "employee", type, afterId, cursor);
+        List<Project> projects = page(Project.class, Project::getId, "project", type, afterId, cursor);
+        List<Customer> customers = page(Customer.class, Customer::getId, "customer", type, afterId, cursor);
+
+        String token = cursor.reached == null ? pinned.toString() : pinned + ":" + cursor.reached;
+
+        return new SyncDTO(token, true, employees, projects, customers, new ArrayList<>());
+    }
+
+    //oggetti di un tipo della sincronizzazione iniziale, dal punto del token e nel limite rimasto della pagina
+    private <T> List<T> page(Class<T> entityClass, Function<T, Long> idOf, String snapshotType, String type, long afterId, SnapshotCursor cursor) {
+        if (cursor.remaining == 0 || SNAPSHOT_TYPES.indexOf(snapshotType) < SNAPSHOT_TYPES.indexOf(type))
+            return new ArrayList<>();
+
+        List<T> rows = entityManager.createQuery("SELECT x FROM " + entityClass.getSimpleName() + " x WHERE x.id > :after ORDER BY x.id", entityClass)
+                .setParameter("after", snapshotType.equals(type) ? afterId : 0L)
+                .setMaxResults(cursor.remaining)
+                .getResultList();
+
+        cursor.remaining -= rows.size();
+        if (cursor.remaining == 0)
+            cursor.reached = snapshotType + ":" + idOf.apply(rows.get(rows.size() - 1));
+
+        return rows;
+    }
+
+    //posti rimasti nella pagina e, se la pagina è piena, tipo e id dell'ultimo oggetto restituito
+    private static class SnapshotCursor {
+        private int remaining;
+        private String reached;
+
+        private SnapshotCursor(int remaining) {
+            this.remaining = remaining;
+        }
+    }
+
+    private static void track(String type, Long id, boolean delete, Set<Long> upserts, List<TombstoneDTO> deleted) {
+        deleted.removeIf(tombstone -> tombstone.getType().equals(type) && tombstone.getId().equals(id));
+
+        if (delete) {
+            upserts.remove(id);
+            deleted.add(new TombstoneDTO(type, id));
+        } else {
+            upserts.add(id);
+        }
+    }
+
+    //stato attuale degli oggetti toccati; quelli non più presenti sono stati cancellati dopo l'ultima riga letta
+    private <T> List<T> load(Class<T> entityClass, Function<T, Long> idOf, String type, Collection<Long> ids, List<TombstoneDTO> deleted) {
+        if (ids.isEmpty())
+            return new ArrayList<>();
+
+        List<T> found = entityManager.createQuery("SELECT x FROM " + entityClass.getSimpleName() + " x WHERE x.id IN :ids", entityClass)
+                .setParameter("ids", ids)
+                .getResultList();
+
+        Set<Long> foundIds = new LinkedHashSet<>();
+        found.forEach(entity -> foundIds.add(idOf.apply(entity)));
+
+        for (Long id : ids) {
+            if (!foundIds.contains(id) && deleted.stream().noneMatch(tombstone -> tombstone.getType().equals(type) && tombstone.getId().equals(id)))
+                deleted.add(new TombstoneDTO(type, id));
+        }
+
+        return found;
+    }
+}
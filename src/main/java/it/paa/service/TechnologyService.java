@@ -1,36 +1,126 @@
 package it.paa.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.paa.config.ReadRouting;
+import it.paa.event.EntityChangeEvent;
+import it.paa.index.CoOccurrenceIndex;
+import it.paa.index.MissingIdCache;
+import it.paa.model.dto.technology.CoOccurrenceDTO;
 import it.paa.model.dto.technology.TechnologyProjectsDTO;
 import it.paa.model.entity.Customer;
 import it.paa.model.entity.Project;
 import it.paa.model.entity.Technology;
 import it.paa.repository.TechnologyRepository;
+import it.paa.util.FieldSelection;
+import it.paa.util.SharedBody;
+import it.paa.util.SingleFlight;
+import it.paa.util.VersionTag;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.transaction.Transactional;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.ws.rs.NotFoundException;
-import jakarta.ws.rs.core.NoContentException;
+import jakarta.ws.rs.core.EntityTag;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class TechnologyService implements TechnologyRepository {
 
+    //numero massimo di coppie restituite dalla co-occorrenza
+    public static final int MAX_CO_OCCURRENCES = 500;
+
+    //whitelist dei campi per fields= (nome json -> espressione JPQL)
+    public static final Map<String, String> FIELDS = Map.of(
+            "id", "t.id",
+            "name", "t.name",
+            "description", "t.description",
+            "minimum_experience_level", "t.minExperienceLevel",
+            "version", "t.version"
+    );
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Inject
+    ReadRouting readRouting;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    MissingIdCache missingIdCache;
+
+    //get by id contemporanei sullo stesso id condividono la lettura
+    private final SingleFlight<Long, Optional<SharedBody>> byIdFlights = new SingleFlight<>();
+    private final SingleFlight<String, List<TechnologyProjectsDTO>> rankingFlights = new SingleFlight<>();
+
+    @Inject
+    Event<EntityChangeEvent> changeEvent;
+
+    @Inject
+    CoOccurrenceIndex coOccurrenceIndex;
+
     /*
     get all che o restituisce la lista intera o filtrata se vengono passati i filtri
     */
     @Override
-    public List<Technology> getAll(String name, Integer minExperienceLevel) throws NoContentException {
-        String query = "SELECT t FROM Technology t";
+    public List<Technology> getAll(String name, Integer minExperienceLevel) {
+        TypedQuery<Technology> tQuery = createFilteredQuery("SELECT t", Technology.class, name, minExperienceLevel);
+
+        List<Technology> technologiesList = tQuery.getResultList();
+
+        return technologiesList;
+    }
+
+    /*
+    get all con fields=: stessi filtri, ma la select contiene solo i campi richiesti
+    */
+    @Override
+    public List<Map<String, Object>> getAll(FieldSelection fields, String name, Integer minExperienceLevel) {
+        List<Tuple> rows = createFilteredQuery(fields.select(), Tuple.class, name, minExperienceLevel).getResultList();
+
+        return rows.stream()
+                .map(fields::toMap)
+                .toList();
+    }
+
+    /*
+    prima pagina del get all senza filtri, con le stesse query (intera e con fields=): usata dal riscaldamento
+    per preparare piani e serializer senza leggere tutta la tabella
+    */
+    public List<Technology> getFirst(int limit) {
+        return createFilteredQuery("SELECT t", Technology.class, null, null)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public List<Map<String, Object>> getFirst(FieldSelection fields, int limit) {
+        return createFilteredQuery(fields.select(), Tuple.class, null, null)
+                .setMaxResults(limit)
+                .getResultStream()
+                .map(fields::toMap)
+                .toList();
+    }
+
+    /*
+    costruzione della query del get all con i filtri passati, usata sia per le entità intere che per fields=
+    */
+    private <T> TypedQuery<T> createFilteredQuery(String select, Class<T> resultClass, String name, Integer minExperienceLevel) {
+        String query = select + " FROM Technology t";
 
         if (name != null && !name.isEmpty() && !name.isBlank()) {
             query += " WHERE LOWER(t.name) = LOWER(:name) ";
@@ -43,7 +133,7 @@ public class TechnologyService implements TechnologyRepository {
                 query += " AND t.minExperienceLevel = :minExperienceLevel";
         }
 
-        TypedQuery<Technology> tQuery = entityManager.createQuery(query, Technology.class);
+        TypedQuery<T> tQuery = readRouting.reader().createQuery(query, resultClass);
 
 
         if (name != null && !name.isEmpty() && !name.isBlank()) {
@@ -54,28 +144,95 @@ public class TechnologyService implements TechnologyRepository {
             tQuery.setParameter("minExperienceLevel", minExperienceLevel);
         }
 
-        List<Technology> technologiesList = tQuery.getResultList();
+        return tQuery;
+    }
 
-        if (technologiesList == null || technologiesList.isEmpty()) {
-            throw new NoContentException("no technologies found");
+    /*
+    get by id, vuoto se l'oggetto non esiste. Nelle letture condivisibili gli id non trovati finiscono
+    nella cache negativa e vengono restituiti vuoti senza andare sul database
+    */
+    @Override
+    public Optional<Technology> findById(Long id) {
+        boolean shareable = readRouting.isShareable();
 
-        }
+        if (shareable && missingIdCache.isMissing("technology", id))
+            return Optional.empty();
 
-        return technologiesList;
+        Technology technology = readRouting.reader().find(Technology.class, id);
+
+        if (technology == null && shareable)
+            missingIdCache.markMissing("technology", id);
+
+        return Optional.ofNullable(technology);
     }
 
     /*
-    get by id che torna l'eccezione se non trova l'oggetto
+    get by id coalescente: le richieste contemporanee per lo stesso id ricevono lo stesso corpo JSON, serializzato
+    nella sessione della prima richiesta. Si condivide il risultato già staccato dalla sessione, mai l'entità gestita,
+    così le altre richieste non toccano il persistence context di un'altra richiesta
     */
     @Override
-    public Technology getById(Long id) throws NotFoundException {
-        Technology technology = entityManager.find(Technology.class, id);
+    public Optional<SharedBody> findSharedById(Long id) {
+        if (!readRouting.isShareable())
+            return findBody(id);
 
-        if (technology == null) {
-            throw new NotFoundException("technology not found");
-        }
+        return byIdFlights.execute(id, () -> findBody(id));
+    }
+
+    private Optional<SharedBody> findBody(Long id) {
+        return findById(id).map(technology -> SharedBody.of(objectMapper, technology, VersionTag.of(technology.getVersion())));
+    }
 
-        return technology;
+    //get by id delle scritture, dove un oggetto mancante interrompe l'operazione
+    private Technology getById(Long id) throws NotFoundException {
+        return findById(id).orElseThrow(() -> new NotFoundException("technology not found"));
+    }
+
+    //get by id delle delete, con la riga bloccata fino alla fine della transazione
+    private Technology lockById(Long id) throws NotFoundException {
+        return Optional.ofNullable(entityManager.find(Technology.class, id, LockModeType.PESSIMISTIC_WRITE))
+                .orElseThrow(() -> new NotFoundException("technology not found"));
+    }
+
+    /*
+    get by id con fields=: si leggono solo le colonne richieste
+    */
+    @Override
+    public Optional<Map<String, Object>> findById(Long id, FieldSelection fields) {
+        List<Tuple> rows = readRouting.reader().createQuery(fields.select() + " FROM Technology t WHERE t.id = :id", Tuple.class)
+                .setParameter("id", id)
+                .getResultList();
+
+        if (rows.isEmpty())
+            return Optional.empty();
+
+        return Optional.of(fields.toMap(rows.get(0)));
+    }
+
+    /*
+    ETag della tecnologia calcolato dalla sola versione, senza caricare l'oggetto intero:
+    usato per rispondere 304 alle GET con If-None-Match
+    */
+    public Optional<EntityTag> findEntityTag(Long id) {
+        List<Long> versions = readRouting.reader().createQuery("SELECT t.version FROM Technology t WHERE t.id = :id", Long.class)
+                .setParameter("id", id)
+                .getResultList();
+
+        if (versions.isEmpty())
+            return Optional.empty();
+
+        return Optional.of(VersionTag.of(versions.get(0)));
+    }
+
+    /*
+    ETag della lista tecnologie dal contatore della tabella (righe, somma versioni, id massimo) e dai filtri,
+    come per i ruoli
+    */
+    public EntityTag getListEntityTag(String name, Integer minExperienceLevel) {
+        Object[] counter = readRouting.reader().createQuery("SELECT COUNT(t), COALESCE(SUM(t.version), 0), COALESCE(MAX(t.id), 0) FROM Technology t", Object[].class)
+                .getSingleResult();
+
+        return VersionTag.of("technologies", counter[0], counter[1], counter[2], Integer.toHexString(Objects.hash(name, minExperienceLevel)));
     }
 
     /*
@@ -87,6 +244,7 @@ public class TechnologyService implements TechnologyRepository {
         try {
             entityManager.persist(technology);
             entityManager.flush();
+            changeEvent.fire(new EntityChangeEvent(technology, technology.getId(), EntityChangeEvent.Operation.CREATE));
 
             return technology;
         } catch (ConstraintViolationException e) {
@@ -99,12 +257,13 @@ public class TechnologyService implements TechnologyRepository {
     */
     @Override
     @Transactional
-    public Technology update(Technology technology) throws ConstraintViolationException {
+    public Technology update(Technology technology) throws OptimisticLockException, ConstraintViolationException {
         try {
-            entityManager.merge(technology);
+            Technology merged = entityManager.merge(technology);
             entityManager.flush();
+            changeEvent.fire(new EntityChangeEvent(merged, merged.getId(), EntityChangeEvent.Operation.UPDATE));
 
-            return technology;
+            return merged;
         } catch (ConstraintViolationException e) {
             throw new ConstraintViolationException(e.getConstraintViolations());
         }
@@ -115,9 +274,29 @@ public class TechnologyService implements TechnologyRepository {
     */
     @Override
     @Transactional
-    public void delete(Long id) throws NotFoundException {
-        Technology technology = getById(id);
+    public void delete(Long id, EntityTag expected) throws OptimisticLockException, NotFoundException {
+        Technology technology = lockById(id);
+
+        //confronto con If-Match sulla riga bloccata: un update concorrente aspetta il commit di questa delete
+        if (expected != null && !expected.equals(VersionTag.of(technology.getVersion())))
+            throw new OptimisticLockException("technology was modified by another request");
         entityManager.remove(technology);
+        changeEvent.fire(new EntityChangeEvent(technology, id, EntityChangeEvent.Operation.DELETE));
+    }
+
+    /*
+    coppie di tecnologie presenti più spesso sugli stessi dipendenti, dalla matrice di co-occorrenza in memoria;
+    con technologyId solo le coppie che contengono quella tecnologia, vuoto se la tecnologia non esiste
+    */
+    @Override
+    public Optional<List<CoOccurrenceDTO>> getCoOccurrence(int top, Long technologyId) throws IllegalArgumentException {
+        if (top < 1 || top > MAX_CO_OCCURRENCES)
+            throw new IllegalArgumentException("top must be between 1 and " + MAX_CO_OCCURRENCES);
+
+        if (technologyId != null && !coOccurrenceIndex.containsTechnology(technologyId))
+            return Optional.empty();
+
+        return Optional.of(coOccurrenceIndex.top(top, technologyId));
     }
 
     /*
@@ -125,6 +304,14 @@ public class TechnologyService implements TechnologyRepository {
     */
 
     public List<TechnologyProjectsDTO> get5MostRequestedTechnology() {
+        //richieste contemporanee del ranking condividono lo stesso calcolo
+        if (readRouting.isShareable())
+            return rankingFlights.execute("5_most_requested", this::compute5MostRequestedTechnology);
+
+        return compute5MostRequestedTechnology();
+    }
+
+    private List<TechnologyProjectsDTO> compute5MostRequestedTechnology() {
         /*
         ricerca tecnologie che hanno almeno un dipendente e di quei dipendenti
         prendo solo quelli che hanno almeno un cliente e un progetto
@@ -134,7 +321,7 @@ public class TechnologyService implements TechnologyRepository {
                 " inner join customers c on c.contact_person = te.employee_id" +
                 " inner join project_employee pe on pe.employee_id = te.employee_id";
 
-        List<Technology> technologiesList = entityManager.createNativeQuery(query, Technology.class).getResultList();
+        List<Technology> technologiesList = readRouting.reader().createNativeQuery(query, Technology.class).getResultList();
 
         /*
         ordinamento di queste tecnologie in base alla somma del numero dei clienti dei dipendenti associati
@@ -0,0 +1,85 @@
+package it.paa.util;
+
+import it.paa.model.entity.ChangeEvent;
+
+import java.util.Objects;
+
+/*
+posizione nel feed delle modifiche: (transazione, id). Gli id dell'outbox vengono da una sequence che assegna blocchi
+di id a ogni nodo, quindi non seguono l'ordine dei commit; la transazione che ha scritto la riga (txid_current()) lo
+segue se si leggono solo le righe delle transazioni sotto la watermark, cioè più vecchie della più vecchia transazione
+ancora in corso: quelle transazioni sono finite e non possono più aggiungere righe prima della posizione letta.
+Formato testuale <tx_id>-<id>, usato come id degli eventi SSE e come token di sync
+ */
+public final class ChangePosition implements Comparable<ChangePosition> {
+    public static final ChangePosition START = new ChangePosition(0, 0);
+
+    private final long txId;
+    private final long id;
+
+    private ChangePosition(long txId, long id) {
+        this.txId = txId;
+        this.id = id;
+    }
+
+    public static ChangePosition of(ChangeEvent changeEvent) {
+        return new ChangePosition(changeEvent.getTxId(), changeEvent.getId());
+    }
+
+    //watermark xmin: tutte le righe delle transazioni precedenti sono già visibili, quelle di xmin in poi no
+    public static ChangePosition watermark(long xmin) {
+        return new ChangePosition(xmin, 0);
+    }
+
+    public static ChangePosition parse(String value) throws IllegalArgumentException {
+        String[] parts = value.trim().split("-");
+
+        if (parts.length != 2)
+            throw new IllegalArgumentException("invalid change position: " + value);
+
+        try {
+            long txId = Long.parseLong(parts[0]);
+            long id = Long.parseLong(parts[1]);
+
+            if (txId < 0 || id < 0)
+                throw new IllegalArgumentException("invalid change position: " + value);
+
+            return new ChangePosition(txId, id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid change position: " + value);
+        }
+    }
+
+    public long getTxId() {
+        return txId;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public ChangePosition max(ChangePosition other) {
+        return compareTo(other) >= 0 ? this : other;
+    }
+
+    @Override
+    public int compareTo(ChangePosition other) {
+        int byTransaction = Long.compare(txId, other.txId);
+        return byTransaction != 0 ? byTransaction : Long.compare(id, other.id);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ChangePosition position && txId == position.txId && id == position.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(txId, id);
+    }
+
+    @Override
+    public String toString() {
+        return txId + "-" + id;
+    }
+}
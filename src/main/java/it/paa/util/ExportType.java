@@ -0,0 +1,62 @@
+package it.paa.util;
+
+import java.util.Locale;
+
+/*
+contenuto degli export: intestazione del CSV, query (native, una riga per record, ordinata per id) e query di conteggio
+per l'avanzamento. Progetti e staff hanno una riga per ogni dipendente assegnato (una sola riga vuota se non ce ne sono)
+ */
+public enum ExportType {
+    EMPLOYEES(
+            new String[]{"id", "name", "surname", "role", "salary", "experience_level", "hiring_date"},
+            "SELECT e.id, e.name, e.surname, r.name AS role, e.salary, e.experience_level, e.hiring_date " +
+                    "FROM employees e JOIN roles r ON r.id = e.role ORDER BY e.id",
+            "SELECT COUNT(*) FROM employees"
+    ),
+    PROJECTS(
+            new String[]{"project_id", "name", "start_date", "end_date", "staffing_cost", "headcount", "employee_id", "employee_name", "employee_surname"},
+            "SELECT p.id, p.name, p.start_date, p.end_date, p.staffing_cost, p.headcount, e.id AS employee_id, e.name AS employee_name, e.surname " +
+                    "FROM projects p LEFT JOIN project_employee pe ON pe.project_id = p.id LEFT JOIN employees e ON e.id = pe.employee_id " +
+                    "ORDER BY p.id, e.id",
+            "SELECT COUNT(*) FROM projects p LEFT JOIN project_employee pe ON pe.project_id = p.id"
+    ),
+    CUSTOMERS(
+            new String[]{"id", "name", "sector", "address", "contact_id", "contact_name", "contact_surname"},
+            "SELECT c.id, c.name, c.sector, c.address, e.id AS contact_id, e.name AS contact_name, e.surname " +
+                    "FROM customers c LEFT JOIN employees e ON e.id = c.contact_person ORDER BY c.id",
+            "SELECT COUNT(*) FROM customers"
+    );
+
+    private final String[] header;
+    private final String query;
+    private final String countQuery;
+
+    ExportType(String[] header, String query, String countQuery) {
+        this.header = header;
+        this.query = query;
+        this.countQuery = countQuery;
+    }
+
+    public static ExportType parse(String type) throws IllegalArgumentException {
+        if (type == null || type.isBlank())
+            throw new IllegalArgumentException("type cannot be empty");
+
+        try {
+            return valueOf(type.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("type must be one of employees, projects, customers");
+        }
+    }
+
+    public String[] getHeader() {
+        return header.clone();
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public String getCountQuery() {
+        return countQuery;
+    }
+}
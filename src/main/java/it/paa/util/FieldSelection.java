@@ -0,0 +1,78 @@
+package it.paa.util;
+
+import jakarta.persistence.Tuple;
+import jakarta.ws.rs.core.EntityTag;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/*
+classe usata per il parametro fields= delle GET: i campi richiesti vengono validati contro la whitelist
+dell'entità (nome json -> espressione JPQL) e la select contiene solo quelle colonne, così le join
+vengono fatte solo se un campo richiesto le usa (es. role_name del dipendente)
+ */
+public class FieldSelection {
+    //nessun fields= passato: si restituisce l'entità intera
+    private static final FieldSelection ALL = new FieldSelection(new LinkedHashMap<>());
+
+    private final Map<String, String> fields;
+
+    private FieldSelection(Map<String, String> fields) {
+        this.fields = fields;
+    }
+
+    public static FieldSelection parse(String fields, Map<String, String> whitelist) throws IllegalArgumentException {
+        if (fields == null)
+            return ALL;
+
+        Map<String, String> selected = new LinkedHashMap<>();
+
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+
+            if (name.isEmpty())
+                continue;
+
+            if (!whitelist.containsKey(name))
+                throw new IllegalArgumentException("unknown field: " + name + " (allowed: " + String.join(", ", new TreeSet<>(whitelist.keySet())) + ")");
+
+            selected.put(name, whitelist.get(name));
+        }
+
+        if (selected.isEmpty())
+            throw new IllegalArgumentException("fields cannot be empty");
+
+        return new FieldSelection(selected);
+    }
+
+    public boolean isAll() {
+        return fields.isEmpty();
+    }
+
+    //select JPQL con le sole espressioni richieste, nell'ordine in cui sono state chieste
+    public String select() {
+        return "SELECT " + String.join(", ", fields.values());
+    }
+
+    //riga della query -> mappa serializzata da jackson con i soli campi richiesti
+    public Map<String, Object> toMap(Tuple tuple) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>(fields.keySet());
+
+        for (int i = 0; i < names.size(); i++)
+            map.put(names.get(i), tuple.get(i));
+
+        return map;
+    }
+
+    //la rappresentazione parziale deve avere un ETag diverso da quella completa
+    public EntityTag tag(EntityTag tag) {
+        if (isAll())
+            return tag;
+
+        return VersionTag.of(tag.getValue(), String.join(".", fields.keySet()));
+    }
+}
@@ -0,0 +1,39 @@
+package it.paa.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.ws.rs.core.EntityTag;
+
+import java.io.UncheckedIOException;
+
+/*
+risposta di una GET by id già serializzata in JSON, con l'ETag della versione letta: è quello che le letture
+coalescenti condividono tra richieste, invece dell'entità gestita dalla sessione di chi l'ha caricata.
+Il corpo viene prodotto una volta sola, dentro la sessione della prima richiesta, e poi solo copiato sulla risposta
+ */
+public class SharedBody {
+    private final byte[] json;
+    private final EntityTag tag;
+
+    private SharedBody(byte[] json, EntityTag tag) {
+        this.json = json;
+        this.tag = tag;
+    }
+
+    public static SharedBody of(ObjectMapper objectMapper, Object entity, EntityTag tag) {
+        try {
+            return new SharedBody(objectMapper.writeValueAsBytes(entity), tag);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //non va modificato: lo stesso array finisce nelle risposte di tutte le richieste coalescenti
+    public byte[] getJson() {
+        return json;
+    }
+
+    public EntityTag getTag() {
+        return tag;
+    }
+}
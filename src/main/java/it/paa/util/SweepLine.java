@@ -0,0 +1,84 @@
+package it.paa.util;
+
+import it.paa.model.dto.utilisation.AllocationPeriodDTO;
+import it.paa.model.dto.utilisation.EmployeeUtilisationDTO;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+sweep-line sugli intervalli (estremi inclusi) dei progetti di un dipendente: ogni intervallo diventa un evento +1
+all'inizio e -1 il giorno dopo la fine, gli eventi ordinati per data danno il numero di progetti contemporanei
+per ogni segmento di tempo in O(n log n), senza scorrere i giorni uno ad uno
+ */
+public class SweepLine {
+
+    /*
+    gli intervalli vengono tagliati su [from, to]; start_date nulla vale from, end_date nulla (progetto aperto) vale to.
+    Un periodo è sovrallocato quando i progetti contemporanei superano threshold
+     */
+    public static EmployeeUtilisationDTO utilisation(Long employeeId, List<LocalDate[]> intervals, LocalDate from, LocalDate to, TimeBucket bucket, int threshold) {
+        TreeMap<LocalDate, Integer> events = new TreeMap<>();
+
+        for (LocalDate[] interval : intervals) {
+            LocalDate start = interval[0] == null || interval[0].isBefore(from) ? from : interval[0];
+            LocalDate end = interval[1] == null || interval[1].isAfter(to) ? to : interval[1];
+
+            if (start.isAfter(end))
+                continue;
+
+            events.merge(start, 1, Integer::sum);
+            events.merge(end.plusDays(1), -1, Integer::sum);
+        }
+
+        int peak = 0;
+        TreeMap<LocalDate, Integer> bucketPeaks = new TreeMap<>();
+        List<AllocationPeriodDTO> overAllocated = new ArrayList<>();
+
+        int count = 0;
+        LocalDate segmentStart = null;
+
+        for (Map.Entry<LocalDate, Integer> event : events.entrySet()) {
+            //segmento [segmentStart, evento - 1] con count progetti contemporanei
+            if (count > 0) {
+                LocalDate segmentEnd = event.getKey().minusDays(1);
+                peak = Math.max(peak, count);
+
+                for (LocalDate b = bucket.start(segmentStart); !b.isAfter(segmentEnd); b = bucket.next(b))
+                    bucketPeaks.merge(b, count, Math::max);
+
+                if (count > threshold) {
+                    AllocationPeriodDTO last = overAllocated.isEmpty() ? null : overAllocated.get(overAllocated.size() - 1);
+
+                    //segmenti sovrallocati consecutivi diventano un unico periodo
+                    if (last != null && last.getEnd().plusDays(1).equals(segmentStart)) {
+                        last.setEnd(segmentEnd);
+                        last.setProjects(Math.max(last.getProjects(), count));
+                    } else
+                        overAllocated.add(new AllocationPeriodDTO(segmentStart, segmentEnd, count));
+                }
+            }
+
+            count += event.getValue();
+            segmentStart = event.getKey();
+        }
+
+        List<AllocationPeriodDTO> timeline = new ArrayList<>(bucketPeaks.size());
+        bucketPeaks.forEach((b, projects) -> {
+            LocalDate start = b.isBefore(from) ? from : b;
+            LocalDate end = bucket.next(b).minusDays(1);
+            timeline.add(new AllocationPeriodDTO(start, end.isAfter(to) ? to : end, projects));
+        });
+
+        EmployeeUtilisationDTO utilisation = new EmployeeUtilisationDTO();
+        utilisation.setEmployeeId(employeeId);
+        utilisation.setPeak(peak);
+        utilisation.setTimeline(timeline);
+        utilisation.setOverAllocated(overAllocated);
+
+        return utilisation;
+    }
+}
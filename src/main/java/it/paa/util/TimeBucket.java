@@ -0,0 +1,56 @@
+package it.paa.util;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Locale;
+
+/*
+granularità dei bucket delle timeline: un bucket è identificato dalla data di inizio
+(lunedì per le settimane, primo del mese per i mesi)
+ */
+public enum TimeBucket {
+    DAY, WEEK, MONTH;
+
+    public static TimeBucket parse(String bucket) throws IllegalArgumentException {
+        if (bucket == null || bucket.isBlank())
+            throw new IllegalArgumentException("bucket cannot be empty");
+
+        try {
+            return valueOf(bucket.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("bucket must be one of day, week, month");
+        }
+    }
+
+    //inizio del bucket che contiene la data
+    public LocalDate start(LocalDate date) {
+        return switch (this) {
+            case DAY -> date;
+            case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> date.withDayOfMonth(1);
+        };
+    }
+
+    //inizio del bucket successivo
+    public LocalDate next(LocalDate start) {
+        return switch (this) {
+            case DAY -> start.plusDays(1);
+            case WEEK -> start.plusWeeks(1);
+            case MONTH -> start.plusMonths(1);
+        };
+    }
+
+    //numero di bucket che coprono [from, to]
+    public long count(LocalDate from, LocalDate to) {
+        LocalDate first = start(from);
+        LocalDate last = start(to);
+
+        return switch (this) {
+            case DAY -> ChronoUnit.DAYS.between(first, last) + 1;
+            case WEEK -> ChronoUnit.WEEKS.between(first, last) + 1;
+            case MONTH -> ChronoUnit.MONTHS.between(first, last) + 1;
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package it.paa.util;
+
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.ext.RuntimeDelegate;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/*
+classe con metodo statico per costruire l'ETag (forte) di una risorsa a partire dalla sua versione.
+Usato con Request.evaluatePreconditions per gestire If-Match (412) sulle PUT e DELETE
+e If-None-Match (304) sulle GET
+ */
+public class VersionTag {
+    public static EntityTag of(Object... parts) {
+        String value = Arrays.stream(parts)
+                .map(String::valueOf)
+                .collect(Collectors.joining("-"));
+
+        return new EntityTag(value);
+    }
+
+    /*
+    ETag atteso dall'header If-Match, per i controlli fatti dentro la transazione (DELETE).
+    null se l'header manca o è "*": qualsiasi versione va bene. Un tag debole non è mai uguale a uno forte,
+    quindi finisce in 412 come vuole If-Match
+     */
+    public static EntityTag parse(String ifMatch) throws IllegalArgumentException {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*"))
+            return null;
+
+        return RuntimeDelegate.getInstance().createHeaderDelegate(EntityTag.class).fromString(ifMatch.trim());
+    }
+}
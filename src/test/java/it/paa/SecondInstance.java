@@ -0,0 +1,102 @@
+package it.paa;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/*
+seconda istanza dell'applicazione sullo stesso database, avviata dall'artefatto impacchettato (il runner nativo
+se la build è nativa, altrimenti il jar) per i test che verificano cosa vede un'altra istanza.
+Non tocca lo schema: la generazione (drop-and-create) la fa solo l'istanza del test
+ */
+public class SecondInstance implements AutoCloseable {
+    private final int port;
+    private final String log;
+    private final Process process;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private SecondInstance(int port, String log, Process process) {
+        this.port = port;
+        this.log = log;
+        this.process = process;
+    }
+
+    public static SecondInstance start(int port, String name, Map<String, String> env) throws Exception {
+        String log = "target/" + name + ".log";
+        ProcessBuilder builder = new ProcessBuilder(command())
+                .redirectErrorStream(true)
+                .redirectOutput(new File(log));
+
+        builder.environment().put("QUARKUS_HTTP_PORT", String.valueOf(port));
+        builder.environment().put("QUARKUS_HIBERNATE_ORM_DATABASE_GENERATION", "none");
+        builder.environment().putAll(env);
+
+        return new SecondInstance(port, log, builder.start());
+    }
+
+    private static List<String> command() {
+        List<String> command = new ArrayList<>();
+        String nativeImage = System.getProperty("native.image.path");
+
+        if (nativeImage != null && new File(nativeImage).canExecute()) {
+            command.add(nativeImage);
+        } else {
+            command.add("java");
+            command.add("-jar");
+            command.add("target/quarkus-app/quarkus-run.jar");
+        }
+
+        return command;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /*
+    status della GET sul path, -1 se l'istanza non è ancora in ascolto
+     */
+    public int status(String path) throws InterruptedException {
+        if (!process.isAlive())
+            fail("second instance exited, see " + log);
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build();
+
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    public void awaitStatus(String path, int status, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        int last = -1;
+
+        while (System.nanoTime() < deadline) {
+            last = status(path);
+            if (last == status)
+                return;
+
+            Thread.sleep(200);
+        }
+
+        fail("second instance: GET " + path + " not " + status + " in " + timeout + ", last seen " + last + ", see " + log);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        process.waitFor();
+    }
+}
@@ -0,0 +1,103 @@
+package it.paa.config;
+
+import io.quarkus.test.junit.QuarkusIntegrationTest;
+import io.restassured.http.ContentType;
+import io.restassured.response.ExtractableResponse;
+import io.restassured.response.Response;
+import it.paa.SecondInstance;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+
+/*
+read-your-writes con una replica che resta indietro: la seconda istanza legge da una replica vuota (un database a parte
+con il solo schema), quindi senza token non vede le scritture fatte dal primario, con X-Read-After sì perché la replica
+non ha l'evento del token e la lettura passa al primario.
+Richiede il database (e il permesso di crearne uno): ./mvnw verify -DskipITs=false
+ */
+@QuarkusIntegrationTest
+public class ReadYourWritesIT {
+    private static final int LAGGING_PORT = 8084;
+    private static final String LAGGING_DATABASE = "workshop3_it_services_lagging_replica";
+
+    private static SecondInstance lagging;
+
+    @BeforeAll
+    public static void startLaggingInstance() throws Exception {
+        Config config = ConfigProvider.getConfig();
+        String url = config.getValue("quarkus.datasource.jdbc.url", String.class);
+        String username = config.getValue("quarkus.datasource.username", String.class);
+        String password = config.getValue("quarkus.datasource.password", String.class);
+        String laggingUrl = url.substring(0, url.lastIndexOf('/') + 1) + LAGGING_DATABASE;
+
+        try (Connection connection = DriverManager.getConnection(url, username, password);
+             Statement statement = connection.createStatement()) {
+            try (ResultSet exists = statement.executeQuery("SELECT 1 FROM pg_database WHERE datname = '" + LAGGING_DATABASE + "'")) {
+                if (!exists.next())
+                    statement.execute("CREATE DATABASE " + LAGGING_DATABASE);
+            }
+        }
+
+        lagging = SecondInstance.start(LAGGING_PORT, "lagging-replica", Map.of(
+                "PAA_WARMUP_ENABLED", "false",
+                "QUARKUS_DATASOURCE_REPLICA_JDBC_URL", laggingUrl,
+                //schema senza dati, ricreato ad ogni avvio
+                "QUARKUS_HIBERNATE_ORM__REPLICA__DATABASE_GENERATION", "drop-and-create"));
+        lagging.awaitStatus("/health/ready", 200, Duration.ofSeconds(30));
+    }
+
+    @AfterAll
+    public static void stopLaggingInstance() throws Exception {
+        if (lagging != null)
+            lagging.close();
+    }
+
+    @Test
+    public void readAfterTokenFallsBackToThePrimary() {
+        String roleName = "read-your-writes-" + System.nanoTime();
+
+        ExtractableResponse<Response> created = given()
+                .port(LAGGING_PORT)
+                .contentType(ContentType.JSON)
+                .body(Map.of("name", roleName, "min_salary", 0))
+                .when().post("/roles")
+                .then().statusCode(201)
+                .extract();
+        long id = created.jsonPath().getLong("id");
+        String token = created.header(ReadConsistencyFilter.CHANGE_TOKEN_HEADER);
+
+        //senza token la lettura va alla replica, che non ha il ruolo
+        given()
+                .port(LAGGING_PORT)
+                .when().get("/roles/role_id/" + id)
+                .then().statusCode(404);
+
+        given()
+                .port(LAGGING_PORT)
+                .header(ReadConsistencyFilter.READ_AFTER_HEADER, token)
+                .when().get("/roles/role_id/" + id)
+                .then().statusCode(200)
+                .body("name", equalTo(roleName));
+    }
+
+    @Test
+    public void invalidReadAfterIsBadRequest() {
+        given()
+                .port(LAGGING_PORT)
+                .header(ReadConsistencyFilter.READ_AFTER_HEADER, "not-a-token")
+                .when().get("/roles")
+                .then().statusCode(400);
+    }
+}
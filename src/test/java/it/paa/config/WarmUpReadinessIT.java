@@ -0,0 +1,64 @@
+package it.paa.config;
+
+import io.quarkus.test.junit.QuarkusIntegrationTest;
+import it.paa.SecondInstance;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.oneOf;
+
+/*
+readiness durante il riscaldamento: una seconda istanza con un riscaldamento lungo (tanti giri, fermato dalla durata
+massima) risponde subito su /health/live, ma /health/ready resta 503 finché il riscaldamento non è finito.
+Richiede il database: ./mvnw verify -DskipITs=false
+ */
+@QuarkusIntegrationTest
+public class WarmUpReadinessIT {
+    private static final int WARMING_PORT = 8085;
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    private static SecondInstance warming;
+
+    @BeforeAll
+    public static void startWarmingInstance() throws Exception {
+        warming = SecondInstance.start(WARMING_PORT, "warm-up-readiness", Map.of(
+                "PAA_WARMUP_ENABLED", "true",
+                "PAA_WARMUP_ITERATIONS", "1000000",
+                "PAA_WARMUP_MAX_DURATION", "PT10S"));
+        warming.awaitStatus("/health/live", 200, TIMEOUT);
+    }
+
+    @AfterAll
+    public static void stopWarmingInstance() throws Exception {
+        if (warming != null)
+            warming.close();
+    }
+
+    @Test
+    public void readyOnlyAfterTheWarmUp() throws InterruptedException {
+        given()
+                .port(WARMING_PORT)
+                .when().get("/health/ready")
+                .then().statusCode(503)
+                .header("Retry-After", "5")
+                .body("status", equalTo("DOWN"))
+                .body("warmup", oneOf("PENDING", "RUNNING"));
+
+        warming.awaitStatus("/health/ready", 200, TIMEOUT);
+
+        given()
+                .port(WARMING_PORT)
+                .when().get("/health/ready")
+                .then().statusCode(200)
+                .body("status", equalTo("UP"))
+                .body("warmup", equalTo("COMPLETED"))
+                .body("iterations", greaterThan(0));
+    }
+}
@@ -0,0 +1,61 @@
+package it.paa.index;
+
+import it.paa.event.CacheInvalidationEvent;
+import it.paa.event.EntityChangeEvent;
+import it.paa.model.entity.Customer;
+import it.paa.model.entity.Employee;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+cache negativa dei get by id: un id segnato come mancante torna visibile appena viene creato,
+sullo stesso nodo (EntityChangeEvent) o su un altro (CacheInvalidationEvent)
+ */
+public class MissingIdCacheTest {
+
+    @Test
+    public void createRemovesTheMissingId() {
+        MissingIdCache cache = new MissingIdCache();
+        cache.markMissing("employee", 42L);
+
+        assertTrue(cache.isMissing("employee", 42L));
+
+        cache.onChange(new EntityChangeEvent(new Employee(), 42L, EntityChangeEvent.Operation.CREATE));
+
+        assertFalse(cache.isMissing("employee", 42L));
+    }
+
+    @Test
+    public void onlyTheCreatedTypeAndIdAreRemoved() {
+        MissingIdCache cache = new MissingIdCache();
+        cache.markMissing("employee", 42L);
+        cache.markMissing("employee", 43L);
+
+        cache.onChange(new EntityChangeEvent(new Customer(), 42L, EntityChangeEvent.Operation.CREATE));
+        cache.onChange(new EntityChangeEvent(new Employee(), 43L, EntityChangeEvent.Operation.UPDATE));
+
+        assertTrue(cache.isMissing("employee", 42L));
+        assertTrue(cache.isMissing("employee", 43L));
+    }
+
+    @Test
+    public void remoteCreateRemovesTheMissingId() {
+        MissingIdCache cache = new MissingIdCache();
+        cache.markMissing("project", 7L);
+        cache.markMissing("role", 8L);
+
+        cache.onRemoteChange(CacheInvalidationEvent.of(Map.of("project", Set.of(7L))));
+
+        assertFalse(cache.isMissing("project", 7L));
+        assertTrue(cache.isMissing("role", 8L));
+
+        cache.onRemoteChange(CacheInvalidationEvent.full());
+
+        assertFalse(cache.isMissing("role", 8L));
+    }
+}
@@ -0,0 +1,137 @@
+package it.paa.index;
+
+import io.quarkus.test.junit.QuarkusIntegrationTest;
+import io.restassured.http.ContentType;
+import io.restassured.specification.RequestSpecification;
+import it.paa.SecondInstance;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/*
+due istanze sullo stesso database: le scritture passano dall'istanza del test, le statistiche degli stipendi
+si leggono da una seconda istanza (SecondInstance, senza generazione dello schema), che le aggiorna solo con le notifiche di
+invalidazione (dipendenti e ruoli modificati, minimo salariale alzato).
+Richiede il database: ./mvnw verify -DskipITs=false
+ */
+@QuarkusIntegrationTest
+public class RemoteSalaryIndexIT {
+    private static final int REMOTE_PORT = 8083;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private static SecondInstance remote;
+
+    @BeforeAll
+    public static void startRemote() throws Exception {
+        remote = SecondInstance.start(REMOTE_PORT, "remote-salary-index", Map.of("PAA_WARMUP_ENABLED", "false"));
+        remote.awaitStatus("/health/ready", 200, TIMEOUT);
+    }
+
+    @AfterAll
+    public static void stopRemote() throws Exception {
+        if (remote != null)
+            remote.close();
+    }
+
+    @Test
+    public void remoteWritesReachTheSalaryStats() {
+        String roleName = "remote-salary-" + System.nanoTime();
+
+        long roleId = given()
+                .contentType(ContentType.JSON)
+                .body(Map.of("name", roleName, "min_salary", 0))
+                .when().post("/roles")
+                .then().statusCode(201)
+                .extract().jsonPath().getLong("id");
+
+        long employeeId = given()
+                .contentType(ContentType.JSON)
+                .body(Map.of("name", "Remote", "surname", "Salary", "role_name", roleName, "hiring_date", "2020-01-01", "salary", 1000))
+                .when().post("/employees")
+                .then().statusCode(201)
+                .extract().jsonPath().getLong("id");
+
+        awaitRemoteStats(roleId, stats -> count(stats) == 1 && near(max(stats), 1000));
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(Map.of("salary", 3000))
+                .when().put("/employees/employee_id/" + employeeId)
+                .then().statusCode(200);
+
+        awaitRemoteStats(roleId, stats -> count(stats) == 1 && near(max(stats), 3000));
+
+        //minimo salariale alzato con update massivo: la notifica porta solo l'id del ruolo
+        given()
+                .contentType(ContentType.JSON)
+                .queryParam("raise_salaries", true)
+                .body(Map.of("min_salary", 5000))
+                .when().put("/roles/role_id/" + roleId)
+                .then().statusCode(200);
+
+        awaitRemoteStats(roleId, stats -> count(stats) == 1 && near(min(stats), 5000));
+
+        given()
+                .when().delete("/employees/employee_id/" + employeeId)
+                .then().statusCode(200);
+
+        awaitRemoteStats(roleId, stats -> count(stats) == 0);
+    }
+
+    private static RequestSpecification remoteRequest() {
+        return given().port(REMOTE_PORT);
+    }
+
+    //statistiche del ruolo lette dalla seconda istanza finché non soddisfano la condizione
+    private static void awaitRemoteStats(long roleId, Predicate<Map<String, Object>> condition) {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        Map<String, Object> stats = null;
+
+        while (System.nanoTime() < deadline) {
+            stats = remoteRequest()
+                    .when().get("/roles/salary_stats")
+                    .then().statusCode(200)
+                    .extract().jsonPath().getMap("roles.find { it.role_id == " + roleId + " }");
+
+            if (stats != null && condition.test(stats))
+                return;
+
+            sleep();
+        }
+
+        fail("remote salary stats not updated, last seen: " + stats);
+    }
+
+    //min e max vengono dallo sketch: valori del bucket, esatti solo entro l'accuratezza relativa
+    private static boolean near(double actual, double expected) {
+        return Math.abs(actual - expected) <= expected * QuantileSketch.RELATIVE_ACCURACY;
+    }
+
+    private static long count(Map<String, Object> stats) {
+        return ((Number) stats.get("count")).longValue();
+    }
+
+    private static double min(Map<String, Object> stats) {
+        return ((Number) stats.get("min")).doubleValue();
+    }
+
+    private static double max(Map<String, Object> stats) {
+        return ((Number) stats.get("max")).doubleValue();
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(250);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
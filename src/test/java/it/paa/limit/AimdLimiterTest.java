@@ -0,0 +1,93 @@
+package it.paa.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+limite AIMD: sale di circa 1 per giro di richieste veloci che usano il limite, scende del 10% per ogni richiesta
+lenta o fallita, sempre dentro [minimo, massimo]
+ */
+public class AimdLimiterTest {
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @Test
+    public void rejectsOverTheLimit() {
+        AimdLimiter limiter = new AimdLimiter(2, 1, 6, 100);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(2, limiter.getAccepted());
+        assertEquals(1, limiter.getRejected());
+
+        limiter.release(FAST, false);
+
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void growsWhenTheLimitIsUsedUpToTheMaximum() {
+        AimdLimiter limiter = new AimdLimiter(2, 1, 6, 100);
+
+        fullRound(limiter);
+        assertEquals(2, limiter.getLimit());
+
+        fullRound(limiter);
+        assertEquals(3, limiter.getLimit());
+
+        for (int i = 0; i < 50; i++)
+            fullRound(limiter);
+
+        assertEquals(6, limiter.getLimit());
+    }
+
+    @Test
+    public void doesNotGrowWhenTheLimitIsNotUsed() {
+        AimdLimiter limiter = new AimdLimiter(4, 1, 10, 100);
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(FAST, false);
+        }
+
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void backsOffOnSlowOrFailedRequestsDownToTheMinimum() {
+        AimdLimiter limiter = new AimdLimiter(20, 4, 50, 100);
+
+        assertTrue(limiter.tryAcquire());
+        limiter.release(SLOW, false);
+        assertEquals(18, limiter.getLimit());
+
+        assertTrue(limiter.tryAcquire());
+        limiter.release(FAST, true);
+        assertEquals(16, limiter.getLimit());
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(SLOW, false);
+        }
+
+        assertEquals(4, limiter.getLimit());
+    }
+
+    //tutti i posti occupati e poi rilasciati con latenza sotto l'obiettivo
+    private static void fullRound(AimdLimiter limiter) {
+        int acquired = 0;
+
+        while (limiter.tryAcquire())
+            acquired++;
+
+        for (int i = 0; i < acquired; i++)
+            limiter.release(FAST, false);
+    }
+}
@@ -0,0 +1,102 @@
+package it.paa.limit;
+
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/*
+load shedding del filtro: oltre il limite della classe di endpoint la richiesta viene chiusa subito con 503 e Retry-After,
+e il posto preso da una richiesta accettata torna libero con la sua risposta. I contesti JAX-RS sono proxy minimi
+ */
+public class ConcurrencyLimitFilterTest {
+    private ConcurrencyLimitFilter filter;
+
+    @BeforeEach
+    public void setUp() throws NoSuchMethodException {
+        filter = new ConcurrencyLimitFilter();
+        filter.limits = new ConcurrencyLimits();
+        filter.resourceInfo = resourceInfo(getClass().getDeclaredMethod("analytics"));
+    }
+
+    @Test
+    public void rejectsWith503OverTheLimitAndAcceptsAgainAfterARelease() {
+        //limite iniziale delle analisi: 2
+        RequestContext first = new RequestContext();
+        RequestContext second = new RequestContext();
+        RequestContext third = new RequestContext();
+
+        filter.filter(first.proxy());
+        filter.filter(second.proxy());
+        filter.filter(third.proxy());
+
+        assertNull(first.aborted);
+        assertNull(second.aborted);
+        assertNotNull(third.aborted);
+        assertEquals(503, third.aborted.getStatus());
+        assertEquals("1", third.aborted.getHeaderString(HttpHeaders.RETRY_AFTER));
+
+        //la risposta rifiutata non rilascia posti che non ha preso
+        filter.filter(third.proxy(), response(503));
+        assertEquals(2, filter.limits.get(EndpointClass.ANALYTICS).getInFlight());
+
+        filter.filter(first.proxy(), response(200));
+
+        RequestContext fourth = new RequestContext();
+        filter.filter(fourth.proxy());
+        assertNull(fourth.aborted);
+        assertEquals(1, filter.limits.get(EndpointClass.ANALYTICS).getRejected());
+    }
+
+    @Limited(EndpointClass.ANALYTICS)
+    void analytics() {
+    }
+
+    private static ResourceInfo resourceInfo(Method method) {
+        return (ResourceInfo) Proxy.newProxyInstance(ResourceInfo.class.getClassLoader(), new Class<?>[]{ResourceInfo.class},
+                (proxy, invoked, args) -> switch (invoked.getName()) {
+                    case "getResourceMethod" -> method;
+                    case "getResourceClass" -> method.getDeclaringClass();
+                    default -> throw new UnsupportedOperationException(invoked.getName());
+                });
+    }
+
+    private static ContainerResponseContext response(int status) {
+        return (ContainerResponseContext) Proxy.newProxyInstance(ContainerResponseContext.class.getClassLoader(), new Class<?>[]{ContainerResponseContext.class},
+                (proxy, invoked, args) -> {
+                    if (invoked.getName().equals("getStatus"))
+                        return status;
+
+                    throw new UnsupportedOperationException(invoked.getName());
+                });
+    }
+
+    //contesto di una richiesta: solo proprietà e abortWith
+    private static class RequestContext {
+        private final Map<String, Object> properties = new HashMap<>();
+        private Response aborted;
+
+        private ContainerRequestContext proxy() {
+            return (ContainerRequestContext) Proxy.newProxyInstance(ContainerRequestContext.class.getClassLoader(), new Class<?>[]{ContainerRequestContext.class},
+                    (proxy, invoked, args) -> switch (invoked.getName()) {
+                        case "getProperty" -> properties.get((String) args[0]);
+                        case "setProperty" -> properties.put((String) args[0], args[1]);
+                        case "removeProperty" -> properties.remove((String) args[0]);
+                        case "abortWith" -> aborted = (Response) args[0];
+                        default -> throw new UnsupportedOperationException(invoked.getName());
+                    });
+        }
+    }
+}
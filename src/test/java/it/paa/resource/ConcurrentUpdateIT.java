@@ -0,0 +1,127 @@
+package it.paa.resource;
+
+import io.quarkus.test.junit.QuarkusIntegrationTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+richieste concorrenti con lo stesso If-Match sulla stessa risorsa: deve passarne una sola, le altre tornano 412.
+Gira sul jar impacchettato e richiede il database: ./mvnw verify -DskipITs=false
+ */
+@QuarkusIntegrationTest
+public class ConcurrentUpdateIT {
+    private static final int THREADS = 8;
+
+    @Test
+    public void concurrentUpdatesWithSameTag() throws Exception {
+        long id = createRole();
+        String tag = tagOf(id);
+
+        List<Integer> statuses = race(THREADS, i -> () -> update(id, tag, 1000 + i));
+
+        assertEquals(1, count(statuses, 200), "statuses: " + statuses);
+        assertEquals(THREADS - 1, count(statuses, 412), "statuses: " + statuses);
+    }
+
+    @Test
+    public void concurrentUpdateAndDeleteWithSameTag() throws Exception {
+        long id = createRole();
+        String tag = tagOf(id);
+
+        List<Integer> statuses = race(2, i -> i == 0 ? () -> update(id, tag, 2000) : () -> delete(id, tag));
+
+        //vince una sola delle due; la perdente trova la versione cambiata (412) o la riga già cancellata (404)
+        assertEquals(1, count(statuses, 200), "statuses: " + statuses);
+        assertEquals(1, count(statuses, 412) + count(statuses, 404), "statuses: " + statuses);
+    }
+
+    @Test
+    public void deleteWithStaleTag() {
+        long id = createRole();
+        String tag = tagOf(id);
+
+        assertEquals(200, update(id, tag, 3000));
+        assertEquals(412, delete(id, tag));
+
+        given().when().get("/roles/role_id/" + id).then().statusCode(200);
+        assertEquals(200, delete(id, tagOf(id)));
+    }
+
+    private long createRole() {
+        return given()
+                .contentType(ContentType.JSON)
+                .body(Map.of("name", "concurrent-" + System.nanoTime(), "min_salary", 0))
+                .when().post("/roles")
+                .then().statusCode(201)
+                .extract().jsonPath().getLong("id");
+    }
+
+    //ETag forte della versione attuale del ruolo, come lo costruisce VersionTag
+    private String tagOf(long id) {
+        return "\"" + given()
+                .when().get("/roles/role_id/" + id)
+                .then().statusCode(200)
+                .extract().jsonPath().getLong("version") + "\"";
+    }
+
+    private int update(long id, String tag, int minSalary) {
+        return given()
+                .contentType(ContentType.JSON)
+                .header("If-Match", tag)
+                .body(Map.of("min_salary", minSalary))
+                .when().put("/roles/role_id/" + id)
+                .statusCode();
+    }
+
+    private int delete(long id, String tag) {
+        return given()
+                .header("If-Match", tag)
+                .when().delete("/roles/role_id/" + id)
+                .statusCode();
+    }
+
+    //le richieste partono insieme dopo il latch, si raccolgono gli status
+    private List<Integer> race(int threads, IntFunction<Callable<Integer>> requests) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Callable<Integer> request = requests.apply(i);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return request.call();
+                }));
+            }
+
+            start.countDown();
+
+            List<Integer> statuses = new ArrayList<>();
+            for (Future<Integer> future : futures)
+                statuses.add(future.get(30, TimeUnit.SECONDS));
+
+            return statuses;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long count(List<Integer> statuses, int status) {
+        return statuses.stream().filter(s -> s == status).count();
+    }
+}
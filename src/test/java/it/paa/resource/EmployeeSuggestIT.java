@@ -0,0 +1,94 @@
+package it.paa.resource;
+
+import io.quarkus.test.junit.QuarkusIntegrationTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+autocomplete dei dipendenti: prima i risultati dell'indice per prefisso, poi quelli per similarità (trigrammi)
+senza duplicati. I cognomi hanno un tag casuale di sole lettere per non incrociare i dati di altri test.
+Richiede il database: ./mvnw verify -DskipITs=false
+ */
+@QuarkusIntegrationTest
+public class EmployeeSuggestIT {
+    private static final String TAG = tag();
+
+    private static String roleName;
+
+    @BeforeAll
+    public static void createRole() {
+        roleName = "suggest-" + TAG;
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(Map.of("name", roleName, "min_salary", 0))
+                .when().post("/roles")
+                .then().statusCode(201);
+    }
+
+    @Test
+    public void prefixMatchesComeFirstThenSimilarOnes() {
+        long prefixMatch = createEmployee(TAG + "rossini");
+        long similar = createEmployee(TAG + "rosa");
+
+        List<Long> ids = suggest(TAG + "ross", 10);
+
+        assertEquals(prefixMatch, ids.get(0), "ids: " + ids);
+        assertTrue(ids.contains(similar), "ids: " + ids);
+        assertEquals(ids.stream().distinct().count(), ids.size(), "ids: " + ids);
+
+        //il limite si riempie prima con l'indice per prefisso
+        assertEquals(List.of(prefixMatch), suggest(TAG + "ross", 1));
+    }
+
+    @Test
+    public void typoFallsBackToSimilarity() {
+        long employee = createEmployee(TAG + "bartholomew");
+
+        assertTrue(suggest(TAG + "bartolomew", 10).contains(employee));
+    }
+
+    @Test
+    public void shortPrefixWithoutMatchesIsNoContent() {
+        given()
+                .queryParam("prefix", "#!")
+                .when().get("/employees/suggest")
+                .then().statusCode(204);
+    }
+
+    private long createEmployee(String surname) {
+        return given()
+                .contentType(ContentType.JSON)
+                .body(Map.of("name", "Suggest", "surname", surname, "role_name", roleName, "hiring_date", "2020-01-01", "salary", 1000))
+                .when().post("/employees")
+                .then().statusCode(201)
+                .extract().jsonPath().getLong("id");
+    }
+
+    private List<Long> suggest(String prefix, int limit) {
+        return given()
+                .queryParam("prefix", prefix)
+                .queryParam("limit", limit)
+                .when().get("/employees/suggest")
+                .then().statusCode(200)
+                .extract().jsonPath().getList("id", Long.class);
+    }
+
+    //tag di sole lettere (le cifre del nanoTime in base 26 spostate su a-z)
+    private static String tag() {
+        StringBuilder tag = new StringBuilder();
+
+        for (char c : Long.toString(System.nanoTime(), 26).toCharArray())
+            tag.append((char) (Character.isDigit(c) ? 'a' + (c - '0') : c + 10));
+
+        return tag.toString();
+    }
+}
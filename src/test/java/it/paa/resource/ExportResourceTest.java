@@ -0,0 +1,34 @@
+package it.paa.resource;
+
+import it.paa.model.dto.export.ExportJobDTO;
+import it.paa.service.ExportService;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+export al completo: la POST risponde 503 con Retry-After invece di accodare il job
+ */
+public class ExportResourceTest {
+
+    @Test
+    public void fullExportQueueIs503WithRetryAfter() {
+        ExportResource resource = new ExportResource();
+        resource.exportService = new ExportService() {
+            @Override
+            public ExportJobDTO start(String type, String format) {
+                throw new RejectedExecutionException("too many exports in progress, retry later");
+            }
+        };
+
+        Response response = resource.start("employees", "csv");
+
+        assertEquals(503, response.getStatus());
+        assertEquals("30", response.getHeaderString(HttpHeaders.RETRY_AFTER));
+        assertEquals("too many exports in progress, retry later", response.getEntity());
+    }
+}
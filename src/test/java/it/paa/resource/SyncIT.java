@@ -0,0 +1,152 @@
+package it.paa.resource;
+
+import io.quarkus.test.junit.QuarkusIntegrationTest;
+import io.restassured.http.ContentType;
+import io.restassured.path.json.JsonPath;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+sincronizzazione a token: la fase iniziale a pagine restituisce ogni dipendente una sola volta, poi con il token
+della posizione fissata all'inizio la fase incrementale porta le modifiche fatte mentre il client paginava.
+Richiede il database: ./mvnw verify -DskipITs=false
+ */
+@QuarkusIntegrationTest
+public class SyncIT {
+    private static final int PAGE = 500;
+
+    private static String roleName;
+
+    @BeforeAll
+    public static void createRole() {
+        roleName = "sync-" + System.nanoTime();
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(Map.of("name", roleName, "min_salary", 0))
+                .when().post("/roles")
+                .then().statusCode(201);
+    }
+
+    @Test
+    public void snapshotThenIncrementalSeesChangesMadeWhilePaging() {
+        long updated = createEmployee();
+        long deleted = createEmployee();
+
+        JsonPath page = sync(null, PAGE);
+        List<Long> snapshot = new ArrayList<>(page.getList("employees.id", Long.class));
+
+        //modifiche dopo la prima pagina: non devono andare perse né arrivare due volte nella fase iniziale
+        long created = createEmployee();
+        updateSalary(updated, 2000);
+        given().when().delete("/employees/employee_id/" + deleted).then().statusCode(200);
+
+        String token = page.getString("token");
+        while (token.contains(":")) {
+            page = sync(token, PAGE);
+            assertTrue(page.getBoolean("has_more"));
+            snapshot.addAll(page.getList("employees.id", Long.class));
+            token = page.getString("token");
+        }
+
+        assertEquals(new HashSet<>(snapshot).size(), snapshot.size(), "employees returned twice by the snapshot");
+        assertTrue(snapshot.contains(updated));
+
+        //fase incrementale dalla posizione fissata prima della prima pagina
+        Set<Long> upserts = new HashSet<>();
+        Set<Long> tombstones = new HashSet<>();
+        do {
+            page = sync(token, PAGE);
+            upserts.addAll(page.getList("employees.id", Long.class));
+            tombstones.addAll(page.getList("deleted.findAll { it.type == 'employee' }.id", Long.class));
+            token = page.getString("token");
+        } while (page.getBoolean("has_more"));
+
+        assertTrue(upserts.contains(created), "created employee missing from the incremental sync");
+        assertTrue(upserts.contains(updated), "updated employee missing from the incremental sync");
+        assertTrue(tombstones.contains(deleted), "deleted employee missing from the tombstones");
+        assertFalse(upserts.contains(deleted));
+    }
+
+    @Test
+    public void incrementalPagesFollowTheLimit() {
+        String token = head();
+        Set<Long> created = Set.of(createEmployee(), createEmployee(), createEmployee());
+
+        Set<Long> upserts = new HashSet<>();
+        int pages = 0;
+        JsonPath page;
+        do {
+            page = sync(token, 1);
+            List<Long> employees = page.getList("employees.id", Long.class);
+            assertTrue(employees.size() <= 1, "page larger than the limit: " + employees);
+            upserts.addAll(employees);
+            token = page.getString("token");
+            pages++;
+        } while (page.getBoolean("has_more"));
+
+        assertTrue(upserts.containsAll(created), "missing " + created + " in " + upserts);
+        assertTrue(pages > created.size());
+    }
+
+    @Test
+    public void invalidOrExpiredTokens() {
+        given().queryParam("since", "not-a-token").when().get("/sync").then().statusCode(400);
+        given().queryParam("since", "1-1:role:1").when().get("/sync").then().statusCode(400);
+        given().queryParam("since", Long.MAX_VALUE + "-0").when().get("/sync").then().statusCode(410);
+        given().queryParam("limit", 0).when().get("/sync").then().statusCode(400);
+    }
+
+    //token della posizione attuale: fase iniziale e incrementale lette fino in fondo
+    private static String head() {
+        JsonPath page = sync(null, PAGE);
+        String token = page.getString("token");
+
+        while (token.contains(":"))
+            token = sync(token, PAGE).getString("token");
+
+        do {
+            page = sync(token, PAGE);
+            token = page.getString("token");
+        } while (page.getBoolean("has_more"));
+
+        return token;
+    }
+
+    private static JsonPath sync(String since, int limit) {
+        return given()
+                .queryParam("limit", limit)
+                .queryParams(since == null ? Map.of() : Map.of("since", since))
+                .when().get("/sync")
+                .then().statusCode(200)
+                .extract().jsonPath();
+    }
+
+    private static long createEmployee() {
+        return given()
+                .contentType(ContentType.JSON)
+                .body(Map.of("name", "Sync", "surname", "Client", "role_name", roleName, "hiring_date", "2020-01-01", "salary", 1000))
+                .when().post("/employees")
+                .then().statusCode(201)
+                .extract().jsonPath().getLong("id");
+    }
+
+    private static void updateSalary(long id, int salary) {
+        given()
+                .contentType(ContentType.JSON)
+                .body(Map.of("salary", salary))
+                .when().put("/employees/employee_id/" + id)
+                .then().statusCode(200);
+    }
+}
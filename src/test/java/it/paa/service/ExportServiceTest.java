@@ -0,0 +1,90 @@
+package it.paa.service;
+
+import it.paa.config.ReadRouting;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+limite degli export attivi: oltre 10 tra in coda e in esecuzione i nuovi vengono rifiutati, e appena quelli attivi
+finiscono se ne possono avviare altri. La replica è sostituita da una connessione che resta bloccata fino al via
+del test e poi fallisce, così gli export finiscono senza database
+ */
+public class ExportServiceTest {
+    private static final int MAX_ACTIVE = 10;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ExportService exportService;
+
+    @BeforeEach
+    public void setUp() {
+        exportService = new ExportService();
+        exportService.readRouting = new ReadRouting() {
+            @Override
+            public Connection bulkConnection() throws SQLException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                throw new SQLException("no replica in unit tests");
+            }
+        };
+    }
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        exportService.onStop(null);
+    }
+
+    @Test
+    public void rejectsOverTheActiveLimitUntilExportsFinish() throws InterruptedException {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < MAX_ACTIVE; i++)
+            ids.add(exportService.start("employees", "csv").getId());
+
+        assertThrows(RejectedExecutionException.class, () -> exportService.start("employees", "csv"));
+        //anche il rifiuto non deve occupare un posto
+        assertThrows(RejectedExecutionException.class, () -> exportService.start("projects", "csv"));
+
+        release.countDown();
+        for (String id : ids)
+            awaitStatus(id, "FAILED");
+
+        assertNotNull(exportService.start("customers", "csv").getId());
+    }
+
+    @Test
+    public void invalidRequestsDoNotTakeASlot() {
+        for (int i = 0; i < MAX_ACTIVE * 2; i++)
+            assertThrows(IllegalArgumentException.class, () -> exportService.start("employees", "parquet"));
+
+        for (int i = 0; i < MAX_ACTIVE; i++)
+            exportService.start("employees", "csv");
+
+        assertThrows(RejectedExecutionException.class, () -> exportService.start("employees", "csv"));
+    }
+
+    private void awaitStatus(String id, String status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+
+        while (!exportService.findJob(id).orElseThrow().getStatus().equals(status)) {
+            assertTrue(System.nanoTime() < deadline, "export " + id + " not " + status);
+            Thread.sleep(20);
+        }
+    }
+}